@@ -1,8 +1,10 @@
 """MCPyLib Client Implementation"""
 
+import base64
 import json
 import socket
-from typing import List, Optional
+import struct
+from typing import List, Optional, Union
 
 
 class MCPyLibError(Exception):
@@ -25,6 +27,28 @@ class CommandError(MCPyLibError):
     pass
 
 
+def _unpack_grid(data: str, width: int, length: int) -> List[List[int]]:
+    """Decode base64 little-endian shorts packed with index dz * width + dx into [x][z]"""
+    raw = base64.b64decode(data)
+    values = struct.unpack("<%dh" % (width * length), raw)
+    return [[values[dz * width + dx] for dz in range(length)] for dx in range(width)]
+
+
+def _unpack_positions(data: str, x: int, y: int, z: int) -> List[tuple]:
+    """Decode base64 varint (dx, dy, dz) triples into absolute (x, y, z) tuples"""
+    raw = base64.b64decode(data)
+    values = []
+    value = shift = 0
+    for byte in raw:
+        value |= (byte & 0x7F) << shift
+        if byte & 0x80:
+            shift += 7
+        else:
+            values.append(value)
+            value = shift = 0
+    return [(x + values[i], y + values[i + 1], z + values[i + 2]) for i in range(0, len(values), 3)]
+
+
 class MCPyLib:
     """Main client class for interacting with Minecraft server
 
@@ -62,6 +86,8 @@ class MCPyLib:
         self.token = token
         self.timeout = timeout
         self._socket: Optional[socket.socket] = None
+        # Server tick of the snapshot the last response was read from, or None if it was read live
+        self.last_tick: Optional[int] = None
 
     def _connect(self) -> socket.socket:
         """Establish a new connection to the server
@@ -202,6 +228,7 @@ class MCPyLib:
                         raise AuthenticationError(error)
                     raise CommandError(error)
 
+                self.last_tick = response.get("tick")
                 return response.get("data")
 
             except (ConnectionError, socket.error, OSError):
@@ -226,7 +253,8 @@ class MCPyLib:
             x: X coordinate
             y: Y coordinate
             z: Z coordinate
-            block_name: Block type (e.g., "minecraft:stone")
+            block_name: Block type (e.g., "minecraft:stone"), optionally with a full
+                state string (e.g., "minecraft:oak_stairs[facing=north,half=top]")
             block_state: Optional block state properties (e.g., {"facing": "north", "half": "bottom"})
             nbt: Optional NBT data for block entities (e.g., {"Items": [...]})
 
@@ -342,7 +370,9 @@ class MCPyLib:
         self,
         x1: int, y1: int, z1: int,
         x2: int, y2: int, z2: int,
-        block_name: str
+        block_name: str,
+        block_state: dict = None,
+        physics: str = None
     ) -> int:
         """Fill a region with the specified block
 
@@ -353,10 +383,13 @@ class MCPyLib:
             x2: Ending X coordinate
             y2: Ending Y coordinate
             z2: Ending Z coordinate
-            block_name: Block type (e.g., "minecraft:glass")
+            block_name: Block type (e.g., "minecraft:glass" or "minecraft:oak_log[axis=x]")
+            block_state: Optional block state properties applied to every block
+            physics: Optional physics mode: "none" (default), "full" or "deferred"
 
         Returns:
-            Number of blocks affected
+            Number of blocks affected, or {"count": int, "updates": int}
+            when physics is "deferred"
 
         Raises:
             ConnectionError: If connection fails
@@ -376,13 +409,47 @@ class MCPyLib:
             "z2": z2,
             "block": block_name
         }
+
+        if block_state is not None:
+            params["block_state"] = block_state
+
+        if physics is not None:
+            params["physics"] = physics
+
         return self._send_command("fill", params)
 
-    def getPos(self, username: str) -> List[int]:
+    def editProgress(self) -> dict:
+        """Get the progress of the block edits queued on the server
+
+        Edits run one at a time. Before writing, each edit loads and holds the
+        chunks it touches, spread over several ticks. A connection waits for
+        its own edit to finish, so call this from a second client.
+
+        Returns:
+            Dict with "jobs" (queued edits, including the current one) and,
+            while an edit runs, "phase" ("loading", "writing" or "updating"),
+            "chunks", "chunks_loaded", "sections" and "sections_done"
+
+        Raises:
+            ConnectionError: If connection fails
+            AuthenticationError: If authentication fails
+
+        Example:
+            >>> watcher = MCPyLib(token="your_token")
+            >>> watcher.editProgress()
+            {'jobs': 1, 'phase': 'loading', 'chunks': 64, 'chunks_loaded': 12, 'sections': 768, 'sections_done': 0}
+        """
+        return self._send_command("edit_progress", {})
+
+    def getPos(self, username: str, fresh: bool = False) -> List[int]:
         """Get the position of a player
 
+        Answered from the server's per-tick snapshot, at most one tick old.
+
         Args:
             username: Player username
+            fresh: Read the live world instead of the per-tick snapshot, e.g.
+                right after changing it
 
         Returns:
             List of [x, y, z] coordinates
@@ -399,6 +466,8 @@ class MCPyLib:
         params = {
             "username": username
         }
+        if fresh:
+            params["fresh"] = True
         return self._send_command("getPos", params)
 
     def teleport(self, username: str, x: float, y: float, z: float,
@@ -560,7 +629,8 @@ class MCPyLib:
         }
         return self._send_command("give", params)
 
-    def summon(self, entity_type: str, x: float, y: float, z: float) -> str:
+    def summon(self, entity_type: str, x: float, y: float, z: float,
+               handle: bool = False):
         """Summon an entity at coordinates
 
         Args:
@@ -568,9 +638,13 @@ class MCPyLib:
             x: X coordinate
             y: Y coordinate
             z: Z coordinate
+            handle: If True, also allocate a session handle for the entity. Handles are
+                small integers accepted anywhere an entity UUID is, for as long as this
+                connection stays open.
 
         Returns:
-            Entity UUID as string
+            Entity UUID as string, or a dictionary with keys uuid and handle when
+            handle is True
 
         Raises:
             ConnectionError: If connection fails
@@ -580,6 +654,8 @@ class MCPyLib:
         Example:
             >>> uuid = mc.summon("minecraft:zombie", 100, 64, 200)
             >>> uuid = mc.summon("pig", 150, 70, 250)
+            >>> pig = mc.summon("pig", 150, 70, 250, handle=True)["handle"]
+            >>> mc.setEntityAI(pig, False)
         """
         params = {
             "entity_type": entity_type,
@@ -587,11 +663,64 @@ class MCPyLib:
             "y": y,
             "z": z
         }
+        if handle:
+            params["handle"] = True
         return self._send_command("summon", params)
 
+    def summonMany(self, template: dict, positions: list,
+                   overrides: List[dict] = None, handles: bool = False) -> list:
+        """Summon many entities from one template in a single request
+
+        Each entity is configured before it is added to the world, and the
+        server spreads the spawns over several ticks.
+
+        Args:
+            template: Shared properties. "entity_type" is required. Optional keys:
+                "name", "tags" (list), "yaw", "pitch", "ai" (bool),
+                "equipment" ({"helmet"|"chestplate"|"leggings"|"boots"|
+                "main_hand"|"off_hand": item spec or None}) and "attributes"
+                ({"MAX_HEALTH": 40, ...}, set as base values)
+            positions: List of (x, y, z) tuples, one per entity
+            overrides: Optional list of dicts with "index" (into positions)
+                plus any template keys to replace for that entity
+            handles: Return session handles instead of UUIDs
+
+        Returns:
+            List of entity UUIDs (or handles), in the order of positions,
+            with None for any entity that failed to spawn
+
+        Raises:
+            ConnectionError: If connection fails
+            AuthenticationError: If authentication fails
+            CommandError: If the template or an override is invalid
+
+        Example:
+            >>> army = mc.summonMany(
+            ...     {"entity_type": "zombie", "tags": ["army"],
+            ...      "equipment": {"helmet": "iron_helmet", "main_hand": "iron_sword"}},
+            ...     [(100 + i % 20 * 2, 64, 200 + i // 20 * 2) for i in range(300)],
+            ...     overrides=[{"index": 0, "name": "Captain", "attributes": {"MAX_HEALTH": 60}}],
+            ...     handles=True)
+        """
+        params = {
+            "template": template,
+            "positions": [coord for position in positions for coord in position]
+        }
+
+        if overrides is not None:
+            params["overrides"] = overrides
+        if handles:
+            params["handles"] = True
+
+        result = self._send_command("summon_many", params)
+        return result["handles"] if handles else result["uuids"]
+
     def kill(self, selector: str) -> int:
         """Remove entities from the world
 
+        Entities are removed over several ticks when there are many of them.
+        Use removeEntities() to filter by region, tag or age.
+
         Args:
             selector: Entity selector ("all", entity type, or "player:username")
 
@@ -616,11 +745,60 @@ class MCPyLib:
         }
         return self._send_command("kill", params)
 
-    def getEntityPos(self, entity_uuid: str) -> dict:
+    def removeEntities(self, x1: int = None, y1: int = None, z1: int = None,
+                       x2: int = None, y2: int = None, z2: int = None,
+                       entity_type=None, tag: str = None,
+                       min_age: int = None) -> int:
+        """Remove every matching entity, however many there are
+
+        The server walks the entity lists of loaded chunks and removes a
+        limited number of entities per tick until it is done, so large
+        cleanups do not cause lag spikes. Players are never removed, and
+        entities in unloaded chunks are left alone.
+
+        Args:
+            x1, y1, z1, x2, y2, z2: Optional region (block coordinates, inclusive);
+                the whole world when omitted
+            entity_type: Optional entity type or list of types (e.g., "item")
+            tag: Optional scoreboard tag the entities must have
+            min_age: Optional minimum age in ticks (20 ticks = 1 second)
+
+        Returns:
+            Number of entities removed
+
+        Raises:
+            ConnectionError: If connection fails
+            AuthenticationError: If authentication fails
+            CommandError: If an entity type is invalid or the region is incomplete
+
+        Example:
+            >>> # Dropped items older than five minutes
+            >>> mc.removeEntities(entity_type="item", min_age=6000)
+            31874
+            >>> mc.removeEntities(0, -64, 0, 127, 320, 127, tag="arena")
+            12
+        """
+        params = {}
+        if x1 is not None:
+            params.update({"x1": x1, "y1": y1, "z1": z1, "x2": x2, "y2": y2, "z2": z2})
+        if entity_type is not None:
+            params["type"] = entity_type
+        if tag is not None:
+            params["tag"] = tag
+        if min_age is not None:
+            params["min_age"] = min_age
+        return self._send_command("remove_entities", params)
+
+    def getEntityPos(self, entity_uuid: Union[str, int], fresh: bool = False) -> dict:
         """Get the position of an entity by UUID
 
+        After the first read, the entity is watched and later reads are
+        answered from the server's per-tick snapshot.
+
         Args:
-            entity_uuid: Entity UUID string
+            entity_uuid: Entity UUID string or session handle
+            fresh: Read the live world instead of the per-tick snapshot, e.g.
+                right after changing it
 
         Returns:
             Position dictionary with keys: x, y, z, yaw, pitch
@@ -638,13 +816,15 @@ class MCPyLib:
         params = {
             "uuid": entity_uuid
         }
+        if fresh:
+            params["fresh"] = True
         return self._send_command("getEntityPos", params)
 
-    def getEntityStatus(self, entity_uuid: str) -> dict:
+    def getEntityStatus(self, entity_uuid: Union[str, int]) -> dict:
         """Get complete status information of an entity
 
         Args:
-            entity_uuid: Entity UUID string
+            entity_uuid: Entity UUID string or session handle
 
         Returns:
             Status dictionary containing:
@@ -676,9 +856,102 @@ class MCPyLib:
         }
         return self._send_command("getEntityStatus", params)
 
+    def queryEntities(self, x: float, y: float, z: float,
+                      radius: float = None,
+                      x2: float = None, y2: float = None, z2: float = None,
+                      entity_type=None, tag: str = None, name: str = None,
+                      limit: int = None, sort_by_distance: bool = False,
+                      fields: List[str] = None,
+                      allocate_handles: bool = False) -> dict:
+        """Find entities within a radius or a box
+
+        The server uses the world's spatial lookup, so the cost depends on
+        the area searched rather than on the number of loaded entities.
+
+        Args:
+            x, y, z: Center of the sphere, or with x2, y2, z2 the first corner of a box
+            radius: Search radius around x, y, z
+            x2, y2, z2: Second corner of the box (block coordinates, inclusive)
+            entity_type: Optional entity type or list of types (e.g., "zombie")
+            tag: Optional scoreboard tag the entities must have
+            name: Optional name the entities must have (custom name or player name)
+            limit: Optional maximum number of entities to return
+            sort_by_distance: Return the nearest entities first, measured from
+                x, y, z or from the center of the box
+            fields: Fields to return for each entity, from "handle", "type",
+                "name", "position", "rotation", "velocity", "health" and "tags"
+                (default: ["type", "position"])
+            allocate_handles: Give a new session handle to every returned
+                entity that has none. Otherwise "handle" is None for entities
+                this connection has no handle for. Handles are kept for the
+                life of the connection, so avoid this when polling.
+
+        Returns:
+            Dict with "total" (number of matches before the limit) and
+            "entities", a list of dicts with "uuid" plus the requested fields.
+            position and velocity are (x, y, z) tuples, rotation is (yaw, pitch),
+            and health is None for entities that are not alive.
+
+        Raises:
+            ConnectionError: If connection fails
+            AuthenticationError: If authentication fails
+            CommandError: If an entity type or field is invalid
+            ValueError: If neither radius nor x2, y2, z2 is given
+
+        Example:
+            >>> found = mc.queryEntities(100, 64, 200, radius=32, entity_type="zombie",
+            ...                          sort_by_distance=True, limit=10,
+            ...                          fields=["handle", "position", "health"],
+            ...                          allocate_handles=True)
+            >>> for e in found["entities"]:
+            ...     print(e["handle"], e["position"], e["health"])
+        """
+        if radius is not None:
+            params = {"x": x, "y": y, "z": z, "radius": radius}
+        elif x2 is not None and y2 is not None and z2 is not None:
+            params = {"x1": x, "y1": y, "z1": z, "x2": x2, "y2": y2, "z2": z2}
+        else:
+            raise ValueError("Either radius or x2, y2, z2 is required")
+
+        if entity_type is not None:
+            params["type"] = entity_type
+        if tag is not None:
+            params["tag"] = tag
+        if name is not None:
+            params["name"] = name
+        if limit is not None:
+            params["limit"] = limit
+        if sort_by_distance:
+            params["sort"] = "distance"
+        if fields is not None:
+            params["fields"] = fields
+        if allocate_handles:
+            params["allocate_handles"] = True
+
+        result = self._send_command("query_entities", params)
+        entities = [{"uuid": uuid} for uuid in result["uuids"]]
+        for i, entity in enumerate(entities):
+            if "handles" in result:
+                entity["handle"] = result["handles"][i]
+            if "types" in result:
+                entity["type"] = result["types"][i]
+            if "names" in result:
+                entity["name"] = result["names"][i]
+            if "positions" in result:
+                entity["position"] = tuple(result["positions"][i * 3:i * 3 + 3])
+            if "rotations" in result:
+                entity["rotation"] = tuple(result["rotations"][i * 2:i * 2 + 2])
+            if "velocities" in result:
+                entity["velocity"] = tuple(result["velocities"][i * 3:i * 3 + 3])
+            if "health" in result:
+                entity["health"] = result["health"][i]
+            if "tags" in result:
+                entity["tags"] = result["tags"][i]
+        return {"total": result["total"], "entities": entities}
+
     def teleportEntity(
         self,
-        entity_uuid: str,
+        entity_uuid: Union[str, int],
         x: float,
         y: float,
         z: float,
@@ -688,7 +961,7 @@ class MCPyLib:
         """Teleport an entity to specified coordinates
 
         Args:
-            entity_uuid: Entity UUID string
+            entity_uuid: Entity UUID string or session handle
             x: Target X coordinate
             y: Target Y coordinate
             z: Target Z coordinate
@@ -723,9 +996,126 @@ class MCPyLib:
 
         return self._send_command("teleportEntity", params)
 
+    def mutateEntities(self, entities: list = None, positions: list = None,
+                       velocities: list = None, rotations: list = None,
+                       ops: List[dict] = None) -> dict:
+        """Change many entities in one request, applied in a single server tick
+
+        Use entities with positions, velocities and/or rotations for a frame
+        that moves every entity; these are sent packed. Use ops for sparse
+        or mixed changes. Both may be given at once.
+
+        Args:
+            entities: UUIDs or session handles. None entries, as summonMany()
+                returns for entities that failed to spawn, are reported in
+                "failed" like entities that are not loaded
+            positions: Optional (x, y, z) per entity to teleport to
+            velocities: Optional (vx, vy, vz) per entity
+            rotations: Optional (yaw, pitch) per entity
+            ops: Optional list of dicts with "handle" (UUID or handle) and any of
+                "teleport" ([x, y, z] or [x, y, z, yaw, pitch]), "velocity"
+                ([vx, vy, vz]), "rotation" ([yaw, pitch]), "ai" (bool) and
+                "target" (UUID or handle, or None to clear)
+
+        Returns:
+            Dict with "applied" (entities changed), "failed" (indices into
+            entities that were not loaded or could not be teleported) and
+            "failed_ops" (indices into ops that could not be applied)
+
+        Raises:
+            ConnectionError: If connection fails
+            AuthenticationError: If authentication fails
+            CommandError: If a UUID is malformed or a handle is unknown
+
+        Example:
+            >>> flock = mc.summonMany({"entity_type": "parrot", "ai": False},
+            ...                       [(100 + i, 80, 200) for i in range(200)], handles=True)
+            >>> for t in range(100):
+            ...     mc.mutateEntities(flock, positions=[(100 + i, 80 + t * 0.1, 200) for i in range(200)])
+        """
+        params = {}
+        if entities is not None:
+            params["entities"] = list(entities)
+            if positions is not None:
+                values = [v for position in positions for v in position]
+                params["positions"] = base64.b64encode(struct.pack("<%dd" % len(values), *values)).decode("ascii")
+            if velocities is not None:
+                values = [v for velocity in velocities for v in velocity]
+                params["velocities"] = base64.b64encode(struct.pack("<%df" % len(values), *values)).decode("ascii")
+            if rotations is not None:
+                values = [v for rotation in rotations for v in rotation]
+                params["rotations"] = base64.b64encode(struct.pack("<%df" % len(values), *values)).decode("ascii")
+        if ops is not None:
+            params["ops"] = ops
+        return self._send_command("mutate_entities", params)
+
+    def animateEntities(self, tracks: List[dict], interpolation: str = "linear",
+                        loop: bool = False) -> dict:
+        """Play keyframe animations on the server
+
+        The server interpolates every track each tick (20 Hz), so the motion
+        stays smooth with no further requests. Entities with AI keep fighting
+        the animation, so turn AI off first for cutscenes.
+
+        Args:
+            tracks: List of dicts with "entity" (UUID or session handle) and
+                "keyframes", a list of {"tick", "position"?: [x, y, z],
+                "rotation"?: [yaw, pitch], "velocity"?: [vx, vy, vz]} with
+                increasing ticks. Fields may be keyed at different ticks.
+            interpolation: "linear" or "catmull_rom"
+            loop: Repeat until stopped. The last keyframe tick is the period,
+                so make the last keyframe match the first for a seamless loop.
+
+        Returns:
+            Dict with "id" (for stopAnimation), "tracks" (entities animated)
+            and "missing" (indices of tracks whose entity is not loaded)
+
+        Raises:
+            ConnectionError: If connection fails
+            AuthenticationError: If authentication fails
+            CommandError: If a keyframe is invalid or no entity is loaded
+
+        Example:
+            >>> cam = mc.summon("armor_stand", 0, 70, 0, handle=True)["handle"]
+            >>> mc.animateEntities([{"entity": cam, "keyframes": [
+            ...     {"tick": 0, "position": [0, 70, 0], "rotation": [0, 0]},
+            ...     {"tick": 100, "position": [50, 80, 20], "rotation": [90, 10]},
+            ...     {"tick": 200, "position": [0, 70, 40], "rotation": [180, 0]}]}],
+            ...     interpolation="catmull_rom")
+        """
+        params = {
+            "tracks": tracks,
+            "interpolation": interpolation,
+            "loop": loop
+        }
+        return self._send_command("animate_entities", params)
+
+    def stopAnimation(self, animation_id: int = None) -> int:
+        """Stop an animation started with animateEntities
+
+        Args:
+            animation_id: Animation id, or None to stop every animation
+
+        Returns:
+            Number of animations stopped
+
+        Raises:
+            ConnectionError: If connection fails
+            AuthenticationError: If authentication fails
+
+        Example:
+            >>> anim = mc.animateEntities(tracks, loop=True)
+            >>> mc.stopAnimation(anim["id"])
+            1
+        """
+        params = {}
+        if animation_id is not None:
+            params["id"] = animation_id
+        return self._send_command("stop_animation", params)
+
     def setEntityVelocity(
         self,
-        entity_uuid: str,
+        entity_uuid: Union[str, int],
         vx: float,
         vy: float,
         vz: float
@@ -733,7 +1123,7 @@ class MCPyLib:
         """Set the velocity of an entity
 
         Args:
-            entity_uuid: Entity UUID string
+            entity_uuid: Entity UUID string or session handle
             vx: X velocity component (blocks/tick, clamped to ±10)
             vy: Y velocity component (blocks/tick, clamped to ±10)
             vz: Z velocity component (blocks/tick, clamped to ±10)
@@ -765,14 +1155,14 @@ class MCPyLib:
 
     def setEntityRotation(
         self,
-        entity_uuid: str,
+        entity_uuid: Union[str, int],
         yaw: float,
         pitch: float
     ) -> bool:
         """Set the rotation (facing direction) of an entity
 
         Args:
-            entity_uuid: Entity UUID string
+            entity_uuid: Entity UUID string or session handle
             yaw: Horizontal rotation angle (0=south, 90=west, 180=north, 270=east)
             pitch: Vertical rotation angle (-90=up, 0=horizontal, 90=down)
 
@@ -800,14 +1190,14 @@ class MCPyLib:
         }
         return self._send_command("setEntityRotation", params)
 
-    def setEntityAI(self, entity_uuid: str, enabled: bool) -> bool:
+    def setEntityAI(self, entity_uuid: Union[str, int], enabled: bool) -> bool:
         """Enable or disable AI for a living entity
 
         When AI is disabled, the entity will not move, attack, or perform
         any autonomous behavior (like a statue).
 
         Args:
-            entity_uuid: Entity UUID string
+            entity_uuid: Entity UUID string or session handle
             enabled: True to enable AI, False to disable
 
         Returns:
@@ -835,8 +1225,8 @@ class MCPyLib:
 
     def setEntityTarget(
         self,
-        entity_uuid: str,
-        target_uuid: str = None
+        entity_uuid: Union[str, int],
+        target_uuid: Union[str, int] = None
     ) -> bool:
         """Set or clear the attack target of a mob entity
 
@@ -870,11 +1260,11 @@ class MCPyLib:
             params["target_uuid"] = target_uuid
         return self._send_command("setEntityTarget", params)
 
-    def removeEntity(self, entity_uuid: str) -> bool:
+    def removeEntity(self, entity_uuid: Union[str, int]) -> bool:
         """Remove an entity from the world
 
         Args:
-            entity_uuid: Entity UUID string
+            entity_uuid: Entity UUID string or session handle
 
         Returns:
             True if successful
@@ -894,11 +1284,11 @@ class MCPyLib:
         }
         return self._send_command("removeEntity", params)
 
-    def getEntityEquipment(self, entity_uuid: str) -> dict:
+    def getEntityEquipment(self, entity_uuid: Union[str, int]) -> dict:
         """Get the equipment of a living entity
 
         Args:
-            entity_uuid: Entity UUID string
+            entity_uuid: Entity UUID string or session handle
 
         Returns:
             Equipment dictionary with keys:
@@ -926,14 +1316,14 @@ class MCPyLib:
 
     def setEntityEquipment(
         self,
-        entity_uuid: str,
+        entity_uuid: Union[str, int],
         equipment: dict,
         drop_chances: dict = None
     ) -> bool:
         """Set the equipment of a living entity
 
         Args:
-            entity_uuid: Entity UUID string
+            entity_uuid: Entity UUID string or session handle
             equipment: Dictionary of equipment slots to set. Keys can be:
                 - helmet: Item name (e.g., "diamond_helmet")
                 - chestplate: Item name
@@ -968,7 +1358,7 @@ class MCPyLib:
             params["drop_chances"] = drop_chances
         return self._send_command("setEntityEquipment", params)
 
-    def getVillagerData(self, villager_uuid: str) -> dict:
+    def getVillagerData(self, villager_uuid: Union[str, int]) -> dict:
         """Get villager profession, level, and trade information
 
         Args:
@@ -1001,7 +1391,7 @@ class MCPyLib:
         }
         return self._send_command("getVillagerData", params)
 
-    def setVillagerProfession(self, villager_uuid: str, profession: str) -> bool:
+    def setVillagerProfession(self, villager_uuid: Union[str, int], profession: str) -> bool:
         """Set a villager's profession
 
         Args:
@@ -1030,7 +1420,7 @@ class MCPyLib:
         }
         return self._send_command("setVillagerProfession", params)
 
-    def setVillagerTrades(self, villager_uuid: str, trades: list) -> bool:
+    def setVillagerTrades(self, villager_uuid: Union[str, int], trades: list) -> bool:
         """Set custom trades for a villager (replaces all existing trades)
 
         Args:
@@ -1074,11 +1464,91 @@ class MCPyLib:
         }
         return self._send_command("setVillagerTrades", params)
 
+    def defineTradeTemplate(self, name: str, trades: list) -> int:
+        """Register a named trade list on the server for applyTrades
+
+        The recipes are built once and shared by every connection until the
+        server restarts. Defining an existing name replaces it.
+
+        Args:
+            name: Template name
+            trades: Trade definitions, in the same format as setVillagerTrades
+
+        Returns:
+            Number of trades in the template
+
+        Raises:
+            ConnectionError: If connection fails
+            AuthenticationError: If authentication fails
+            CommandError: If a trade is invalid
+
+        Example:
+            >>> mc.defineTradeTemplate("armorer", [
+            ...     {"buy1": {"item": "emerald", "amount": 8},
+            ...      "sell": {"item": "iron_chestplate", "amount": 1}},
+            ...     {"buy1": {"item": "emerald", "amount": 20},
+            ...      "sell": {"item": "diamond_helmet", "amount": 1}, "max_uses": 3}
+            ... ])
+            2
+        """
+        params = {
+            "name": name,
+            "trades": trades
+        }
+        return self._send_command("define_trade_template", params)
+
+    def applyTrades(self, template: str, villagers: list = None,
+                    x1: int = None, y1: int = None, z1: int = None,
+                    x2: int = None, y2: int = None, z2: int = None,
+                    overrides: List[dict] = None) -> dict:
+        """Give a trade template to many villagers at once
+
+        Select the villagers by UUIDs or handles, or by a region. Any existing
+        trades are replaced.
+
+        Args:
+            template: Name given to defineTradeTemplate
+            villagers: UUIDs or session handles (villagers or wandering traders)
+            x1, y1, z1, x2, y2, z2: Region to select every villager and
+                wandering trader in, when villagers is not given
+            overrides: Optional list of dicts with "villager" (UUID or handle)
+                and any of "template" (another template name), "trades" (extra
+                trades to append) and "max_uses" (for all of that villager's trades)
+
+        Returns:
+            Dict with "applied" (villagers updated) and "skipped" (the UUIDs or
+            handles, as given, of villagers that are not loaded or are not
+            villagers, and of overrides naming a villager that is not a target)
+
+        Raises:
+            ConnectionError: If connection fails
+            AuthenticationError: If authentication fails
+            CommandError: If a template is not defined or a trade is invalid
+
+        Example:
+            >>> mc.applyTrades("armorer", x1=0, y1=60, z1=0, x2=64, y2=80, z2=64)
+            {'applied': 100, 'skipped': []}
+            >>> mc.applyTrades("armorer", villagers=hall, overrides=[
+            ...     {"villager": hall[0], "max_uses": 1}])
+        """
+        params = {"template": template}
+        if villagers is not None:
+            params["villagers"] = list(villagers)
+        else:
+            params.update({"x1": x1, "y1": y1, "z1": z1, "x2": x2, "y2": y2, "z2": z2})
+        if overrides is not None:
+            params["overrides"] = overrides
+        return self._send_command("apply_trades", params)
+
     def clone(self, x1: int, y1: int, z1: int,
               x2: int, y2: int, z2: int,
-              dest_x: int, dest_y: int, dest_z: int) -> int:
+              dest_x: int, dest_y: int, dest_z: int,
+              physics: str = None, block_entities: bool = None) -> int:
         """Clone a region of blocks to a new location
 
+        The whole source is read before anything is written, so the source and
+        destination may overlap.
+
         Args:
             x1: Source region start X coordinate
             y1: Source region start Y coordinate
@@ -1089,14 +1559,18 @@ class MCPyLib:
             dest_x: Destination X coordinate
             dest_y: Destination Y coordinate
             dest_z: Destination Z coordinate
+            physics: Optional physics mode: "full" (default), "none" or "deferred"
+            block_entities: Copy block entity contents such as chest items and
+                sign text (default True)
 
         Returns:
-            Number of blocks cloned
+            Number of blocks cloned, or {"count": int, "updates": int}
+            when physics is "deferred"
 
         Raises:
             ConnectionError: If connection fails
             AuthenticationError: If authentication fails
-            CommandError: If region too large (max 32768 blocks)
+            CommandError: If the region exceeds the server's clipboard limit
 
         Example:
             >>> mc.clone(0, 64, 0, 10, 74, 10, 20, 64, 0)
@@ -1113,9 +1587,16 @@ class MCPyLib:
             "dest_y": dest_y,
             "dest_z": dest_z
         }
+
+        if physics is not None:
+            params["physics"] = physics
+        if block_entities is not None:
+            params["block_entities"] = block_entities
+
         return self._send_command("clone", params)
 
-    def edit(self, x: int, y: int, z: int, blocks: List[List[List]]) -> int:
+    def edit(self, x: int, y: int, z: int, blocks: List[List[List]],
+             physics: str = None, diff: bool = None) -> int:
         """Bulk edit a 3D region of blocks with high performance (like WorldEdit)
 
         This method allows you to quickly place large numbers of different blocks
@@ -1135,9 +1616,20 @@ class MCPyLib:
                         "block_state": {"facing": "north"},  # Optional
                         "nbt": {"CustomName": '{"text":"Storage"}'}  # Optional
                     }
+            physics: Optional physics mode:
+                - "none" (default): write blocks without any block updates
+                - "full": run vanilla physics for every placement
+                - "deferred": write without physics, then run a single update
+                  pass over the edit boundary and blocks that need support
+                  (torches, rails, fluids, ...)
+            diff: If True, the server compares each block with the world
+                first and writes only the ones that differ. Useful for
+                periodically repairing a structure that is mostly intact
 
         Returns:
-            Number of blocks placed
+            Number of blocks placed, or {"count": int, "updates": int}
+            when physics is "deferred". With diff, a dict with "count"
+            (blocks written) and "unchanged" (blocks already correct)
 
         Raises:
             ConnectionError: If connection fails
@@ -1186,8 +1678,783 @@ class MCPyLib:
             "z": z,
             "blocks": blocks
         }
+
+        if physics is not None:
+            params["physics"] = physics
+        if diff is not None:
+            params["diff"] = diff
+
         return self._send_command("bulkEdit", params)
 
+    def setblocks(self, x: int, y: int, z: int, blocks, physics: str = None) -> int:
+        """Place scattered blocks given as a list of offsets
+
+        Sends a palette plus compact binary records, so the request grows with
+        the number of blocks rather than with their bounding box. Better than
+        edit() for sparse placements such as ores, decorations or point clouds.
+
+        Args:
+            x, y, z: Origin the offsets are relative to
+            blocks: Iterable of (dx, dy, dz, block) tuples; block is a block
+                spec string, or a dict with "block" and "block_state"
+            physics: Optional physics mode: "none" (default), "full" or "deferred"
+
+        Returns:
+            Number of blocks placed
+
+        Raises:
+            ConnectionError: If connection fails
+            AuthenticationError: If authentication fails
+            CommandError: If a block spec is invalid, a block is outside the
+                world height or there are more blocks than the server's
+                edits.max-clipboard-volume; nothing is placed then
+
+        Example:
+            >>> import random
+            >>> ores = [(random.randrange(64), random.randrange(40), random.randrange(64), "diamond_ore")
+            ...         for _ in range(500)]
+            >>> mc.setblocks(0, -60, 0, ores)
+            500
+        """
+        palette = []
+        indexes = {}
+        data = bytearray()
+
+        def write_varint(value):
+            value &= 0xFFFFFFFF
+            while value & ~0x7F:
+                data.append((value & 0x7F) | 0x80)
+                value >>= 7
+            data.append(value)
+
+        for dx, dy, dz, block in blocks:
+            key = json.dumps(block, sort_keys=True)
+            if key not in indexes:
+                indexes[key] = len(palette)
+                palette.append(block)
+            write_varint((dx << 1) ^ (dx >> 31))
+            write_varint((dy << 1) ^ (dy >> 31))
+            write_varint((dz << 1) ^ (dz >> 31))
+            write_varint(indexes[key])
+
+        params = {
+            "x": x,
+            "y": y,
+            "z": z,
+            "palette": palette,
+            "blocks": base64.b64encode(bytes(data)).decode("ascii")
+        }
+
+        if physics is not None:
+            params["physics"] = physics
+
+        return self._send_command("setblocks", params)
+
+    def copy(self, x1: int, y1: int, z1: int,
+             x2: int, y2: int, z2: int,
+             origin: List[int] = None, name: str = None) -> dict:
+        """Copy a region of blocks, including block entities, to a server-side clipboard
+
+        Without a name the region goes to this connection's clipboard; with a name
+        it is stored in a clipboard shared by every connection.
+
+        Args:
+            x1: Region start X coordinate
+            y1: Region start Y coordinate
+            z1: Region start Z coordinate
+            x2: Region end X coordinate
+            y2: Region end Y coordinate
+            z2: Region end Z coordinate
+            origin: Optional [x, y, z] point that lands on the paste position
+                (defaults to the minimum corner)
+            name: Optional clipboard name
+
+        Returns:
+            Dictionary with width, height, length, count, palette and
+            block_entities
+
+        Raises:
+            ConnectionError: If connection fails
+            AuthenticationError: If authentication fails
+            CommandError: If the region is too large
+
+        Example:
+            >>> mc.copy(0, 64, 0, 10, 74, 10, name="tower")
+            {'width': 11, 'height': 11, 'length': 11, 'count': 1331, 'palette': 7, 'block_entities': 2}
+        """
+        params = {
+            "x1": x1,
+            "y1": y1,
+            "z1": z1,
+            "x2": x2,
+            "y2": y2,
+            "z2": z2
+        }
+
+        if origin is not None:
+            params["origin"] = origin
+        if name is not None:
+            params["name"] = name
+
+        return self._send_command("copy", params)
+
+    def paste(self, x: int, y: int, z: int, name: str = None,
+              rotate: int = None, mirror: str = None, ignore_air: bool = None,
+              repeat: int = None, offset: List[int] = None,
+              physics: str = None) -> int:
+        """Paste a clipboard with its origin at the given position
+
+        Args:
+            x: Paste X coordinate
+            y: Paste Y coordinate
+            z: Paste Z coordinate
+            name: Optional clipboard name (defaults to this connection's clipboard)
+            rotate: Optional clockwise rotation around the origin: 0, 90, 180 or 270
+            mirror: Optional mirror applied before rotating: "none", "x" or "z"
+            ignore_air: If True, air in the clipboard leaves the world unchanged
+            repeat: Optional number of copies to paste
+            offset: [dx, dy, dz] step between copies (required when repeat > 1)
+            physics: Optional physics mode: "none" (default), "full" or "deferred"
+
+        Returns:
+            Number of blocks placed, or {"count": int, "updates": int}
+            when physics is "deferred"
+
+        Raises:
+            ConnectionError: If connection fails
+            AuthenticationError: If authentication fails
+            CommandError: If the clipboard is empty or parameters are invalid
+
+        Example:
+            >>> mc.copy(0, 64, 0, 4, 70, 4)
+            >>> # A row of five towers, each turned a quarter
+            >>> mc.paste(20, 64, 0, rotate=90, repeat=5, offset=[8, 0, 0])
+            875
+        """
+        params = {
+            "x": x,
+            "y": y,
+            "z": z
+        }
+
+        if name is not None:
+            params["name"] = name
+        if rotate is not None:
+            params["rotate"] = rotate
+        if mirror is not None:
+            params["mirror"] = mirror
+        if ignore_air is not None:
+            params["ignore_air"] = ignore_air
+        if repeat is not None:
+            params["repeat"] = repeat
+        if offset is not None:
+            params["offset"] = offset
+        if physics is not None:
+            params["physics"] = physics
+
+        return self._send_command("paste", params)
+
+    def schematicSave(self, name: str,
+                      x1: int = None, y1: int = None, z1: int = None,
+                      x2: int = None, y2: int = None, z2: int = None,
+                      origin: List[int] = None, clipboard: str = None) -> dict:
+        """Save a region or clipboard as a Sponge schematic (.schem) on the server
+
+        The file is written to the plugin's schematics folder. Pass a region to
+        save it directly; otherwise the named clipboard, or this connection's
+        clipboard, is saved.
+
+        Args:
+            name: File name inside the schematics folder (".schem" is added if missing)
+            x1, y1, z1: Optional first corner of a region to save
+            x2, y2, z2: Optional second corner of a region to save
+            origin: Optional [x, y, z] origin when saving a region
+            clipboard: Optional named clipboard to save
+
+        Returns:
+            Dictionary with name, width, height, length, palette and block_entities
+
+        Raises:
+            ConnectionError: If connection fails
+            AuthenticationError: If authentication fails
+            CommandError: If the clipboard is empty or the name is invalid
+
+        Example:
+            >>> mc.schematicSave("tower", 0, 64, 0, 10, 90, 10)
+            {'name': 'tower.schem', 'width': 11, 'height': 27, 'length': 11, 'palette': 9, 'block_entities': 1}
+        """
+        params = {"name": name}
+
+        if x1 is not None:
+            params.update({"x1": x1, "y1": y1, "z1": z1, "x2": x2, "y2": y2, "z2": z2})
+        if origin is not None:
+            params["origin"] = origin
+        if clipboard is not None:
+            params["clipboard"] = clipboard
+
+        return self._send_command("schematic_save", params)
+
+    def schematicLoad(self, name: str, x: int, y: int, z: int,
+                      rotate: int = None, mirror: str = None,
+                      ignore_air: bool = None, physics: str = None) -> int:
+        """Paste a Sponge schematic (.schem) from the server's schematics folder
+
+        The file never passes through the client: the server decodes it and
+        writes the blocks directly. Version 2 and 3 schematics are supported.
+
+        Args:
+            name: File name inside the schematics folder (".schem" is added if missing)
+            x: Paste X coordinate (the schematic origin lands here)
+            y: Paste Y coordinate
+            z: Paste Z coordinate
+            rotate: Optional clockwise rotation: 0, 90, 180 or 270
+            mirror: Optional mirror applied before rotating: "none", "x" or "z"
+            ignore_air: If True, air in the schematic leaves the world unchanged
+            physics: Optional physics mode: "none" (default), "full" or "deferred"
+
+        Returns:
+            Number of blocks placed, or {"count": int, "updates": int}
+            when physics is "deferred"
+
+        Raises:
+            ConnectionError: If connection fails
+            AuthenticationError: If authentication fails
+            CommandError: If the file is missing or not a valid schematic
+
+        Example:
+            >>> mc.schematicLoad("tower", 100, 64, 100, rotate=180)
+            3267
+        """
+        params = {
+            "name": name,
+            "x": x,
+            "y": y,
+            "z": z
+        }
+
+        if rotate is not None:
+            params["rotate"] = rotate
+        if mirror is not None:
+            params["mirror"] = mirror
+        if ignore_air is not None:
+            params["ignore_air"] = ignore_air
+        if physics is not None:
+            params["physics"] = physics
+
+        return self._send_command("schematic_load", params)
+
+    def shape(self, type: str, block: str = None, pattern: List = None,
+              x: int = None, y: int = None, z: int = None,
+              radius: float = None, radii: List[float] = None,
+              height: int = None, axis: str = None,
+              x1: int = None, y1: int = None, z1: int = None,
+              x2: int = None, y2: int = None, z2: int = None,
+              hollow: bool = None, thickness: int = None,
+              seed: int = None, physics: str = None) -> int:
+        """Generate a shape on the server from a few parameters
+
+        Only the parameters are sent, so a sphere of any size costs the same
+        number of network bytes.
+
+        Args:
+            type: "sphere", "cylinder", "pyramid", "line" or "box"
+            block: Block spec to build with (e.g. "stone" or "oak_log[axis=x]")
+            pattern: Weighted mix instead of block: a list of block specs or
+                {"block": spec, "weight": n} entries
+            x, y, z: Center (sphere) or base center (cylinder, pyramid)
+            radius: Radius (sphere, cylinder, line) or base half-width (pyramid)
+            radii: Per-axis radii: [rx, ry, rz] for spheres, [r1, r2] for
+                cylinders (the two axes other than the cylinder axis, in x, y, z order)
+            height: Cylinder length along its axis (default 1) or pyramid
+                height (default radius + 1)
+            axis: Cylinder axis: "x", "y" (default) or "z"
+            x1, y1, z1, x2, y2, z2: End points (line) or corners (box)
+            hollow: Keep only a one-block shell (cylinders become open tubes)
+            thickness: Shell thickness in blocks; implies hollow
+            seed: Seed for the weighted pattern
+            physics: Optional physics mode: "none" (default), "full" or "deferred"
+
+        Returns:
+            Number of blocks placed
+
+        Raises:
+            ConnectionError: If connection fails
+            AuthenticationError: If authentication fails
+            CommandError: If parameters are missing or invalid
+
+        Examples:
+            >>> mc.shape("sphere", block="glass", x=0, y=100, z=0, radius=20, hollow=True)
+            >>> mc.shape("cylinder", x=50, y=64, z=0, radius=6, height=30,
+            ...          pattern=[{"block": "stone_bricks", "weight": 3}, "mossy_stone_bricks"],
+            ...          thickness=1)
+            >>> mc.shape("line", block="gold_block", x1=0, y1=64, z1=0, x2=40, y2=90, z2=12, radius=1)
+        """
+        params = {"type": type}
+
+        values = {
+            "block": block, "pattern": pattern,
+            "x": x, "y": y, "z": z,
+            "radius": radius, "radii": radii, "height": height, "axis": axis,
+            "x1": x1, "y1": y1, "z1": z1, "x2": x2, "y2": y2, "z2": z2,
+            "hollow": hollow, "thickness": thickness, "seed": seed, "physics": physics
+        }
+        for key, value in values.items():
+            if value is not None:
+                params[key] = value
+
+        return self._send_command("shape", params)
+
+    def replace(self, x1: int, y1: int, z1: int,
+                x2: int, y2: int, z2: int,
+                from_blocks, block: str = None, pattern: List = None,
+                seed: int = None, physics: str = None) -> int:
+        """Replace matching blocks in a region without transferring the region
+
+        The server tests every position against the matcher and writes only
+        the positions that match.
+
+        Args:
+            x1, y1, z1: First corner of the region
+            x2, y2, z2: Second corner of the region
+            from_blocks: Matcher: a block ("stone"), a block tag ("#logs"), a
+                partial state ("oak_stairs[half=top]"), a list of those, or a
+                single term prefixed with "!" to match everything else
+            block: Replacement block spec
+            pattern: Weighted replacement instead of block, e.g.
+                ["stone_bricks", {"block": "cracked_stone_bricks", "weight": 2}]
+            seed: Seed for the weighted pattern
+            physics: Optional physics mode: "none" (default), "full" or "deferred"
+
+        Returns:
+            Number of blocks replaced
+
+        Raises:
+            ConnectionError: If connection fails
+            AuthenticationError: If authentication fails
+            CommandError: If the matcher or block is invalid
+
+        Example:
+            >>> mc.replace(0, 0, 0, 100, 80, 100, "stone", block="stone_bricks")
+            48211
+            >>> mc.replace(0, 0, 0, 100, 80, 100, "#leaves", block="air")
+        """
+        params = {
+            "x1": x1,
+            "y1": y1,
+            "z1": z1,
+            "x2": x2,
+            "y2": y2,
+            "z2": z2,
+            "from": from_blocks
+        }
+
+        if block is not None:
+            params["block"] = block
+        if pattern is not None:
+            params["pattern"] = pattern
+        if seed is not None:
+            params["seed"] = seed
+        if physics is not None:
+            params["physics"] = physics
+
+        return self._send_command("replace", params)
+
+    def maskFill(self, x1: int, y1: int, z1: int,
+                 x2: int, y2: int, z2: int,
+                 mask, block: str = None, pattern: List = None,
+                 offset: List[int] = None, seed: int = None,
+                 physics: str = None) -> int:
+        """Fill the positions in a region where a mask matches
+
+        Unlike replace, the mask can be tested at a neighboring position, for
+        example one block below to place something on top of matching blocks.
+
+        Args:
+            x1, y1, z1: First corner of the region
+            x2, y2, z2: Second corner of the region
+            mask: Matcher, in the same forms as replace's from_blocks
+            block: Block spec to write
+            pattern: Weighted mix to write instead of block
+            offset: Optional [dx, dy, dz] where the mask is tested, relative
+                to each position (default [0, 0, 0])
+            seed: Seed for the weighted pattern
+            physics: Optional physics mode: "none" (default), "full" or "deferred"
+
+        Returns:
+            Number of blocks written
+
+        Raises:
+            ConnectionError: If connection fails
+            AuthenticationError: If authentication fails
+            CommandError: If the mask or block is invalid
+
+        Example:
+            >>> # Scatter flowers on every grass block in the area
+            >>> mc.maskFill(0, 65, 0, 64, 65, 64, "grass_block", offset=[0, -1, 0],
+            ...             pattern=[{"block": "air", "weight": 8}, "poppy", "dandelion"])
+        """
+        params = {
+            "x1": x1,
+            "y1": y1,
+            "z1": z1,
+            "x2": x2,
+            "y2": y2,
+            "z2": z2,
+            "mask": mask
+        }
+
+        if block is not None:
+            params["block"] = block
+        if pattern is not None:
+            params["pattern"] = pattern
+        if offset is not None:
+            params["offset"] = offset
+        if seed is not None:
+            params["seed"] = seed
+        if physics is not None:
+            params["physics"] = physics
+
+        return self._send_command("mask_fill", params)
+
+    def regionHash(self, x1: int, y1: int, z1: int,
+                   x2: int, y2: int, z2: int) -> List[dict]:
+        """Get a 64-bit hash of every 16x16x16 section overlapping a region
+
+        Hashes are built from block states, so they stay the same across
+        server restarts. Compare them with earlier results and re-read only
+        the sections whose hash changed.
+
+        Args:
+            x1, y1, z1: First corner of the region
+            x2, y2, z2: Second corner of the region
+
+        Returns:
+            List of dicts with the section coordinates x, y, z (block
+            coordinates divided by 16) and hash (16 hex digits). Sections of
+            chunks that are not loaded are left out rather than loaded.
+
+        Raises:
+            ConnectionError: If connection fails
+            AuthenticationError: If authentication fails
+            CommandError: If the region is too large
+
+        Example:
+            >>> before = {(s["x"], s["y"], s["z"]): s["hash"]
+            ...           for s in mc.regionHash(0, 0, 0, 127, 127, 127)}
+            >>> after = mc.regionHash(0, 0, 0, 127, 127, 127)
+            >>> changed = [s for s in after if before.get((s["x"], s["y"], s["z"])) != s["hash"]]
+        """
+        params = {
+            "x1": x1,
+            "y1": y1,
+            "z1": z1,
+            "x2": x2,
+            "y2": y2,
+            "z2": z2
+        }
+        return self._send_command("region_hash", params)["sections"]
+
+    def findBlocks(self, x1: int, y1: int, z1: int,
+                   x2: int, y2: int, z2: int,
+                   match, limit: int = None,
+                   group_by_chunk: bool = False) -> dict:
+        """Find the positions of matching blocks in a region
+
+        The server scans chunk snapshots in parallel and sends only the
+        matching positions, packed a few bytes each.
+
+        Args:
+            x1, y1, z1: First corner of the region
+            x2, y2, z2: Second corner of the region
+            match: Matcher, in the same forms as replace's from_blocks
+                (block, "#tag", "block[state=value]", a list, or "!..." to negate)
+            limit: Optional maximum number of positions to return
+            group_by_chunk: Group the positions by chunk
+
+        Returns:
+            Dict with "truncated" (True when more than limit blocks matched),
+            "unloaded_chunks" (chunks not searched because they are not
+            loaded) and either "blocks", a list of (x, y, z) tuples, or with
+            group_by_chunk "chunks", a dict mapping (chunk_x, chunk_z) to such lists
+
+        Raises:
+            ConnectionError: If connection fails
+            AuthenticationError: If authentication fails
+            CommandError: If the matcher is invalid or the region is too large
+
+        Example:
+            >>> found = mc.findBlocks(-128, -64, -128, 127, 64, 127, ["chest", "spawner"])
+            >>> for x, y, z in found["blocks"]:
+            ...     print(x, y, z)
+        """
+        params = {
+            "x1": x1,
+            "y1": y1,
+            "z1": z1,
+            "x2": x2,
+            "y2": y2,
+            "z2": z2,
+            "match": match
+        }
+
+        if limit is not None:
+            params["limit"] = limit
+        if group_by_chunk:
+            params["group_by_chunk"] = True
+
+        result = self._send_command("find_blocks", params)
+        x, y, z = result["x"], result["y"], result["z"]
+        found = {"truncated": result["truncated"], "unloaded_chunks": result["unloaded_chunks"]}
+        if group_by_chunk:
+            found["chunks"] = {(chunk["x"], chunk["z"]): _unpack_positions(chunk["blocks"], x, y, z)
+                               for chunk in result["chunks"]}
+        else:
+            found["blocks"] = _unpack_positions(result["blocks"], x, y, z)
+        return found
+
+    def getBlockEntities(self, x1: int, y1: int, z1: int,
+                         x2: int, y2: int, z2: int) -> List[dict]:
+        """Read the block entities in a region
+
+        Covers custom names, container contents, both sides of signs, banner
+        patterns, skull owners and spawner settings. The server sends each
+        distinct item once; this method expands the slots again. Chunks
+        that are not loaded are skipped.
+
+        Args:
+            x1, y1, z1: First corner of the region
+            x2, y2, z2: Second corner of the region
+
+        Returns:
+            List of dicts with "x", "y", "z" and "type", plus the fields that
+            apply: "name", "items" (list of {"slot", "item", "amount"}, where
+            item is a spec like 'minecraft:diamond_sword[enchantments={...}]'),
+            "front"/"back" ({"lines", "color", "glowing"}), "waxed",
+            "patterns" ([{"pattern", "color"}]), "owner" ({"uuid", "name",
+            "skin"}), or the spawner fields "entity", "delay", "min_delay",
+            "max_delay", "spawn_count", "spawn_range", "max_nearby",
+            "player_range"
+
+        Raises:
+            ConnectionError: If connection fails
+            AuthenticationError: If authentication fails
+            CommandError: If the region is too large
+
+        Example:
+            >>> for entity in mc.getBlockEntities(0, 0, 0, 100, 100, 100):
+            ...     if "items" in entity:
+            ...         print(entity["x"], entity["y"], entity["z"], len(entity["items"]))
+        """
+        params = {
+            "x1": x1, "y1": y1, "z1": z1,
+            "x2": x2, "y2": y2, "z2": z2
+        }
+        result = self._send_command("get_block_entities", params)
+
+        specs = result["items"]
+        entities = result["block_entities"]
+        for entity in entities:
+            if "items" in entity:
+                entity["items"] = [{"slot": slot, "item": specs[index], "amount": amount}
+                                   for slot, index, amount in entity["items"]]
+        return entities
+
+    def setBlockEntities(self, block_entities: List[dict]) -> int:
+        """Write block entity contents in the format getBlockEntities() returns
+
+        All records are applied in one pass on the server. Only the given
+        fields change, except "items", which replaces the whole inventory.
+        Identical items are sent once. Nothing is written if any record is
+        invalid, and the change can be undone with undo().
+
+        Args:
+            block_entities: List of dicts with "x", "y", "z" and the fields
+                to set; "items" entries are {"slot", "item", "amount"}
+
+        Returns:
+            Number of block entities written
+
+        Raises:
+            ConnectionError: If connection fails
+            AuthenticationError: If authentication fails
+            CommandError: If a position has no block entity or a field does
+                not fit it
+
+        Example:
+            >>> loot = [{"slot": 13, "item": "golden_apple", "amount": 2}]
+            >>> mc.setBlockEntities([{"x": x, "y": 64, "z": 0, "items": loot, "name": "Loot"}
+            ...                      for x in range(0, 100, 4)])
+        """
+        specs = []
+        indexes = {}
+        records = []
+        for entity in block_entities:
+            record = dict(entity)
+            if "items" in record:
+                slots = []
+                for item in record["items"]:
+                    spec = item["item"]
+                    if spec not in indexes:
+                        indexes[spec] = len(specs)
+                        specs.append(spec)
+                    slots.append([item["slot"], indexes[spec], item.get("amount", 1)])
+                record["items"] = slots
+            records.append(record)
+
+        params = {
+            "items": specs,
+            "block_entities": records
+        }
+        return self._send_command("set_block_entities", params)
+
+    def regionStats(self, x1: int, y1: int, z1: int,
+                    x2: int, y2: int, z2: int,
+                    layers: bool = False) -> dict:
+        """Count the blocks of each type in a region
+
+        Counting runs in parallel on the server over chunk snapshots, so only
+        the totals are sent back.
+
+        Args:
+            x1, y1, z1: First corner of the region
+            x2, y2, z2: Second corner of the region
+            layers: Also return the counts of every Y layer
+
+        Returns:
+            Dict with "total" (blocks counted), "counts" (block type to
+            count) and "unloaded_chunks" (chunks not counted because they
+            are not loaded). With layers, also "layers": a list of
+            {"y", "counts"} from the bottom layer up. A region outside the
+            world height counts nothing
+
+        Raises:
+            ConnectionError: If connection fails
+            AuthenticationError: If authentication fails
+            CommandError: If the region is too large
+
+        Example:
+            >>> stats = mc.regionStats(0, -64, 0, 127, 320, 127)
+            >>> top = sorted(stats["counts"].items(), key=lambda item: -item[1])[:5]
+        """
+        params = {
+            "x1": x1,
+            "y1": y1,
+            "z1": z1,
+            "x2": x2,
+            "y2": y2,
+            "z2": z2
+        }
+
+        if layers:
+            params["layers"] = True
+
+        return self._send_command("region_stats", params)
+
+    def heightmap(self, x1: int, z1: int, x2: int, z2: int,
+                  type: str = None, materials: bool = False) -> dict:
+        """Get the surface height of every column in an XZ rectangle
+
+        Much cheaper than reading tall regions with getblocks just to find
+        the ground: the server scans chunk snapshots in the background and
+        sends two bytes per column.
+
+        Args:
+            x1, z1: First corner of the rectangle
+            x2, z2: Second corner of the rectangle
+            type: Optional heightmap: "world_surface" (default, highest
+                non-air block), "motion_blocking" (highest solid block or
+                fluid), "motion_blocking_no_leaves" or "ocean_floor"
+                (highest solid block)
+            materials: Also return the block type at each surface position
+
+        Returns:
+            Dict with "x" and "z" (minimum corner) and "heights", a list
+            indexed [x][z] relative to that corner. Columns with no matching
+            block hold the world's minimum height minus one, and columns in
+            chunks that are not loaded hold None. "unloaded_chunks" counts
+            those chunks, which the server does not load just to read them.
+            With materials, also "surface", a list of block types indexed
+            the same way (None where the chunk is not loaded)
+
+        Raises:
+            ConnectionError: If connection fails
+            AuthenticationError: If authentication fails
+            CommandError: If the type is invalid or the rectangle is too large
+
+        Example:
+            >>> hm = mc.heightmap(0, 0, 63, 63, type="motion_blocking")
+            >>> ground = hm["heights"][10][20]
+            >>> mc.setblock(10, ground + 1, 20, "torch")
+        """
+        params = {
+            "x1": x1,
+            "z1": z1,
+            "x2": x2,
+            "z2": z2
+        }
+
+        if type is not None:
+            params["type"] = type
+        if materials:
+            params["materials"] = True
+
+        result = self._send_command("heightmap", params)
+        width, length = result["width"], result["length"]
+        heights = _unpack_grid(result["heights"], width, length)
+        heightmap = {
+            "x": result["x"],
+            "z": result["z"],
+            # -32768 marks columns whose chunk is not loaded
+            "heights": [[None if y == -32768 else y for y in column] for column in heights],
+            "unloaded_chunks": result["unloaded_chunks"]
+        }
+        if "surface" in result:
+            palette = result["palette"]
+            indexes = _unpack_grid(result["surface"], width, length)
+            heightmap["surface"] = [[palette[i] for i in column] for column in indexes]
+        return heightmap
+
+    def undo(self) -> int:
+        """Undo the most recent block edit made on this connection
+
+        setblock, setblocks, fill, edit, clone, paste and schematicLoad are recorded.
+        History belongs to the connection and is lost when it closes.
+
+        Returns:
+            Number of blocks restored
+
+        Raises:
+            ConnectionError: If connection fails
+            AuthenticationError: If authentication fails
+            CommandError: If there is nothing to undo
+
+        Example:
+            >>> mc.fill(0, 64, 0, 10, 70, 10, "tnt")
+            847
+            >>> mc.undo()
+            847
+        """
+        return self._send_command("undo", {})
+
+    def redo(self) -> int:
+        """Redo the most recently undone edit on this connection
+
+        Returns:
+            Number of blocks written
+
+        Raises:
+            ConnectionError: If connection fails
+            AuthenticationError: If authentication fails
+            CommandError: If there is nothing to redo
+
+        Example:
+            >>> mc.undo()
+            847
+            >>> mc.redo()
+            847
+        """
+        return self._send_command("redo", {})
+
     def exec(self, command: str) -> bool:
         """Execute any Minecraft command on the server
 
@@ -1708,8 +2975,8 @@ class MCPyLib:
         params = {"action": action, "x": x, "z": z}
         return self._send_command("forceload", params)
 
-    def damage(self, entity_uuid: str, amount: float,
-               source_uuid: str = None) -> bool:
+    def damage(self, entity_uuid: Union[str, int], amount: float,
+               source_uuid: Union[str, int] = None) -> bool:
         """Deal damage to an entity
 
         Args:
@@ -1805,12 +3072,17 @@ class MCPyLib:
         params = {"objective": objective, "player": player, "score": score}
         return self._send_command("setScore", params)
 
-    def getScore(self, objective: str, player: str) -> int:
+    def getScore(self, objective: str, player: str, fresh: bool = False) -> int:
         """Get a player's score for an objective
 
+        After the first read, the score is watched and later reads are
+        answered from the server's per-tick snapshot.
+
         Args:
             objective: Objective name
             player: Player name or entity name
+            fresh: Read the live world instead of the per-tick snapshot, e.g.
+                right after changing it
 
         Returns:
             Score value
@@ -1825,6 +3097,8 @@ class MCPyLib:
             10
         """
         params = {"objective": objective, "player": player}
+        if fresh:
+            params["fresh"] = True
         return self._send_command("getScore", params)
 
     def setDisplaySlot(self, slot: str, objective: str = None) -> bool:
@@ -1853,11 +3127,11 @@ class MCPyLib:
             params["objective"] = objective
         return self._send_command("setDisplaySlot", params)
 
-    def addTag(self, entity_uuid: str, tag: str) -> bool:
+    def addTag(self, entity_uuid: Union[str, int], tag: str) -> bool:
         """Add a scoreboard tag to an entity
 
         Args:
-            entity_uuid: Entity UUID
+            entity_uuid: Entity UUID or session handle
             tag: Tag string
 
         Returns:
@@ -1876,11 +3150,11 @@ class MCPyLib:
         params = {"uuid": entity_uuid, "tag": tag}
         return self._send_command("addTag", params)
 
-    def removeTag(self, entity_uuid: str, tag: str) -> bool:
+    def removeTag(self, entity_uuid: Union[str, int], tag: str) -> bool:
         """Remove a scoreboard tag from an entity
 
         Args:
-            entity_uuid: Entity UUID
+            entity_uuid: Entity UUID or session handle
             tag: Tag string
 
         Returns:
@@ -1898,11 +3172,16 @@ class MCPyLib:
         params = {"uuid": entity_uuid, "tag": tag}
         return self._send_command("removeTag", params)
 
-    def getTags(self, entity_uuid: str) -> List[str]:
+    def getTags(self, entity_uuid: Union[str, int], fresh: bool = False) -> List[str]:
         """Get all scoreboard tags of an entity
 
+        After the first read, the entity is watched and later reads are
+        answered from the server's per-tick snapshot.
+
         Args:
-            entity_uuid: Entity UUID
+            entity_uuid: Entity UUID or session handle
+            fresh: Read the live world instead of the per-tick snapshot, e.g.
+                right after changing it
 
         Returns:
             List of tag strings
@@ -1917,6 +3196,8 @@ class MCPyLib:
             ['boss', 'enemy']
         """
         params = {"uuid": entity_uuid}
+        if fresh:
+            params["fresh"] = True
         return self._send_command("getTags", params)
 
     def team(self, action: str, name: str = None, members: List[str] = None,
@@ -2009,12 +3290,12 @@ class MCPyLib:
             params["username"] = username
         return self._send_command("bossbar", params)
 
-    def attribute(self, entity_uuid: str, attribute_name: str,
+    def attribute(self, entity_uuid: Union[str, int], attribute_name: str,
                   action: str = "get", value: float = None) -> dict:
         """Get or set entity attributes
 
         Args:
-            entity_uuid: Entity UUID
+            entity_uuid: Entity UUID or session handle
             attribute_name: Attribute name (e.g., "MAX_HEALTH", "MOVEMENT_SPEED", "ATTACK_DAMAGE")
             action: Action ("get" or "set")
             value: Value to set (required for "set" action)
@@ -2239,6 +3520,115 @@ class MCPyLib:
             params["filter_biome"] = filter_biome
         return self._send_command("fillbiome", params)
 
+    def getbiomes(self, x1: int, y1: int, z1: int,
+                  x2: int, y2: int, z2: int) -> dict:
+        """Get the biomes of a region
+
+        Minecraft stores biomes per 4x4x4 cell, so this returns one biome per
+        cell rather than per block. The result can be modified and written
+        back with setbiomes().
+
+        Args:
+            x1, y1, z1: First corner of the region
+            x2, y2, z2: Second corner of the region
+
+        Returns:
+            Dict with "x", "y", "z" (block coordinates of the minimum cell
+            corner, multiples of 4), "biomes", a 3D list of biome names
+            indexed [x][y][z] by cell, and "unloaded_chunks". Cells in chunks
+            that are not loaded are None, which setbiomes() leaves unchanged;
+            "unloaded_chunks" counts those chunks
+
+        Raises:
+            ConnectionError: If connection fails
+            AuthenticationError: If authentication fails
+            CommandError: If the region is too large or outside the world
+
+        Example:
+            >>> area = mc.getbiomes(0, 60, 0, 63, 75, 63)
+            >>> area["biomes"][0][0][0]
+            'minecraft:plains'
+        """
+        params = {
+            "x1": x1, "y1": y1, "z1": z1,
+            "x2": x2, "y2": y2, "z2": z2
+        }
+        result = self._send_command("getbiomes", params)
+
+        width, height, length = result["width"], result["height"], result["length"]
+        palette = result["palette"]
+        raw = base64.b64decode(result["biomes"])
+        indexes = []
+        value = shift = 0
+        for byte in raw:
+            value |= (byte & 0x7F) << shift
+            if byte & 0x80:
+                shift += 7
+            else:
+                indexes.append(value)
+                value = shift = 0
+
+        biomes = [[[palette[indexes[(y * length + z) * width + x]] for z in range(length)]
+                   for y in range(height)] for x in range(width)]
+        return {"x": result["x"], "y": result["y"], "z": result["z"], "biomes": biomes,
+                "unloaded_chunks": result["unloaded_chunks"]}
+
+    def setbiomes(self, x: int, y: int, z: int, biomes: List[List[List]]) -> int:
+        """Set the biomes of a region, one per 4x4x4 cell
+
+        Takes the same layout getbiomes() returns. The server writes the cells
+        chunk by chunk within its tick budget and resends each changed chunk
+        to players once.
+
+        Args:
+            x, y, z: Block coordinates of the minimum cell corner (rounded
+                down to a multiple of 4)
+            biomes: 3D list of biome names indexed [x][y][z] by cell; None
+                leaves a cell unchanged
+
+        Returns:
+            Number of cells whose biome changed
+
+        Raises:
+            ConnectionError: If connection fails
+            AuthenticationError: If authentication fails
+            CommandError: If a biome is invalid
+
+        Example:
+            >>> area = mc.getbiomes(0, 60, 0, 63, 75, 63)
+            >>> for column in area["biomes"]:
+            ...     for layer in column:
+            ...         layer[:] = ["minecraft:desert" if b == "minecraft:plains" else None for b in layer]
+            >>> mc.setbiomes(area["x"], area["y"], area["z"], area["biomes"])
+        """
+        width = len(biomes)
+        height = len(biomes[0]) if width else 0
+        length = len(biomes[0][0]) if height else 0
+
+        palette = []
+        indexes = {}
+        data = bytearray()
+        for cy in range(height):
+            for cz in range(length):
+                for cx in range(width):
+                    biome = biomes[cx][cy][cz]
+                    if biome not in indexes:
+                        indexes[biome] = len(palette)
+                        palette.append(biome)
+                    index = indexes[biome]
+                    while index & ~0x7F:
+                        data.append((index & 0x7F) | 0x80)
+                        index >>= 7
+                    data.append(index)
+
+        params = {
+            "x": x, "y": y, "z": z,
+            "width": width, "height": height, "length": length,
+            "palette": palette,
+            "biomes": base64.b64encode(bytes(data)).decode("ascii")
+        }
+        return self._send_command("setbiomes", params)
+
     def placeFeature(self, feature: str, x: int = None, y: int = None,
                      z: int = None) -> bool:
         """Place a configured feature at a location
@@ -2373,7 +3763,7 @@ class MCPyLib:
             params["z"] = z
         return self._send_command("placeTemplate", params)
 
-    def ride(self, passenger_uuid: str, vehicle_uuid: str = None) -> bool:
+    def ride(self, passenger_uuid: Union[str, int], vehicle_uuid: Union[str, int] = None) -> bool:
         """Make an entity ride another entity, or dismount
 
         Args:
@@ -2455,9 +3845,15 @@ class MCPyLib:
         params = {"mode": mode}
         return self._send_command("defaultgamemode", params)
 
-    def list(self) -> dict:
+    def list(self, fresh: bool = False) -> dict:
         """Get list of online players
 
+        Answered from the server's per-tick snapshot, at most one tick old.
+
+        Args:
+            fresh: Read the live world instead of the per-tick snapshot, e.g.
+                right after changing it
+
         Returns:
             Dictionary with online_count, max_players, and players list
 
@@ -2469,4 +3865,26 @@ class MCPyLib:
             >>> mc.list()
             {'online_count': 2, 'max_players': 20, 'players': [{'name': 'Steve', ...}]}
         """
-        return self._send_command("list", {})
+        return self._send_command("list", {"fresh": True} if fresh else {})
+
+    def players(self) -> List[dict]:
+        """Get the state of every online player from the per-tick snapshot
+
+        Answered without waiting for the server's main thread; last_tick
+        holds the tick the data was read at.
+
+        Returns:
+            List of dicts with name, uuid, world, x, y, z, yaw, pitch,
+            gamemode and health
+
+        Raises:
+            ConnectionError: If connection fails
+            AuthenticationError: If authentication fails
+
+        Example:
+            >>> for p in mc.players():
+            ...     print(p["name"], p["health"], (p["x"], p["y"], p["z"]))
+            >>> mc.last_tick
+            48213
+        """
+        return self._send_command("players", {})
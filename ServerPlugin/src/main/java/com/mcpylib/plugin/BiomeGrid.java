@@ -0,0 +1,180 @@
+package com.mcpylib.plugin;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.NamespacedKey;
+import org.bukkit.Registry;
+import org.bukkit.block.Biome;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Biomes of a box at the game's 4x4x4 cell resolution: a palette plus one index per cell, stored
+// (y * length + z) * width + x. Cell coordinates are block coordinates divided by 4.
+// On the wire the indices are base64 varints; a null palette entry marks cells to leave unchanged.
+public class BiomeGrid {
+
+    private final int cellX;
+    private final int cellY;
+    private final int cellZ;
+    private final int width;
+    private final int height;
+    private final int length;
+    private final List<Biome> palette;
+    private final int[] cells;
+
+    private BiomeGrid(int cellX, int cellY, int cellZ, int width, int height, int length,
+                      List<Biome> palette, int[] cells) {
+        this.cellX = cellX;
+        this.cellY = cellY;
+        this.cellZ = cellZ;
+        this.width = width;
+        this.height = height;
+        this.length = length;
+        this.palette = palette;
+        this.cells = cells;
+    }
+
+    // Reads every cell overlapping the snapshot's box; the snapshot must include biomes. Cells in chunks
+    // the snapshot left out get a null palette entry, so writing the grid back leaves them unchanged.
+    // Any thread.
+    public static BiomeGrid fromSnapshot(RegionSnapshot snapshot) {
+        int cellX = snapshot.getMinX() >> 2;
+        int cellY = snapshot.getMinY() >> 2;
+        int cellZ = snapshot.getMinZ() >> 2;
+        int width = (snapshot.getMaxX() >> 2) - cellX + 1;
+        int height = (snapshot.getMaxY() >> 2) - cellY + 1;
+        int length = (snapshot.getMaxZ() >> 2) - cellZ + 1;
+
+        List<Biome> palette = new ArrayList<>();
+        Map<Biome, Integer> indexes = new HashMap<>();
+        int[] cells = new int[width * height * length];
+        for (int z = 0; z < length; z++) {
+            for (int x = 0; x < width; x++) {
+                int blockX = (cellX + x) << 2;
+                int blockZ = (cellZ + z) << 2;
+                ChunkSnapshot chunk = snapshot.chunkAt(blockX, blockZ);
+                for (int y = 0; y < height; y++) {
+                    Biome biome = chunk == null ? null : chunk.getBiome(blockX & 15, (cellY + y) << 2, blockZ & 15);
+                    Integer index = indexes.get(biome);
+                    if (index == null) {
+                        index = palette.size();
+                        indexes.put(biome, index);
+                        palette.add(biome);
+                    }
+                    cells[(y * length + z) * width + x] = index;
+                }
+            }
+        }
+        return new BiomeGrid(cellX, cellY, cellZ, width, height, length, palette, cells);
+    }
+
+    // Reads x, y, z (block coordinates of the minimum corner), width, height, length (in cells),
+    // palette and biomes
+    public static BiomeGrid fromParams(JsonObject params) {
+        if (!params.has("x") || !params.has("y") || !params.has("z") || !params.has("width") ||
+            !params.has("height") || !params.has("length") || !params.has("palette") || !params.has("biomes")) {
+            throw new IllegalArgumentException("Missing parameters: x, y, z, width, height, length, palette, biomes");
+        }
+        int width = params.get("width").getAsInt();
+        int height = params.get("height").getAsInt();
+        int length = params.get("length").getAsInt();
+        if (width <= 0 || height <= 0 || length <= 0) {
+            throw new IllegalArgumentException("Invalid size: " + width + "x" + height + "x" + length);
+        }
+
+        JsonArray entries = params.getAsJsonArray("palette");
+        List<Biome> palette = new ArrayList<>();
+        for (JsonElement entry : entries) {
+            palette.add(entry.isJsonNull() ? null : resolve(entry.getAsString()));
+        }
+
+        ByteBuffer in = ByteBuffer.wrap(Base64.getDecoder().decode(params.get("biomes").getAsString()));
+        int[] cells = new int[Math.multiplyExact(Math.multiplyExact(width, height), length)];
+        for (int i = 0; i < cells.length; i++) {
+            int index = VarInts.read(in, "biomes");
+            if (index < 0 || index >= palette.size()) {
+                throw new IllegalArgumentException("Invalid palette index in cell " + i + ": " + index);
+            }
+            cells[i] = index;
+        }
+        if (in.hasRemaining()) {
+            throw new IllegalArgumentException("Malformed biomes: expected " + cells.length + " cells");
+        }
+
+        return new BiomeGrid(params.get("x").getAsInt() >> 2, params.get("y").getAsInt() >> 2,
+            params.get("z").getAsInt() >> 2, width, height, length, palette, cells);
+    }
+
+    public static Biome resolve(String name) {
+        NamespacedKey key = name.contains(":") ? NamespacedKey.fromString(name.toLowerCase())
+            : NamespacedKey.minecraft(name.toLowerCase());
+        Biome biome = key == null ? null : Registry.BIOME.get(key);
+        if (biome == null) {
+            throw new IllegalArgumentException("Invalid biome: " + name);
+        }
+        return biome;
+    }
+
+    public Map<String, Object> toResponse() {
+        List<String> names = new ArrayList<>();
+        for (Biome biome : palette) {
+            names.add(biome == null ? null : biome.getKey().toString());
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(cells.length);
+        for (int index : cells) {
+            VarInts.write(out, index);
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("x", cellX << 2);
+        result.put("y", cellY << 2);
+        result.put("z", cellZ << 2);
+        result.put("width", width);
+        result.put("height", height);
+        result.put("length", length);
+        result.put("palette", names);
+        result.put("biomes", Base64.getEncoder().encodeToString(out.toByteArray()));
+        return result;
+    }
+
+    // The biome for a cell, or null to leave it unchanged
+    public Biome get(int x, int y, int z) {
+        return palette.get(cells[(y * length + z) * width + x]);
+    }
+
+    public int getCellX() {
+        return cellX;
+    }
+
+    public int getCellY() {
+        return cellY;
+    }
+
+    public int getCellZ() {
+        return cellZ;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public int getVolume() {
+        return cells.length;
+    }
+}
@@ -0,0 +1,128 @@
+package com.mcpylib.plugin;
+
+import org.bukkit.block.data.BlockData;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Palette-encoded block writes bucketed by chunk section.
+// Each entry packs (paletteIndex << 12 | localIndex); later writes to a position win.
+public class BlockBuffer implements EditSource {
+
+    private final List<BlockData> palette = new ArrayList<>();
+    private final Map<BlockData, Integer> paletteIndex = new HashMap<>();
+    private final Map<Long, Section> sections = new HashMap<>();
+    private final Map<Long, TileData> tiles = new HashMap<>();
+    private long size;
+
+    private static final class Section {
+        final IntList entries = new IntList();
+        final BitSet mask = new BitSet(4096);
+    }
+
+    public void set(int x, int y, int z, BlockData data) {
+        set(x, y, z, data, null);
+    }
+
+    public void set(int x, int y, int z, BlockData data, TileData tile) {
+        Integer index = paletteIndex.get(data);
+        if (index == null) {
+            index = palette.size();
+            palette.add(data);
+            paletteIndex.put(data, index);
+        }
+
+        Section section = sections.computeIfAbsent(SectionKey.ofBlock(x, y, z), k -> new Section());
+        int local = SectionKey.localIndex(x, y, z);
+        section.entries.add(index << 12 | local);
+        section.mask.set(local);
+        size++;
+
+        if (tile != null) {
+            tiles.put(blockKey(x, y, z), tile);
+        } else if (!tiles.isEmpty()) {
+            tiles.remove(blockKey(x, y, z));
+        }
+    }
+
+    // Attaches block entity contents to a position that is already written
+    public void setTile(int x, int y, int z, TileData tile) {
+        if (contains(x, y, z)) {
+            tiles.put(blockKey(x, y, z), tile);
+        }
+    }
+
+    public List<BlockData> getPalette() {
+        return palette;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Section-aligned bounding box of every write: {minX, minY, minZ, maxX, maxY, maxZ}
+    public int[] bounds() {
+        int[] bounds = {Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE,
+            Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE};
+        for (long key : sections.keySet()) {
+            bounds[0] = Math.min(bounds[0], SectionKey.x(key) << 4);
+            bounds[1] = Math.min(bounds[1], SectionKey.y(key) << 4);
+            bounds[2] = Math.min(bounds[2], SectionKey.z(key) << 4);
+            bounds[3] = Math.max(bounds[3], (SectionKey.x(key) << 4) + 15);
+            bounds[4] = Math.max(bounds[4], (SectionKey.y(key) << 4) + 15);
+            bounds[5] = Math.max(bounds[5], (SectionKey.z(key) << 4) + 15);
+        }
+        return bounds;
+    }
+
+    @Override
+    public long[] sections() {
+        long[] keys = new long[sections.size()];
+        int i = 0;
+        for (Long key : sections.keySet()) {
+            keys[i++] = key;
+        }
+        Arrays.sort(keys);
+        return keys;
+    }
+
+    @Override
+    public void write(long sectionKey, BlockSink sink) {
+        Section section = sections.get(sectionKey);
+        if (section == null) {
+            return;
+        }
+
+        int baseX = SectionKey.x(sectionKey) << 4;
+        int baseY = SectionKey.y(sectionKey) << 4;
+        int baseZ = SectionKey.z(sectionKey) << 4;
+        IntList entries = section.entries;
+        for (int i = 0; i < entries.size(); i++) {
+            int entry = entries.get(i);
+            int local = entry & 0xFFF;
+            int x = baseX + (local & 15);
+            int y = baseY + (local >> 8);
+            int z = baseZ + ((local >> 4) & 15);
+            TileData tile = tiles.isEmpty() ? null : tiles.get(blockKey(x, y, z));
+            sink.accept(x, y, z, palette.get(entry >>> 12), tile);
+        }
+    }
+
+    @Override
+    public boolean contains(int x, int y, int z) {
+        Section section = sections.get(SectionKey.ofBlock(x, y, z));
+        return section != null && section.mask.get(SectionKey.localIndex(x, y, z));
+    }
+
+    public long size() {
+        return size;
+    }
+
+    static long blockKey(int x, int y, int z) {
+        return ((long) x & 0x3FFFFFFL) << 38 | ((long) z & 0x3FFFFFFL) << 12 | ((long) y & 0xFFFL);
+    }
+}
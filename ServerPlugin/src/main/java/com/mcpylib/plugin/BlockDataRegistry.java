@@ -0,0 +1,128 @@
+package com.mcpylib.plugin;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.block.data.BlockData;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interned cache of parsed block specs such as {@code minecraft:oak_stairs[facing=north,half=top]}.
+ *
+ * Returned BlockData instances are shared between callers and must be treated as read-only;
+ * clone() them before mutating.
+ */
+public final class BlockDataRegistry {
+
+    // Upper bound on cached spellings so arbitrary client input cannot grow the map forever
+    private static final int MAX_ENTRIES = 65536;
+
+    private static final Map<String, BlockData> cache = new ConcurrentHashMap<>();
+
+    private BlockDataRegistry() {
+    }
+
+    public static void prewarm() {
+        for (Material material : Material.values()) {
+            if (!material.isBlock() || material.isLegacy()) {
+                continue;
+            }
+            try {
+                BlockData data = material.createBlockData();
+                cache.put(material.getKey().toString(), data);
+                cache.putIfAbsent(data.getAsString(), data);
+            } catch (Exception e) {
+                // Experimental or otherwise unavailable block types are resolved lazily
+            }
+        }
+    }
+
+    public static int size() {
+        return cache.size();
+    }
+
+    public static BlockData resolve(String spec) {
+        String key = normalize(spec);
+        BlockData cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        BlockData parsed;
+        try {
+            parsed = Bukkit.createBlockData(key);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid block type: " + spec);
+        }
+
+        // Share one instance per distinct state, whichever spelling reached it first
+        BlockData canonical = cache.computeIfAbsent(parsed.getAsString(), k -> parsed.clone());
+        if (cache.size() < MAX_ENTRIES) {
+            cache.putIfAbsent(key, canonical);
+        }
+        return canonical;
+    }
+
+    // States in brackets on block are kept; blockState adds to them and wins where both set a property
+    public static BlockData resolve(String block, JsonObject blockState) {
+        BlockData base = resolve(block);
+        if (blockState == null || blockState.size() == 0) {
+            return base;
+        }
+
+        Map<String, String> states = new LinkedHashMap<>();
+        String key = normalize(block);
+        int bracket = key.indexOf('[');
+        if (bracket >= 0 && key.endsWith("]")) {
+            for (String state : key.substring(bracket + 1, key.length() - 1).split(",")) {
+                int equals = state.indexOf('=');
+                if (equals > 0) {
+                    states.put(state.substring(0, equals).trim(), state.substring(equals + 1).trim());
+                }
+            }
+        }
+        for (Map.Entry<String, JsonElement> entry : blockState.entrySet()) {
+            states.put(entry.getKey().toLowerCase(Locale.ROOT), entry.getValue().getAsString().toLowerCase(Locale.ROOT));
+        }
+
+        StringBuilder spec = new StringBuilder(base.getMaterial().getKey().toString()).append('[');
+        boolean first = true;
+        for (Map.Entry<String, String> entry : states.entrySet()) {
+            if (!first) {
+                spec.append(',');
+            }
+            spec.append(entry.getKey()).append('=').append(entry.getValue());
+            first = false;
+        }
+        spec.append(']');
+
+        try {
+            return resolve(spec.toString());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid block state for " + block + ": " + spec);
+        }
+    }
+
+    public static BlockData intern(BlockData data) {
+        return cache.computeIfAbsent(data.getAsString(), k -> data.clone());
+    }
+
+    public static String toSpec(BlockData data) {
+        return data.getAsString();
+    }
+
+    private static String normalize(String spec) {
+        String key = spec.trim().toLowerCase(Locale.ROOT);
+        int bracket = key.indexOf('[');
+        int colon = key.indexOf(':');
+        if (colon < 0 || (bracket >= 0 && colon > bracket)) {
+            key = "minecraft:" + key;
+        }
+        return key;
+    }
+}
@@ -0,0 +1,324 @@
+package com.mcpylib.plugin;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.bukkit.Bukkit;
+import org.bukkit.DyeColor;
+import org.bukkit.NamespacedKey;
+import org.bukkit.Nameable;
+import org.bukkit.Registry;
+import org.bukkit.block.Banner;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.Container;
+import org.bukkit.block.CreatureSpawner;
+import org.bukkit.block.Sign;
+import org.bukkit.block.Skull;
+import org.bukkit.block.banner.Pattern;
+import org.bukkit.block.banner.PatternType;
+import org.bukkit.block.sign.Side;
+import org.bukkit.block.sign.SignSide;
+import org.bukkit.entity.EntityType;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.profile.PlayerProfile;
+
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+// Reads and writes the contents of common block entities as JSON: custom names, container items,
+// both sides of signs, banner patterns, skull owners and spawner settings. Items are shared through
+// a table of item specs ("minecraft:diamond_sword[enchantments={...}]"), so identical stacks are sent
+// once and slots refer to them by index. Main thread only.
+public final class BlockEntities {
+
+    private BlockEntities() {
+    }
+
+    // De-duplicates item specs while block entities are described
+    public static final class ItemTable {
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<String> specs = new ArrayList<>();
+
+        int indexOf(ItemStack item) {
+            String spec = itemSpec(item);
+            Integer index = indexes.get(spec);
+            if (index == null) {
+                index = specs.size();
+                indexes.put(spec, index);
+                specs.add(spec);
+            }
+            return index;
+        }
+
+        public List<String> getSpecs() {
+            return specs;
+        }
+    }
+
+    // Item type plus its components, in the same syntax as /give; the stack size is not included
+    static String itemSpec(ItemStack item) {
+        String spec = item.getType().getKey().toString();
+        ItemMeta meta = item.hasItemMeta() ? item.getItemMeta() : null;
+        String components = meta == null ? "" : meta.getAsComponentString();
+        return components.isEmpty() || components.equals("[]") ? spec : spec + components;
+    }
+
+    static ItemStack parseItem(String spec, int amount) {
+        ItemStack item;
+        try {
+            item = Bukkit.getItemFactory().createItemStack(spec.contains(":") || spec.contains("[")
+                ? spec : "minecraft:" + spec);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid item: " + spec);
+        }
+        item.setAmount(amount);
+        return item;
+    }
+
+    // Null when the block entity has nothing this class describes
+    public static Map<String, Object> describe(BlockState state, ItemTable items) {
+        Map<String, Object> entity = new HashMap<>();
+
+        if (state instanceof Nameable && ((Nameable) state).getCustomName() != null) {
+            entity.put("name", ((Nameable) state).getCustomName());
+        }
+
+        if (state instanceof Container) {
+            // [slot, item index, amount] for every occupied slot
+            Inventory inventory = ((Container) state).getSnapshotInventory();
+            List<int[]> slots = new ArrayList<>();
+            for (int slot = 0; slot < inventory.getSize(); slot++) {
+                ItemStack item = inventory.getItem(slot);
+                if (item != null && !item.getType().isAir()) {
+                    slots.add(new int[] {slot, items.indexOf(item), item.getAmount()});
+                }
+            }
+            entity.put("items", slots);
+        }
+
+        if (state instanceof Sign) {
+            Sign sign = (Sign) state;
+            entity.put("front", describeSide(sign.getSide(Side.FRONT)));
+            entity.put("back", describeSide(sign.getSide(Side.BACK)));
+            entity.put("waxed", sign.isWaxed());
+        }
+
+        if (state instanceof Banner) {
+            List<Map<String, Object>> patterns = new ArrayList<>();
+            for (Pattern pattern : ((Banner) state).getPatterns()) {
+                Map<String, Object> entry = new HashMap<>();
+                entry.put("pattern", pattern.getPattern().getKey().toString());
+                entry.put("color", pattern.getColor().name().toLowerCase(Locale.ROOT));
+                patterns.add(entry);
+            }
+            entity.put("patterns", patterns);
+        }
+
+        if (state instanceof Skull) {
+            PlayerProfile profile = ((Skull) state).getOwnerProfile();
+            if (profile != null) {
+                Map<String, Object> owner = new HashMap<>();
+                if (profile.getUniqueId() != null) {
+                    owner.put("uuid", profile.getUniqueId().toString());
+                }
+                if (profile.getName() != null) {
+                    owner.put("name", profile.getName());
+                }
+                if (profile.getTextures().getSkin() != null) {
+                    owner.put("skin", profile.getTextures().getSkin().toString());
+                }
+                entity.put("owner", owner);
+            }
+        }
+
+        if (state instanceof CreatureSpawner) {
+            CreatureSpawner spawner = (CreatureSpawner) state;
+            if (spawner.getSpawnedType() != null) {
+                entity.put("entity", spawner.getSpawnedType().getKey().toString());
+            }
+            entity.put("delay", spawner.getDelay());
+            entity.put("min_delay", spawner.getMinSpawnDelay());
+            entity.put("max_delay", spawner.getMaxSpawnDelay());
+            entity.put("spawn_count", spawner.getSpawnCount());
+            entity.put("spawn_range", spawner.getSpawnRange());
+            entity.put("max_nearby", spawner.getMaxNearbyEntities());
+            entity.put("player_range", spawner.getRequiredPlayerRange());
+        }
+
+        return entity.isEmpty() ? null : entity;
+    }
+
+    private static Map<String, Object> describeSide(SignSide side) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("lines", side.getLines());
+        result.put("color", side.getColor() == null ? "black" : side.getColor().name().toLowerCase(Locale.ROOT));
+        result.put("glowing", side.isGlowingText());
+        return result;
+    }
+
+    // Applies the fields given in a description to the state; does not call update().
+    // Fields that do not fit the block entity are rejected so typos do not go unnoticed.
+    public static void apply(BlockState state, JsonObject entity, List<String> items) {
+        if (entity.has("name")) {
+            if (!(state instanceof Nameable)) {
+                throw new IllegalArgumentException("Block entity has no custom name");
+            }
+            ((Nameable) state).setCustomName(entity.get("name").isJsonNull() ? null : entity.get("name").getAsString());
+        }
+
+        if (entity.has("items")) {
+            if (!(state instanceof Container)) {
+                throw new IllegalArgumentException("Block entity is not a container");
+            }
+            Inventory inventory = ((Container) state).getSnapshotInventory();
+            inventory.clear();
+            for (JsonElement element : entity.getAsJsonArray("items")) {
+                JsonArray slot = element.getAsJsonArray();
+                int index = slot.get(0).getAsInt();
+                int item = slot.get(1).getAsInt();
+                if (index < 0 || index >= inventory.getSize()) {
+                    throw new IllegalArgumentException("Invalid slot: " + index);
+                }
+                if (item < 0 || item >= items.size()) {
+                    throw new IllegalArgumentException("Invalid item index: " + item);
+                }
+                inventory.setItem(index, parseItem(items.get(item), slot.size() > 2 ? slot.get(2).getAsInt() : 1));
+            }
+        }
+
+        if (entity.has("front") || entity.has("back") || entity.has("waxed")) {
+            if (!(state instanceof Sign)) {
+                throw new IllegalArgumentException("Block entity is not a sign");
+            }
+            Sign sign = (Sign) state;
+            if (entity.has("front")) {
+                applySide(sign.getSide(Side.FRONT), entity.getAsJsonObject("front"));
+            }
+            if (entity.has("back")) {
+                applySide(sign.getSide(Side.BACK), entity.getAsJsonObject("back"));
+            }
+            if (entity.has("waxed")) {
+                sign.setWaxed(entity.get("waxed").getAsBoolean());
+            }
+        }
+
+        if (entity.has("patterns")) {
+            if (!(state instanceof Banner)) {
+                throw new IllegalArgumentException("Block entity is not a banner");
+            }
+            List<Pattern> patterns = new ArrayList<>();
+            for (JsonElement element : entity.getAsJsonArray("patterns")) {
+                JsonObject entry = element.getAsJsonObject();
+                String name = entry.get("pattern").getAsString().toLowerCase(Locale.ROOT);
+                NamespacedKey key = name.contains(":") ? NamespacedKey.fromString(name) : NamespacedKey.minecraft(name);
+                PatternType type = key == null ? null : Registry.BANNER_PATTERN.get(key);
+                if (type == null) {
+                    throw new IllegalArgumentException("Invalid banner pattern: " + name);
+                }
+                patterns.add(new Pattern(parseColor(entry.get("color").getAsString()), type));
+            }
+            ((Banner) state).setPatterns(patterns);
+        }
+
+        if (entity.has("owner")) {
+            if (!(state instanceof Skull)) {
+                throw new IllegalArgumentException("Block entity is not a skull");
+            }
+            JsonObject owner = entity.getAsJsonObject("owner");
+            UUID uuid = owner.has("uuid") ? UUID.fromString(owner.get("uuid").getAsString()) : null;
+            String name = owner.has("name") ? owner.get("name").getAsString() : null;
+            if (uuid == null && name == null) {
+                throw new IllegalArgumentException("Skull owner needs a uuid or a name");
+            }
+            PlayerProfile profile = Bukkit.createPlayerProfile(uuid, name);
+            if (owner.has("skin")) {
+                try {
+                    profile.getTextures().setSkin(URI.create(owner.get("skin").getAsString()).toURL());
+                } catch (MalformedURLException | IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Invalid skin URL: " + owner.get("skin").getAsString());
+                }
+            }
+            ((Skull) state).setOwnerProfile(profile);
+        }
+
+        if (state instanceof CreatureSpawner) {
+            applySpawner((CreatureSpawner) state, entity);
+        } else if (entity.has("entity") || entity.has("delay")) {
+            throw new IllegalArgumentException("Block entity is not a spawner");
+        }
+    }
+
+    private static void applySide(SignSide side, JsonObject data) {
+        if (data.has("lines")) {
+            JsonArray lines = data.getAsJsonArray("lines");
+            for (int i = 0; i < 4; i++) {
+                side.setLine(i, i < lines.size() && !lines.get(i).isJsonNull() ? lines.get(i).getAsString() : "");
+            }
+        }
+        if (data.has("color")) {
+            side.setColor(parseColor(data.get("color").getAsString()));
+        }
+        if (data.has("glowing")) {
+            side.setGlowingText(data.get("glowing").getAsBoolean());
+        }
+    }
+
+    private static void applySpawner(CreatureSpawner spawner, JsonObject data) {
+        if (data.has("entity")) {
+            String name = data.get("entity").getAsString().toLowerCase(Locale.ROOT);
+            NamespacedKey key = name.contains(":") ? NamespacedKey.fromString(name) : NamespacedKey.minecraft(name);
+            EntityType type = key == null ? null : Registry.ENTITY_TYPE.get(key);
+            if (type == null) {
+                throw new IllegalArgumentException("Invalid entity type: " + name);
+            }
+            spawner.setSpawnedType(type);
+        }
+        // Each setter checks the new value against the other bound, so widen before narrowing
+        if (data.has("min_delay") && data.has("max_delay")) {
+            int min = data.get("min_delay").getAsInt();
+            int max = data.get("max_delay").getAsInt();
+            if (min > spawner.getMaxSpawnDelay()) {
+                spawner.setMaxSpawnDelay(max);
+                spawner.setMinSpawnDelay(min);
+            } else {
+                spawner.setMinSpawnDelay(min);
+                spawner.setMaxSpawnDelay(max);
+            }
+        } else if (data.has("min_delay")) {
+            spawner.setMinSpawnDelay(data.get("min_delay").getAsInt());
+        } else if (data.has("max_delay")) {
+            spawner.setMaxSpawnDelay(data.get("max_delay").getAsInt());
+        }
+        if (data.has("delay")) {
+            spawner.setDelay(data.get("delay").getAsInt());
+        }
+        if (data.has("spawn_count")) {
+            spawner.setSpawnCount(data.get("spawn_count").getAsInt());
+        }
+        if (data.has("spawn_range")) {
+            spawner.setSpawnRange(data.get("spawn_range").getAsInt());
+        }
+        if (data.has("max_nearby")) {
+            spawner.setMaxNearbyEntities(data.get("max_nearby").getAsInt());
+        }
+        if (data.has("player_range")) {
+            spawner.setRequiredPlayerRange(data.get("player_range").getAsInt());
+        }
+    }
+
+    private static DyeColor parseColor(String name) {
+        try {
+            return DyeColor.valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid color: " + name);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.mcpylib.plugin;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import org.bukkit.Bukkit;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.Tag;
+import org.bukkit.block.data.BlockData;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+// Tests blocks against a list of terms; a block matches when any term does.
+//   "stone"                     a material
+//   "#minecraft:logs"           a block tag
+//   "oak_stairs[facing=north]"  a material whose listed states have these values
+//   "!..."                      negates a whole matcher given as a single string
+// Immutable once built, so it can be shared with worker threads.
+public class BlockMatcher {
+
+    private final boolean[] materials = new boolean[Material.values().length];
+    // Partial-state predicates by material ordinal; null when the material has none
+    private final BlockData[][] predicates = new BlockData[Material.values().length][];
+    private final boolean negate;
+
+    private BlockMatcher(boolean negate) {
+        this.negate = negate;
+    }
+
+    public static BlockMatcher parse(JsonElement element) {
+        List<String> terms = new ArrayList<>();
+        if (element.isJsonArray()) {
+            JsonArray array = element.getAsJsonArray();
+            for (JsonElement term : array) {
+                terms.add(term.getAsString());
+            }
+        } else {
+            terms.add(element.getAsString());
+        }
+        if (terms.isEmpty()) {
+            throw new IllegalArgumentException("Invalid matcher: expected at least one block, tag or state");
+        }
+
+        boolean negate = terms.size() == 1 && terms.get(0).startsWith("!");
+        if (negate) {
+            terms.set(0, terms.get(0).substring(1));
+        }
+
+        BlockMatcher matcher = new BlockMatcher(negate);
+        for (String term : terms) {
+            matcher.add(term.trim().toLowerCase(Locale.ROOT));
+        }
+        return matcher;
+    }
+
+    private void add(String term) {
+        if (term.startsWith("#")) {
+            String key = term.substring(1);
+            NamespacedKey tagKey = key.contains(":") ? NamespacedKey.fromString(key) : NamespacedKey.minecraft(key);
+            Tag<Material> tag = tagKey == null ? null : Bukkit.getTag(Tag.REGISTRY_BLOCKS, tagKey, Material.class);
+            if (tag == null) {
+                throw new IllegalArgumentException("Unknown block tag: " + term);
+            }
+            for (Material material : tag.getValues()) {
+                materials[material.ordinal()] = true;
+            }
+            return;
+        }
+
+        if (term.indexOf('[') >= 0) {
+            // Parsed data only compares the states that were spelled out, see BlockData.matches
+            BlockData predicate;
+            try {
+                predicate = Bukkit.createBlockData(term.contains(":") && term.indexOf(':') < term.indexOf('[')
+                    ? term : "minecraft:" + term);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid block state: " + term);
+            }
+            int ordinal = predicate.getMaterial().ordinal();
+            BlockData[] existing = predicates[ordinal];
+            BlockData[] grown = existing == null ? new BlockData[1] : Arrays.copyOf(existing, existing.length + 1);
+            grown[grown.length - 1] = predicate;
+            predicates[ordinal] = grown;
+            return;
+        }
+
+        materials[BlockDataRegistry.resolve(term).getMaterial().ordinal()] = true;
+    }
+
+    public boolean matches(BlockData data) {
+        return test(data.getMaterial(), data) != negate;
+    }
+
+    // Reads the full BlockData only when a state predicate needs it
+    public boolean matches(ChunkSnapshot chunk, int localX, int y, int localZ) {
+        Material type = chunk.getBlockType(localX, y, localZ);
+        int ordinal = type.ordinal();
+        boolean result = materials[ordinal]
+            || (predicates[ordinal] != null && test(type, chunk.getBlockData(localX, y, localZ)));
+        return result != negate;
+    }
+
+    private boolean test(Material type, BlockData data) {
+        int ordinal = type.ordinal();
+        if (materials[ordinal]) {
+            return true;
+        }
+        BlockData[] candidates = predicates[ordinal];
+        if (candidates != null) {
+            for (BlockData predicate : candidates) {
+                if (predicate.matches(data)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
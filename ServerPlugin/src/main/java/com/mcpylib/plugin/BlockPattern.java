@@ -0,0 +1,106 @@
+package com.mcpylib.plugin;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.bukkit.block.data.BlockData;
+
+import java.util.Arrays;
+
+// Chooses the block written at a position: one spec, or a weighted mix.
+// Weighted picks hash the position, so asking twice for the same position gives the same block.
+public abstract class BlockPattern {
+
+    public abstract BlockData apply(int x, int y, int z);
+
+    public static BlockPattern single(BlockData data) {
+        return new BlockPattern() {
+            @Override
+            public BlockData apply(int x, int y, int z) {
+                return data;
+            }
+        };
+    }
+
+    // Reads "pattern" when present, otherwise "block" with an optional "block_state"
+    public static BlockPattern fromParams(JsonObject params) {
+        if (params.has("pattern")) {
+            long seed = params.has("seed") ? params.get("seed").getAsLong() : 0L;
+            return weighted(params.get("pattern"), seed);
+        }
+        if (!params.has("block")) {
+            throw new IllegalArgumentException("Missing parameters: block or pattern");
+        }
+        String block = params.get("block").getAsString();
+        return single(params.has("block_state")
+            ? BlockDataRegistry.resolve(block, params.getAsJsonObject("block_state"))
+            : BlockDataRegistry.resolve(block));
+    }
+
+    // Elements are block specs (weight 1) or {"block": spec, "weight": n, "block_state": {...}}
+    public static BlockPattern weighted(JsonElement pattern, long seed) {
+        if (!pattern.isJsonArray() || pattern.getAsJsonArray().size() == 0) {
+            throw new IllegalArgumentException("Invalid pattern: expected a non-empty array");
+        }
+        JsonArray entries = pattern.getAsJsonArray();
+        if (entries.size() == 1 && entries.get(0).isJsonPrimitive()) {
+            return single(BlockDataRegistry.resolve(entries.get(0).getAsString()));
+        }
+
+        BlockData[] blocks = new BlockData[entries.size()];
+        int[] cumulative = new int[entries.size()];
+        int total = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            JsonElement entry = entries.get(i);
+            int weight = 1;
+            if (entry.isJsonObject()) {
+                JsonObject object = entry.getAsJsonObject();
+                if (!object.has("block")) {
+                    throw new IllegalArgumentException("Missing 'block' field in pattern entry " + i);
+                }
+                String block = object.get("block").getAsString();
+                blocks[i] = object.has("block_state")
+                    ? BlockDataRegistry.resolve(block, object.getAsJsonObject("block_state"))
+                    : BlockDataRegistry.resolve(block);
+                if (object.has("weight")) {
+                    weight = object.get("weight").getAsInt();
+                }
+            } else {
+                blocks[i] = BlockDataRegistry.resolve(entry.getAsString());
+            }
+            if (weight <= 0) {
+                throw new IllegalArgumentException("Invalid weight in pattern entry " + i + ": " + weight);
+            }
+            total += weight;
+            cumulative[i] = total;
+        }
+        return new Weighted(blocks, cumulative, total, seed);
+    }
+
+    private static final class Weighted extends BlockPattern {
+        private final BlockData[] blocks;
+        private final int[] cumulative;
+        private final int total;
+        private final long seed;
+
+        Weighted(BlockData[] blocks, int[] cumulative, int total, long seed) {
+            this.blocks = blocks;
+            this.cumulative = cumulative;
+            this.total = total;
+            this.seed = seed;
+        }
+
+        @Override
+        public BlockData apply(int x, int y, int z) {
+            // SplitMix64 finalizer over the packed position
+            long h = seed + (((long) x & 0x3FFFFFFL) << 38 | ((long) z & 0x3FFFFFFL) << 12 | ((long) y & 0xFFFL));
+            h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+            h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+            h ^= h >>> 31;
+            int roll = (int) Math.floorMod(h, (long) total);
+
+            int index = Arrays.binarySearch(cumulative, roll + 1);
+            return blocks[index >= 0 ? index : -index - 1];
+        }
+    }
+}
@@ -9,6 +9,7 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.net.Socket;
+import java.util.concurrent.ExecutionException;
 import java.util.logging.Level;
 
 public class ClientHandler implements Runnable {
@@ -16,11 +17,13 @@ public class ClientHandler implements Runnable {
     private final MCPyLibPlugin plugin;
     private final Socket socket;
     private final Gson gson;
+    private final Session session;
 
     public ClientHandler(MCPyLibPlugin plugin, Socket socket) {
         this.plugin = plugin;
         this.socket = socket;
         this.gson = new Gson();
+        this.session = new Session(plugin);
     }
 
     @Override
@@ -61,14 +64,26 @@ public class ClientHandler implements Runnable {
                     plugin.getLogger().info("Executing command: " + action);
                 }
 
-                // Execute command on main thread and wait for result
-                CommandResult result = Bukkit.getScheduler().callSyncMethod(plugin, () -> {
-                    return CommandHandler.handleCommand(plugin, action, params);
-                }).get();
+                // Reads the per-tick snapshot can answer skip the main thread; everything else runs there
+                CommandResult result = plugin.getSnapshotService().answer(session, action, params);
+                if (result == null) {
+                    result = Bukkit.getScheduler().callSyncMethod(plugin, () -> {
+                        return CommandHandler.handleCommand(plugin, session, action, params);
+                    }).get();
+                }
+
+                // Long-running jobs finish on later ticks; wait here so the main thread stays free
+                if (result.isPending()) {
+                    try {
+                        result = result.getPending().get();
+                    } catch (ExecutionException e) {
+                        result = CommandResult.error("Error executing command: " + e.getCause().getMessage());
+                    }
+                }
 
                 // Send response
                 if (result.isSuccess()) {
-                    sendSuccess(out, result.getData());
+                    sendSuccess(out, result.getData(), result.getTick());
                 } else {
                     sendError(out, result.getError());
                 }
@@ -80,6 +95,7 @@ public class ClientHandler implements Runnable {
                     socket.getInetAddress().getHostAddress());
             }
         } finally {
+            session.close();
             try {
                 socket.close();
             } catch (IOException e) {
@@ -88,10 +104,13 @@ public class ClientHandler implements Runnable {
         }
     }
 
-    private void sendSuccess(PrintWriter out, Object data) {
+    private void sendSuccess(PrintWriter out, Object data, long tick) {
         JsonObject response = new JsonObject();
         response.addProperty("success", true);
         response.add("data", gson.toJsonTree(data));
+        if (tick >= 0) {
+            response.addProperty("tick", tick);
+        }
         out.println(gson.toJson(response));
     }
 
@@ -0,0 +1,173 @@
+package com.mcpylib.plugin;
+
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.World;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.data.BlockData;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// A palette-encoded copy of a box of blocks, stored relative to an origin point.
+// Cells are indexed (y * length + z) * width + x from the minimum corner.
+public class Clipboard {
+
+    private final int width;
+    private final int height;
+    private final int length;
+    // Position of the origin relative to the minimum corner
+    private final int originX;
+    private final int originY;
+    private final int originZ;
+    private final List<BlockData> palette;
+    private final int[] blocks;
+    private final Map<Integer, BlockState> tiles;
+
+    public Clipboard(int width, int height, int length, int originX, int originY, int originZ,
+                     List<BlockData> palette, int[] blocks, Map<Integer, BlockState> tiles) {
+        this.width = width;
+        this.height = height;
+        this.length = length;
+        this.originX = originX;
+        this.originY = originY;
+        this.originZ = originZ;
+        this.palette = palette;
+        this.blocks = blocks;
+        this.tiles = tiles;
+    }
+
+    // Builds a clipboard from snapshots; safe to call off the main thread
+    public static Clipboard fromSnapshot(RegionSnapshot snapshot, int originX, int originY, int originZ,
+                                         Map<Integer, BlockState> tiles) {
+        int minX = snapshot.getMinX();
+        int minY = snapshot.getMinY();
+        int minZ = snapshot.getMinZ();
+        int maxX = snapshot.getMaxX();
+        int maxY = snapshot.getMaxY();
+        int maxZ = snapshot.getMaxZ();
+        int width = maxX - minX + 1;
+        int height = maxY - minY + 1;
+        int length = maxZ - minZ + 1;
+
+        List<BlockData> palette = new ArrayList<>();
+        Map<BlockData, Integer> paletteIndex = new HashMap<>();
+        int[] blocks = new int[width * height * length];
+
+        // Walk one chunk column at a time so each snapshot is looked up once
+        for (int cx = minX >> 4; cx <= maxX >> 4; cx++) {
+            for (int cz = minZ >> 4; cz <= maxZ >> 4; cz++) {
+                ChunkSnapshot chunk = snapshot.chunkAt(cx << 4, cz << 4);
+                int fromX = Math.max(minX, cx << 4);
+                int toX = Math.min(maxX, (cx << 4) + 15);
+                int fromZ = Math.max(minZ, cz << 4);
+                int toZ = Math.min(maxZ, (cz << 4) + 15);
+
+                for (int y = minY; y <= maxY; y++) {
+                    for (int z = fromZ; z <= toZ; z++) {
+                        for (int x = fromX; x <= toX; x++) {
+                            BlockData data = chunk.getBlockData(x & 15, y, z & 15);
+                            Integer index = paletteIndex.get(data);
+                            if (index == null) {
+                                index = palette.size();
+                                palette.add(data);
+                                paletteIndex.put(data, index);
+                            }
+                            blocks[((y - minY) * length + (z - minZ)) * width + (x - minX)] = index;
+                        }
+                    }
+                }
+            }
+        }
+
+        return new Clipboard(width, height, length, originX - minX, originY - minY, originZ - minZ,
+            palette, blocks, tiles);
+    }
+
+    // Snapshots the block entities inside the box, keyed by clipboard index. Main thread only.
+    public static Map<Integer, BlockState> captureTiles(World world, int minX, int minY, int minZ,
+                                                        int maxX, int maxY, int maxZ) {
+        int width = maxX - minX + 1;
+        int length = maxZ - minZ + 1;
+        Map<Integer, BlockState> tiles = new HashMap<>();
+        for (int cx = minX >> 4; cx <= maxX >> 4; cx++) {
+            for (int cz = minZ >> 4; cz <= maxZ >> 4; cz++) {
+                Chunk chunk = world.getChunkAt(cx, cz);
+                for (BlockState state : chunk.getTileEntities()) {
+                    int x = state.getX();
+                    int y = state.getY();
+                    int z = state.getZ();
+                    if (x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ) {
+                        tiles.put(((y - minY) * length + (z - minZ)) * width + (x - minX), state);
+                    }
+                }
+            }
+        }
+        return tiles;
+    }
+
+    // Adds this clipboard to the buffer with its origin at the transform's paste point
+    public void pasteInto(BlockBuffer buffer, PasteTransform transform, boolean ignoreAir) {
+        BlockData[] transformed = transform.apply(palette.toArray(new BlockData[0]));
+
+        int index = 0;
+        for (int dy = 0; dy < height; dy++) {
+            for (int dz = 0; dz < length; dz++) {
+                for (int dx = 0; dx < width; dx++, index++) {
+                    BlockData data = transformed[blocks[index]];
+                    if (ignoreAir && data.getMaterial().isAir()) {
+                        continue;
+                    }
+
+                    int rx = dx - originX;
+                    int rz = dz - originZ;
+                    BlockState tile = tiles.isEmpty() ? null : tiles.get(index);
+                    buffer.set(transform.worldX(rx, rz), transform.worldY(dy - originY), transform.worldZ(rx, rz), data,
+                        tile != null ? EditSource.TileData.ofState(tile) : null);
+                }
+            }
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public int getOriginX() {
+        return originX;
+    }
+
+    public int getOriginY() {
+        return originY;
+    }
+
+    public int getOriginZ() {
+        return originZ;
+    }
+
+    public List<BlockData> getPalette() {
+        return palette;
+    }
+
+    public int[] getBlocks() {
+        return blocks;
+    }
+
+    public Map<Integer, BlockState> getTiles() {
+        return tiles;
+    }
+
+    public long getVolume() {
+        return blocks.length;
+    }
+}
@@ -4,6 +4,7 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import org.bukkit.Bukkit;
+import org.bukkit.ChunkSnapshot;
 import org.bukkit.GameMode;
 import org.bukkit.Location;
 import org.bukkit.Material;
@@ -12,10 +13,7 @@ import org.bukkit.attribute.Attribute;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockState;
 import org.bukkit.block.data.BlockData;
-import org.bukkit.block.data.Directional;
-import org.bukkit.block.data.Orientable;
-import org.bukkit.block.data.Rotatable;
-import org.bukkit.block.data.type.Stairs;
+import org.bukkit.entity.AbstractVillager;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.EntityType;
 import org.bukkit.entity.LivingEntity;
@@ -25,36 +23,48 @@ import org.bukkit.entity.Villager;
 import org.bukkit.inventory.EntityEquipment;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.MerchantRecipe;
+import org.bukkit.util.BoundingBox;
 import org.bukkit.util.Vector;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Predicate;
 
 public class CommandHandler {
 
-    public static CommandResult handleCommand(MCPyLibPlugin plugin, String action, JsonObject params) {
+    public static CommandResult handleCommand(MCPyLibPlugin plugin, Session session, String action, JsonObject params) {
         try {
             switch (action.toLowerCase()) {
                 case "setblock":
-                    return handleSetBlock(params);
+                    return handleSetBlock(session, params);
                 case "getblock":
                     return handleGetBlock(params);
                 case "getblocks":
                     return handleGetBlocks(params);
                 case "fill":
-                    return handleFill(params);
+                    return handleFill(plugin, session, params);
                 case "bulkedit":
-                    return handleBulkEdit(params);
+                    return handleBulkEdit(plugin, session, params);
+                case "setblocks":
+                    return handleSetBlocks(plugin, session, params);
                 case "getpos":
                     return handleGetPos(params);
                 case "teleport":
-                    return handleTeleport(params);
+                    return handleTeleport(plugin, params);
                 case "gamemode":
-                    return handleGamemode(params);
+                    return handleGamemode(plugin, params);
                 case "time":
                     return handleTime(params);
                 case "weather":
@@ -62,37 +72,85 @@ public class CommandHandler {
                 case "give":
                     return handleGive(params);
                 case "summon":
-                    return handleSummon(params);
+                    return handleSummon(session, params);
+                case "summon_many":
+                    return handleSummonMany(plugin, session, params);
                 case "kill":
-                    return handleKill(params);
+                    return handleKill(plugin, params);
+                case "remove_entities":
+                    return handleRemoveEntities(plugin, params);
                 case "clone":
-                    return handleClone(params);
+                    return handleClone(plugin, session, params);
+                case "copy":
+                    return handleCopy(plugin, session, params);
+                case "paste":
+                    return handlePaste(plugin, session, params);
+                case "schematic_save":
+                    return handleSchematicSave(plugin, session, params);
+                case "schematic_load":
+                    return handleSchematicLoad(plugin, session, params);
+                case "shape":
+                    return handleShape(plugin, session, params);
+                case "replace":
+                    return handleReplace(plugin, session, params);
+                case "mask_fill":
+                    return handleMaskFill(plugin, session, params);
+                case "region_hash":
+                    return handleRegionHash(plugin, params);
+                case "heightmap":
+                    return handleHeightmap(plugin, params);
+                case "find_blocks":
+                    return handleFindBlocks(plugin, params);
+                case "region_stats":
+                    return handleRegionStats(plugin, params);
+                case "undo":
+                    return handleUndo(plugin, session, params);
+                case "redo":
+                    return handleRedo(plugin, session, params);
+                case "get_block_entities":
+                    return handleGetBlockEntities(plugin, params);
+                case "set_block_entities":
+                    return handleSetBlockEntities(session, params);
+                case "edit_progress":
+                    return handleEditProgress(plugin);
                 case "getentitypos":
-                    return handleGetEntityPos(params);
+                    return handleGetEntityPos(plugin, session, params);
                 case "getentitystatus":
-                    return handleGetEntityStatus(params);
+                    return handleGetEntityStatus(session, params);
+                case "query_entities":
+                    return handleQueryEntities(session, params);
                 case "teleportentity":
-                    return handleTeleportEntity(params);
+                    return handleTeleportEntity(plugin, session, params);
+                case "mutate_entities":
+                    return handleMutateEntities(plugin, session, params);
+                case "animate_entities":
+                    return handleAnimateEntities(plugin, session, params);
+                case "stop_animation":
+                    return handleStopAnimation(plugin, params);
                 case "setentityvelocity":
-                    return handleSetEntityVelocity(params);
+                    return handleSetEntityVelocity(session, params);
                 case "setentityrotation":
-                    return handleSetEntityRotation(params);
+                    return handleSetEntityRotation(plugin, session, params);
                 case "setentityai":
-                    return handleSetEntityAI(params);
+                    return handleSetEntityAI(session, params);
                 case "setentitytarget":
-                    return handleSetEntityTarget(params);
+                    return handleSetEntityTarget(session, params);
                 case "removeentity":
-                    return handleRemoveEntity(params);
+                    return handleRemoveEntity(plugin, session, params);
                 case "getentityequipment":
-                    return handleGetEntityEquipment(params);
+                    return handleGetEntityEquipment(session, params);
                 case "setentityequipment":
-                    return handleSetEntityEquipment(params);
+                    return handleSetEntityEquipment(session, params);
                 case "getvillagerdata":
-                    return handleGetVillagerData(params);
+                    return handleGetVillagerData(session, params);
                 case "setvillagerprofession":
-                    return handleSetVillagerProfession(params);
+                    return handleSetVillagerProfession(session, params);
                 case "setvillagertrades":
-                    return handleSetVillagerTrades(params);
+                    return handleSetVillagerTrades(session, params);
+                case "define_trade_template":
+                    return handleDefineTradeTemplate(plugin, params);
+                case "apply_trades":
+                    return handleApplyTrades(plugin, session, params);
                 case "exec":
                     return handleExec(plugin, params);
                 case "effect":
@@ -130,29 +188,29 @@ public class CommandHandler {
                 case "forceload":
                     return handleForceload(params);
                 case "damage":
-                    return handleDamage(params);
+                    return handleDamage(session, params);
                 case "addobjective":
                     return handleAddObjective(params);
                 case "removeobjective":
-                    return handleRemoveObjective(params);
+                    return handleRemoveObjective(plugin, params);
                 case "setscore":
-                    return handleSetScore(params);
+                    return handleSetScore(plugin, params);
                 case "getscore":
-                    return handleGetScore(params);
+                    return handleGetScore(plugin, params);
                 case "setdisplayslot":
                     return handleSetDisplaySlot(params);
                 case "addtag":
-                    return handleAddTag(params);
+                    return handleAddTag(plugin, session, params);
                 case "removetag":
-                    return handleRemoveTag(params);
+                    return handleRemoveTag(plugin, session, params);
                 case "gettags":
-                    return handleGetTags(params);
+                    return handleGetTags(plugin, session, params);
                 case "team":
                     return handleTeam(params);
                 case "bossbar":
                     return handleBossbar(plugin, params);
                 case "attribute":
-                    return handleAttribute(params);
+                    return handleAttribute(session, params);
                 case "enchant":
                     return handleEnchant(params);
                 case "getitem":
@@ -167,6 +225,10 @@ public class CommandHandler {
                     return handleLoot(plugin, params);
                 case "fillbiome":
                     return handleFillBiome(plugin, params);
+                case "getbiomes":
+                    return handleGetBiomes(plugin, params);
+                case "setbiomes":
+                    return handleSetBiomes(plugin, params);
                 case "placefeature":
                     return handlePlaceFeature(plugin, params);
                 case "placestructure":
@@ -176,7 +238,7 @@ public class CommandHandler {
                 case "placetemplate":
                     return handlePlaceTemplate(plugin, params);
                 case "ride":
-                    return handleRide(params);
+                    return handleRide(plugin, session, params);
                 case "spreadplayers":
                     return handleSpreadplayers(plugin, params);
                 case "defaultgamemode":
@@ -191,7 +253,7 @@ public class CommandHandler {
         }
     }
 
-    private static CommandResult handleSetBlock(JsonObject params) {
+    private static CommandResult handleSetBlock(Session session, JsonObject params) {
         // Get parameters
         if (!params.has("x") || !params.has("y") || !params.has("z") || !params.has("block")) {
             return CommandResult.error("Missing parameters: x, y, z, block");
@@ -202,10 +264,15 @@ public class CommandHandler {
         int z = params.get("z").getAsInt();
         String blockName = params.get("block").getAsString();
 
-        // Parse material
-        Material material = parseMaterial(blockName);
-        if (material == null) {
-            return CommandResult.error("Invalid block type: " + blockName);
+        // Resolve block spec (including any block_state) through the interned registry
+        BlockData blockData;
+        try {
+            blockData = params.has("block_state")
+                ? BlockDataRegistry.resolve(blockName, params.getAsJsonObject("block_state"))
+                : BlockDataRegistry.resolve(blockName);
+        } catch (IllegalArgumentException e) {
+            return CommandResult.error(params.has("block_state")
+                ? "Failed to set block state: " + e.getMessage() : "Invalid block type: " + blockName);
         }
 
         // Get world (use overworld by default)
@@ -214,28 +281,14 @@ public class CommandHandler {
         // Set block
         try {
             Block block = world.getBlockAt(x, y, z);
-            block.setType(material);
 
-            // Apply block state if provided
-            if (params.has("block_state")) {
-                JsonObject blockState = params.getAsJsonObject("block_state");
-                BlockData blockData = block.getBlockData();
-
-                // Apply each state property
-                for (Map.Entry<String, JsonElement> entry : blockState.entrySet()) {
-                    String property = entry.getKey();
-                    String value = entry.getValue().getAsString();
-
-                    try {
-                        applyBlockState(blockData, property, value);
-                    } catch (Exception e) {
-                        return CommandResult.error("Failed to set block state '" + property + "': " + e.getMessage());
-                    }
-                }
+            // Journal the prior state so the change can be undone
+            JournalEntry entry = new JournalEntry(world);
+            BlockState prior = block.getState();
+            entry.record(x, y, z, prior.getBlockData(), prior instanceof org.bukkit.block.TileState ? prior : null);
+            session.getJournal().record(entry);
 
-                // Update block data
-                block.setBlockData(blockData);
-            }
+            block.setBlockData(blockData);
 
             // Apply NBT data if provided
             if (params.has("nbt")) {
@@ -256,82 +309,8 @@ public class CommandHandler {
         }
     }
 
-    private static void applyBlockState(BlockData blockData, String property, String value) {
-        switch (property.toLowerCase()) {
-            case "facing":
-                if (blockData instanceof Directional) {
-                    Directional directional = (Directional) blockData;
-                    directional.setFacing(org.bukkit.block.BlockFace.valueOf(value.toUpperCase()));
-                }
-                break;
-
-            case "rotation":
-                if (blockData instanceof Rotatable) {
-                    Rotatable rotatable = (Rotatable) blockData;
-                    rotatable.setRotation(org.bukkit.block.BlockFace.valueOf(value.toUpperCase()));
-                }
-                break;
-
-            case "axis":
-                if (blockData instanceof Orientable) {
-                    Orientable orientable = (Orientable) blockData;
-                    orientable.setAxis(org.bukkit.Axis.valueOf(value.toUpperCase()));
-                }
-                break;
-
-            case "half":
-                if (blockData instanceof Stairs) {
-                    Stairs stairs = (Stairs) blockData;
-                    stairs.setHalf(Stairs.Half.valueOf(value.toUpperCase()));
-                } else if (blockData instanceof org.bukkit.block.data.Bisected) {
-                    org.bukkit.block.data.Bisected bisected = (org.bukkit.block.data.Bisected) blockData;
-                    bisected.setHalf(org.bukkit.block.data.Bisected.Half.valueOf(value.toUpperCase()));
-                }
-                break;
-
-            case "shape":
-                if (blockData instanceof Stairs) {
-                    Stairs stairs = (Stairs) blockData;
-                    stairs.setShape(Stairs.Shape.valueOf(value.toUpperCase()));
-                }
-                break;
-
-            case "waterlogged":
-                if (blockData instanceof org.bukkit.block.data.Waterlogged) {
-                    org.bukkit.block.data.Waterlogged waterlogged = (org.bukkit.block.data.Waterlogged) blockData;
-                    waterlogged.setWaterlogged(Boolean.parseBoolean(value));
-                }
-                break;
-
-            case "open":
-                if (blockData instanceof org.bukkit.block.data.Openable) {
-                    org.bukkit.block.data.Openable openable = (org.bukkit.block.data.Openable) blockData;
-                    openable.setOpen(Boolean.parseBoolean(value));
-                }
-                break;
-
-            case "powered":
-                if (blockData instanceof org.bukkit.block.data.Powerable) {
-                    org.bukkit.block.data.Powerable powerable = (org.bukkit.block.data.Powerable) blockData;
-                    powerable.setPowered(Boolean.parseBoolean(value));
-                }
-                break;
-
-            default:
-                // Try to use the generic BlockData merge method
-                String stateString = property + "=" + value;
-                try {
-                    BlockData newData = Bukkit.createBlockData(blockData.getMaterial(), stateString);
-                    blockData.merge(newData);
-                } catch (Exception e) {
-                    throw new IllegalArgumentException("Unsupported property: " + property);
-                }
-                break;
-        }
-    }
-
     @SuppressWarnings("deprecation")
-    private static void applyNBTData(BlockState blockState, JsonObject nbtData) {
+    static void applyNBTData(BlockState blockState, JsonObject nbtData) {
         // Note: Bukkit doesn't provide direct NBT access in the same way as vanilla Minecraft
         // This is a simplified implementation that handles common cases using legacy Bukkit API
 
@@ -368,10 +347,19 @@ public class CommandHandler {
             }
         }
 
-        // Handle chest/container contents (simplified)
-        if (blockState instanceof org.bukkit.block.Chest && nbtData.has("Items")) {
-            // This would require more complex NBT parsing
-            // Left as placeholder for future implementation
+        // Handle container contents: [{"Slot": 0, "id": "minecraft:bread", "count": 3}, ...]
+        if (blockState instanceof org.bukkit.block.Container && nbtData.has("Items")) {
+            org.bukkit.inventory.Inventory inventory = ((org.bukkit.block.Container) blockState).getSnapshotInventory();
+            JsonArray items = nbtData.getAsJsonArray("Items");
+            for (int i = 0; i < items.size(); i++) {
+                JsonObject item = items.get(i).getAsJsonObject();
+                int slot = item.has("Slot") ? item.get("Slot").getAsInt() : i;
+                int count = item.has("count") ? item.get("count").getAsInt()
+                    : item.has("Count") ? item.get("Count").getAsInt() : 1;
+                if (slot >= 0 && slot < inventory.getSize() && item.has("id")) {
+                    inventory.setItem(slot, BlockEntities.parseItem(item.get("id").getAsString(), count));
+                }
+            }
         }
 
         // For more complex NBT data (detailed items, complex structures), you would need to use
@@ -448,7 +436,7 @@ public class CommandHandler {
         }
     }
 
-    private static CommandResult handleFill(JsonObject params) {
+    private static CommandResult handleFill(MCPyLibPlugin plugin, Session session, JsonObject params) {
         // Get parameters
         if (!params.has("x1") || !params.has("y1") || !params.has("z1") ||
             !params.has("x2") || !params.has("y2") || !params.has("z2") ||
@@ -464,10 +452,21 @@ public class CommandHandler {
         int z2 = params.get("z2").getAsInt();
         String blockName = params.get("block").getAsString();
 
-        // Parse material
-        Material material = parseMaterial(blockName);
-        if (material == null) {
-            return CommandResult.error("Invalid block type: " + blockName);
+        // Resolve block spec once; every position shares the interned BlockData
+        BlockData blockData;
+        try {
+            blockData = params.has("block_state")
+                ? BlockDataRegistry.resolve(blockName, params.getAsJsonObject("block_state"))
+                : BlockDataRegistry.resolve(blockName);
+        } catch (IllegalArgumentException e) {
+            return CommandResult.error(e.getMessage());
+        }
+
+        PhysicsMode physics;
+        try {
+            physics = PhysicsMode.fromParams(params, PhysicsMode.NONE);
+        } catch (IllegalArgumentException e) {
+            return CommandResult.error(e.getMessage());
         }
 
         // Get world
@@ -482,24 +481,14 @@ public class CommandHandler {
             int minZ = Math.min(z1, z2);
             int maxZ = Math.max(z1, z2);
 
-            int count = 0;
-            for (int x = minX; x <= maxX; x++) {
-                for (int y = minY; y <= maxY; y++) {
-                    for (int z = minZ; z <= maxZ; z++) {
-                        Block block = world.getBlockAt(x, y, z);
-                        block.setType(material, false);
-                        count++;
-                    }
-                }
-            }
-
-            return CommandResult.success(count);
+            RegionFillSource source = new RegionFillSource(minX, minY, minZ, maxX, maxY, maxZ, blockData);
+            return pendingEdit(submitJournaled(plugin, session, world, source, physics), "Failed to fill region");
         } catch (Exception e) {
             return CommandResult.error("Failed to fill region: " + e.getMessage());
         }
     }
 
-    private static CommandResult handleBulkEdit(JsonObject params) {
+    private static CommandResult handleBulkEdit(MCPyLibPlugin plugin, Session session, JsonObject params) {
         // Get parameters
         if (!params.has("x") || !params.has("y") || !params.has("z") || !params.has("blocks")) {
             return CommandResult.error("Missing parameters: x, y, z, blocks");
@@ -510,11 +499,19 @@ public class CommandHandler {
         int startZ = params.get("z").getAsInt();
         JsonArray blocks = params.getAsJsonArray("blocks");
 
+        PhysicsMode physics;
+        try {
+            physics = PhysicsMode.fromParams(params, PhysicsMode.NONE);
+        } catch (IllegalArgumentException e) {
+            return CommandResult.error(e.getMessage());
+        }
+
         // Get world
         World world = Bukkit.getWorlds().get(0);
 
         try {
-            int count = 0;
+            // Decode the whole request before touching the world, so a bad element writes nothing
+            BlockBuffer buffer = new BlockBuffer();
             int sizeX = blocks.size();
 
             // Iterate through 3D array: blocks[x][y][z]
@@ -547,19 +544,17 @@ public class CommandHandler {
                         int worldY = startY + dy;
                         int worldZ = startZ + dz;
 
-                        // Get block at position
-                        Block block = world.getBlockAt(worldX, worldY, worldZ);
-
                         // Handle different element types (mixed mode)
                         if (blockElement.isJsonPrimitive() && blockElement.getAsJsonPrimitive().isString()) {
                             // Simple string: just block name
                             String blockName = blockElement.getAsString();
-                            Material material = parseMaterial(blockName);
-                            if (material == null) {
+                            BlockData resolved;
+                            try {
+                                resolved = BlockDataRegistry.resolve(blockName);
+                            } catch (IllegalArgumentException e) {
                                 return CommandResult.error("Invalid block type at [" + dx + "][" + dy + "][" + dz + "]: " + blockName);
                             }
-                            block.setType(material, false);
-                            count++;
+                            buffer.set(worldX, worldY, worldZ, resolved);
                         } else if (blockElement.isJsonObject()) {
                             // Complex object: block, block_state, nbt
                             JsonObject blockData = blockElement.getAsJsonObject();
@@ -569,57 +564,207 @@ public class CommandHandler {
                             }
 
                             String blockName = blockData.get("block").getAsString();
-                            Material material = parseMaterial(blockName);
-                            if (material == null) {
-                                return CommandResult.error("Invalid block type at [" + dx + "][" + dy + "][" + dz + "]: " + blockName);
+                            BlockData resolved;
+                            try {
+                                resolved = blockData.has("block_state")
+                                    ? BlockDataRegistry.resolve(blockName, blockData.getAsJsonObject("block_state"))
+                                    : BlockDataRegistry.resolve(blockName);
+                            } catch (IllegalArgumentException e) {
+                                return CommandResult.error(blockData.has("block_state")
+                                    ? "Failed to set block state at [" + dx + "][" + dy + "][" + dz + "]: " + e.getMessage()
+                                    : "Invalid block type at [" + dx + "][" + dy + "][" + dz + "]: " + blockName);
                             }
 
-                            // Set block type
-                            block.setType(material, false);
+                            // NBT data is applied by the write engine right after the block is placed
+                            EditSource.TileData tile = blockData.has("nbt")
+                                ? EditSource.TileData.ofNbt(blockData.getAsJsonObject("nbt")) : null;
+                            buffer.set(worldX, worldY, worldZ, resolved, tile);
+                        } else {
+                            return CommandResult.error("Invalid block element at [" + dx + "][" + dy + "][" + dz + "]: must be string or object");
+                        }
+                    }
+                }
+            }
 
-                            // Apply block state if provided
-                            if (blockData.has("block_state")) {
-                                JsonObject blockState = blockData.getAsJsonObject("block_state");
-                                BlockData bukkitBlockData = block.getBlockData();
+            if (params.has("diff") && params.get("diff").getAsBoolean() && !buffer.isEmpty()) {
+                return pendingEdit(submitDiff(plugin, session, world, buffer, physics), "Failed to bulk edit");
+            }
+            return pendingEdit(submitJournaled(plugin, session, world, buffer, physics), "Failed to bulk edit");
+        } catch (Exception e) {
+            return CommandResult.error("Failed to bulk edit: " + e.getMessage());
+        }
+    }
 
-                                for (Map.Entry<String, JsonElement> entry : blockState.entrySet()) {
-                                    String property = entry.getKey();
-                                    String value = entry.getValue().getAsString();
+    // Scattered placements: "blocks" is base64 of varint records zigzag(dx), zigzag(dy), zigzag(dz),
+    // palette index, with offsets from x, y, z. The buffer groups them by chunk for a single pass.
+    private static CommandResult handleSetBlocks(MCPyLibPlugin plugin, Session session, JsonObject params) {
+        if (!params.has("x") || !params.has("y") || !params.has("z") ||
+            !params.has("palette") || !params.has("blocks")) {
+            return CommandResult.error("Missing parameters: x, y, z, palette, blocks");
+        }
 
-                                    try {
-                                        applyBlockState(bukkitBlockData, property, value);
-                                    } catch (Exception e) {
-                                        return CommandResult.error("Failed to set block state at [" + dx + "][" + dy + "][" + dz + "]: " + e.getMessage());
-                                    }
-                                }
+        int originX = params.get("x").getAsInt();
+        int originY = params.get("y").getAsInt();
+        int originZ = params.get("z").getAsInt();
 
-                                block.setBlockData(bukkitBlockData);
-                            }
+        BlockData[] palette;
+        byte[] records;
+        PhysicsMode physics;
+        try {
+            JsonArray entries = params.getAsJsonArray("palette");
+            palette = new BlockData[entries.size()];
+            for (int i = 0; i < palette.length; i++) {
+                JsonElement entry = entries.get(i);
+                if (entry.isJsonObject()) {
+                    JsonObject object = entry.getAsJsonObject();
+                    if (!object.has("block")) {
+                        return CommandResult.error("Missing 'block' field in palette entry " + i);
+                    }
+                    String block = object.get("block").getAsString();
+                    palette[i] = object.has("block_state")
+                        ? BlockDataRegistry.resolve(block, object.getAsJsonObject("block_state"))
+                        : BlockDataRegistry.resolve(block);
+                } else {
+                    palette[i] = BlockDataRegistry.resolve(entry.getAsString());
+                }
+            }
+            records = java.util.Base64.getDecoder().decode(params.get("blocks").getAsString());
+            physics = PhysicsMode.fromParams(params, PhysicsMode.NONE);
+        } catch (IllegalArgumentException e) {
+            return CommandResult.error(e.getMessage());
+        }
 
-                            // Apply NBT data if provided
-                            if (blockData.has("nbt")) {
-                                JsonObject nbtData = blockData.getAsJsonObject("nbt");
-                                BlockState blockState = block.getState();
+        // Every record takes at least four bytes, so an oversized payload is refused before decoding
+        long maxRecords = plugin.getConfig().getLong("edits.max-clipboard-volume", 16777216L);
+        if (records.length / 4 > maxRecords) {
+            return CommandResult.error("Too many records (max " + maxRecords + "): at least " + records.length / 4);
+        }
 
-                                try {
-                                    applyNBTData(blockState, nbtData);
-                                    blockState.update(true);
-                                } catch (Exception e) {
-                                    return CommandResult.error("Failed to set NBT data at [" + dx + "][" + dy + "][" + dz + "]: " + e.getMessage());
-                                }
-                            }
+        World world = Bukkit.getWorlds().get(0);
+        int minY = world.getMinHeight();
+        int maxY = world.getMaxHeight() - 1;
 
-                            count++;
-                        } else {
-                            return CommandResult.error("Invalid block element at [" + dx + "][" + dy + "][" + dz + "]: must be string or object");
-                        }
+        try {
+            // Decode the whole payload before touching the world, so a malformed record writes nothing
+            CompletableFuture<EditResult> edit = CompletableFuture.supplyAsync(() -> {
+                BlockBuffer buffer = new BlockBuffer();
+                ByteBuffer in = ByteBuffer.wrap(records);
+                int record = 0;
+                while (in.hasRemaining()) {
+                    if (record >= maxRecords) {
+                        throw new IllegalArgumentException("Too many records (max " + maxRecords + ")");
+                    }
+                    int x = originX + VarInts.unzigzag(VarInts.read(in, "blocks"));
+                    int y = originY + VarInts.unzigzag(VarInts.read(in, "blocks"));
+                    int z = originZ + VarInts.unzigzag(VarInts.read(in, "blocks"));
+                    int index = VarInts.read(in, "blocks");
+                    if (index < 0 || index >= palette.length) {
+                        throw new IllegalArgumentException("Invalid palette index in record " + record + ": " + index);
+                    }
+                    if (y < minY || y > maxY) {
+                        throw new IllegalArgumentException("Record " + record + " is outside the world height: y=" + y);
                     }
+                    buffer.set(x, y, z, palette[index]);
+                    record++;
                 }
+                return buffer;
+            }, plugin.getAsyncExecutor()).thenComposeAsync(
+                buffer -> submitJournaled(plugin, session, world, buffer, physics), plugin.getMainThreadExecutor());
+            return pendingEdit(edit, "Failed to set blocks");
+        } catch (Exception e) {
+            return CommandResult.error("Failed to set blocks: " + e.getMessage());
+        }
+    }
+
+    // Edits finish on a later tick when they exceed the tick budget; the client is answered once the job completes
+    private static CommandResult pendingEdit(CompletableFuture<EditResult> edit, String failure) {
+        return CommandResult.pending(edit.handle((result, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                return CommandResult.error(failure + ": " + cause.getMessage());
+            }
+            return CommandResult.success(result.toResponse());
+        }));
+    }
+
+    // Submits an edit and journals the prior state of every changed position for undo once it completes
+    private static CompletableFuture<EditResult> submitJournaled(MCPyLibPlugin plugin, Session session, World world,
+                                                                 EditSource source, PhysicsMode physics) {
+        JournalEntry entry = new JournalEntry(world);
+        CompletableFuture<EditResult> edit = plugin.getWriteEngine().submit(world, source, physics, entry);
+        edit.whenComplete((result, error) -> session.getJournal().record(entry));
+        return edit;
+    }
+
+    // Compares the buffer against snapshots off the main thread and writes only the positions that differ.
+    // Block entity data is always written, since snapshots cannot compare it.
+    private static CompletableFuture<EditResult> submitDiff(MCPyLibPlugin plugin, Session session, World world,
+                                                            BlockBuffer buffer, PhysicsMode physics) {
+        int[] bounds = buffer.bounds();
+        RegionSnapshot snapshot = RegionSnapshot.capture(world, bounds[0],
+            Math.max(bounds[1], world.getMinHeight()), bounds[2], bounds[3],
+            Math.min(bounds[4], world.getMaxHeight() - 1), bounds[5]);
+
+        long[] unchanged = {0};
+        return CompletableFuture.supplyAsync(() -> {
+            BlockBuffer changed = new BlockBuffer();
+            for (long section : buffer.sections()) {
+                buffer.write(section, (x, y, z, data, tile) -> {
+                    if (tile == null && snapshot.contains(x, y, z) && data.equals(snapshot.getBlockData(x, y, z))) {
+                        unchanged[0]++;
+                    } else {
+                        changed.set(x, y, z, data, tile);
+                    }
+                });
+            }
+            return changed;
+        }, plugin.getAsyncExecutor()).thenComposeAsync(changed -> {
+            if (changed.isEmpty()) {
+                return CompletableFuture.completedFuture(new EditResult(physics));
             }
+            return submitJournaled(plugin, session, world, changed, physics);
+        }, plugin.getMainThreadExecutor()).thenApply(result -> {
+            result.unchanged = unchanged[0];
+            return result;
+        });
+    }
+
+    private static CommandResult handleUndo(MCPyLibPlugin plugin, Session session, JsonObject params) {
+        JournalEntry entry = session.getJournal().popUndo();
+        if (entry == null) {
+            return CommandResult.error("Nothing to undo");
+        }
+        return replayJournal(plugin, entry, redo -> session.getJournal().addRedo(redo), "Failed to undo");
+    }
 
-            return CommandResult.success(count);
+    private static CommandResult handleRedo(MCPyLibPlugin plugin, Session session, JsonObject params) {
+        JournalEntry entry = session.getJournal().popRedo();
+        if (entry == null) {
+            return CommandResult.error("Nothing to redo");
+        }
+        return replayJournal(plugin, entry, undo -> session.getJournal().addUndo(undo), "Failed to redo");
+    }
+
+    // Lets another connection watch queued edits, since the submitting one waits for its result
+    private static CommandResult handleEditProgress(MCPyLibPlugin plugin) {
+        return CommandResult.success(plugin.getWriteEngine().getProgress());
+    }
+
+    // Writes a journal entry back without physics; what it overwrites is journaled for the opposite direction
+    private static CommandResult replayJournal(MCPyLibPlugin plugin, JournalEntry entry,
+                                               java.util.function.Consumer<JournalEntry> inverse, String failure) {
+        try {
+            BlockBuffer buffer = new BlockBuffer();
+            entry.decodeInto(buffer);
+            entry.release();
+
+            World world = entry.getWorld();
+            JournalEntry opposite = new JournalEntry(world);
+            CompletableFuture<EditResult> edit = plugin.getWriteEngine().submit(world, buffer, PhysicsMode.NONE, opposite);
+            edit.whenComplete((result, error) -> inverse.accept(opposite));
+            return pendingEdit(edit, failure);
         } catch (Exception e) {
-            return CommandResult.error("Failed to bulk edit: " + e.getMessage());
+            return CommandResult.error(failure + ": " + e.getMessage());
         }
     }
 
@@ -648,7 +793,7 @@ public class CommandHandler {
         return CommandResult.success(position);
     }
 
-    private static CommandResult handleTeleport(JsonObject params) {
+    private static CommandResult handleTeleport(MCPyLibPlugin plugin, JsonObject params) {
         // Validate parameters
         if (!params.has("username") || !params.has("x") || !params.has("y") || !params.has("z")) {
             return CommandResult.error("Missing parameters: username, x, y, z");
@@ -679,6 +824,7 @@ public class CommandHandler {
 
         try {
             boolean success = player.teleport(location);
+            plugin.getSnapshotService().markEntityDirty(player.getUniqueId());
             if (success) {
                 return CommandResult.success(true);
             } else {
@@ -689,7 +835,7 @@ public class CommandHandler {
         }
     }
 
-    private static CommandResult handleGamemode(JsonObject params) {
+    private static CommandResult handleGamemode(MCPyLibPlugin plugin, JsonObject params) {
         // Validate parameters
         if (!params.has("username") || !params.has("mode")) {
             return CommandResult.error("Missing parameters: username, mode");
@@ -715,6 +861,8 @@ public class CommandHandler {
         // Set gamemode
         try {
             player.setGameMode(mode);
+            // list reports game modes, and it has no per-player dirty check
+            plugin.getSnapshotService().markAllDirty();
             return CommandResult.success(true);
         } catch (Exception e) {
             return CommandResult.error("Failed to set gamemode: " + e.getMessage());
@@ -847,7 +995,7 @@ public class CommandHandler {
         }
     }
 
-    private static CommandResult handleSummon(JsonObject params) {
+    private static CommandResult handleSummon(Session session, JsonObject params) {
         // Validate parameters
         if (!params.has("entity_type") || !params.has("x") || !params.has("y") || !params.has("z")) {
             return CommandResult.error("Missing parameters: entity_type, x, y, z");
@@ -883,13 +1031,91 @@ public class CommandHandler {
         // Summon entity
         try {
             Entity entity = world.spawnEntity(location, entityType);
+            // With handle: true, also return a session handle usable wherever a UUID is accepted
+            if (params.has("handle") && params.get("handle").getAsBoolean()) {
+                Map<String, Object> result = new HashMap<>();
+                result.put("uuid", entity.getUniqueId().toString());
+                result.put("handle", session.getEntities().handleFor(entity));
+                return CommandResult.success(result);
+            }
             return CommandResult.success(entity.getUniqueId().toString());
         } catch (Exception e) {
             return CommandResult.error("Failed to summon entity: " + e.getMessage());
         }
     }
 
-    private static CommandResult handleKill(JsonObject params) {
+    // Spawns one entity per position from a shared template, with optional per-entity overrides
+    // ([{index, ...template fields}]). Spawning is spread over ticks by the write engine. Entities
+    // that fail to spawn are reported by index, and the rest of the batch still spawns.
+    private static CommandResult handleSummonMany(MCPyLibPlugin plugin, Session session, JsonObject params) {
+        if (!params.has("template") || !params.has("positions")) {
+            return CommandResult.error("Missing parameters: template, positions");
+        }
+
+        JsonArray positionArray = params.getAsJsonArray("positions");
+        if (positionArray.size() % 3 != 0) {
+            return CommandResult.error("Invalid positions: expected x, y, z triples");
+        }
+        int count = positionArray.size() / 3;
+        int maxBatch = plugin.getConfig().getInt("entities.max-summon-batch", 10000);
+        if (count > maxBatch) {
+            return CommandResult.error("Too many entities (max " + maxBatch + "): " + count);
+        }
+        double[] positions = new double[positionArray.size()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = positionArray.get(i).getAsDouble();
+        }
+
+        EntityTemplate[] templates = new EntityTemplate[count];
+        try {
+            EntityTemplate template = EntityTemplate.fromJson(params.getAsJsonObject("template"));
+            java.util.Arrays.fill(templates, template);
+            if (params.has("overrides")) {
+                for (JsonElement element : params.getAsJsonArray("overrides")) {
+                    JsonObject override = element.getAsJsonObject();
+                    if (!override.has("index")) {
+                        return CommandResult.error("Missing parameter: index (in overrides)");
+                    }
+                    int index = override.get("index").getAsInt();
+                    if (index < 0 || index >= count) {
+                        return CommandResult.error("Invalid override index: " + index);
+                    }
+                    templates[index] = template.with(override);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            return CommandResult.error(e.getMessage());
+        }
+
+        boolean handles = params.has("handles") && params.get("handles").getAsBoolean();
+        World world = Bukkit.getWorlds().get(0);
+        return CommandResult.pending(plugin.getWriteEngine().submitSummon(world, templates, positions)
+            .handle((spawned, error) -> {
+                if (error != null) {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    return CommandResult.error("Failed to summon entities: " + cause.getMessage());
+                }
+                // Completes on the main thread, where handles may be allocated
+                List<Object> ids = new ArrayList<>();
+                List<Integer> failed = new ArrayList<>();
+                for (int i = 0; i < spawned.size(); i++) {
+                    Entity entity = spawned.get(i);
+                    if (entity == null) {
+                        ids.add(null);
+                        failed.add(i);
+                    } else {
+                        ids.add(handles ? session.getEntities().handleFor(entity) : entity.getUniqueId().toString());
+                    }
+                }
+                Map<String, Object> result = new HashMap<>();
+                result.put("count", ids.size() - failed.size());
+                result.put(handles ? "handles" : "uuids", ids);
+                result.put("failed", failed);
+                return CommandResult.success(result);
+            }));
+    }
+
+    private static CommandResult handleKill(MCPyLibPlugin plugin, JsonObject params) {
         // Validate parameters
         if (!params.has("selector")) {
             return CommandResult.error("Missing parameter: selector");
@@ -897,19 +1123,11 @@ public class CommandHandler {
 
         String selector = params.get("selector").getAsString();
         World world = Bukkit.getWorlds().get(0);
-        int count = 0;
-        int limit = 1000; // Max entities to kill
 
         try {
             if (selector.equalsIgnoreCase("all")) {
-                // Kill all entities except players
-                for (Entity entity : world.getEntities()) {
-                    if (!(entity instanceof Player)) {
-                        entity.remove();
-                        count++;
-                        if (count >= limit) break;
-                    }
-                }
+                // Remove all entities except players, spread over ticks
+                return pendingRemoval(plugin, world, null, entity -> true, "Failed to kill entities");
             } else if (selector.startsWith("player:")) {
                 // Kill specific player
                 String username = selector.substring("player:".length());
@@ -918,7 +1136,7 @@ public class CommandHandler {
                     return CommandResult.error("Player not found: " + username);
                 }
                 player.setHealth(0.0);
-                count = 1;
+                return CommandResult.success(1);
             } else {
                 // Kill entities of specific type
                 String entityTypeName = selector;
@@ -934,22 +1152,83 @@ public class CommandHandler {
                 }
 
                 // Remove entities of this type
-                for (Entity entity : world.getEntities()) {
-                    if (entity.getType() == targetType) {
-                        entity.remove();
-                        count++;
-                        if (count >= limit) break;
-                    }
-                }
+                return pendingRemoval(plugin, world, null, entity -> entity.getType() == targetType,
+                    "Failed to kill entities");
             }
-
-            return CommandResult.success(count);
         } catch (Exception e) {
             return CommandResult.error("Failed to kill entities: " + e.getMessage());
         }
     }
 
-    private static CommandResult handleClone(JsonObject params) {
+    // Removes entities over as many ticks as it takes. Filters: a region (x1..z2, block coordinates,
+    // inclusive), type, tag and min_age in ticks lived. Players are never removed.
+    private static CommandResult handleRemoveEntities(MCPyLibPlugin plugin, JsonObject params) {
+        boolean region = params.has("x1") && params.has("y1") && params.has("z1") &&
+            params.has("x2") && params.has("y2") && params.has("z2");
+        if (!region && (params.has("x1") || params.has("y1") || params.has("z1") ||
+            params.has("x2") || params.has("y2") || params.has("z2"))) {
+            return CommandResult.error("Missing parameters: x1, y1, z1, x2, y2, z2");
+        }
+
+        Set<EntityType> types;
+        try {
+            types = params.has("type") ? parseEntityTypes(params.get("type")) : null;
+        } catch (IllegalArgumentException e) {
+            return CommandResult.error(e.getMessage());
+        }
+        String tag = params.has("tag") ? params.get("tag").getAsString() : null;
+        int minAge = params.has("min_age") ? params.get("min_age").getAsInt() : 0;
+
+        BoundingBox bounds = null;
+        if (region) {
+            int x1 = params.get("x1").getAsInt();
+            int y1 = params.get("y1").getAsInt();
+            int z1 = params.get("z1").getAsInt();
+            int x2 = params.get("x2").getAsInt();
+            int y2 = params.get("y2").getAsInt();
+            int z2 = params.get("z2").getAsInt();
+            bounds = new BoundingBox(Math.min(x1, x2), Math.min(y1, y2), Math.min(z1, z2),
+                Math.max(x1, x2) + 1, Math.max(y1, y2) + 1, Math.max(z1, z2) + 1);
+        }
+
+        final BoundingBox box = bounds;
+        return pendingRemoval(plugin, Bukkit.getWorlds().get(0), box, entity ->
+            (types == null || types.contains(entity.getType())) &&
+            (tag == null || entity.getScoreboardTags().contains(tag)) &&
+            entity.getTicksLived() >= minAge &&
+            (box == null || box.contains(entity.getLocation().toVector())), "Failed to remove entities");
+    }
+
+    // Queues a removal job over the loaded chunks that overlap the bounds (every loaded chunk when
+    // bounds is null). Entities in unloaded chunks are left alone rather than loaded just to be removed.
+    private static CommandResult pendingRemoval(MCPyLibPlugin plugin, World world, BoundingBox bounds,
+                                                Predicate<Entity> filter, String failure) {
+        List<Long> keys = new ArrayList<>();
+        for (org.bukkit.Chunk chunk : world.getLoadedChunks()) {
+            int blockX = chunk.getX() << 4;
+            int blockZ = chunk.getZ() << 4;
+            if (bounds != null && (blockX >= bounds.getMaxX() || blockX + 16 <= bounds.getMinX() ||
+                blockZ >= bounds.getMaxZ() || blockZ + 16 <= bounds.getMinZ())) {
+                continue;
+            }
+            keys.add(((long) chunk.getX() << 32) | (chunk.getZ() & 0xFFFFFFFFL));
+        }
+        long[] chunks = new long[keys.size()];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = keys.get(i);
+        }
+
+        return CommandResult.pending(plugin.getWriteEngine().submitRemoval(world, chunks, filter)
+            .handle((removed, error) -> {
+                if (error != null) {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    return CommandResult.error(failure + ": " + cause.getMessage());
+                }
+                return CommandResult.success(removed);
+            }));
+    }
+
+    private static CommandResult handleClone(MCPyLibPlugin plugin, Session session, JsonObject params) {
         // Validate parameters
         if (!params.has("x1") || !params.has("y1") || !params.has("z1") ||
             !params.has("x2") || !params.has("y2") || !params.has("z2") ||
@@ -975,47 +1254,1202 @@ public class CommandHandler {
         int minZ = Math.min(z1, z2);
         int maxZ = Math.max(z1, z2);
 
-        // Check region size (limit to 32768 blocks)
-        int volume = (maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1);
-        if (volume > 32768) {
-            return CommandResult.error("Region too large (max 32768 blocks): " + volume);
+        // Bounded by the same limit as copy, since the source is buffered in memory
+        long volume = (long) (maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1);
+        long maxVolume = plugin.getConfig().getLong("edits.max-clipboard-volume", 16777216L);
+        if (volume > maxVolume) {
+            return CommandResult.error("Region too large (max " + maxVolume + " blocks): " + volume);
+        }
+
+        PhysicsMode physics;
+        try {
+            physics = PhysicsMode.fromParams(params, PhysicsMode.FULL);
+        } catch (IllegalArgumentException e) {
+            return CommandResult.error(e.getMessage());
+        }
+
+        boolean copyBlockEntities = !params.has("block_entities") || params.get("block_entities").getAsBoolean();
+
+        World world = Bukkit.getWorlds().get(0);
+
+        try {
+            // Snapshot the whole source before any write, so an overlapping destination never reads its own writes
+            RegionSnapshot snapshot = RegionSnapshot.capture(world, minX, minY, minZ, maxX, maxY, maxZ);
+            Map<Integer, BlockState> tiles = copyBlockEntities
+                ? Clipboard.captureTiles(world, minX, minY, minZ, maxX, maxY, maxZ) : new HashMap<>();
+
+            // Encode the source and lay out the destination off the main thread, then write it time-sliced
+            CompletableFuture<EditResult> edit = CompletableFuture.supplyAsync(() -> {
+                Clipboard clipboard = Clipboard.fromSnapshot(snapshot, minX, minY, minZ, tiles);
+                BlockBuffer buffer = new BlockBuffer();
+                clipboard.pasteInto(buffer, new PasteTransform(destX, destY, destZ,
+                    org.bukkit.block.structure.StructureRotation.NONE, org.bukkit.block.structure.Mirror.NONE), false);
+                return buffer;
+            }, plugin.getAsyncExecutor()).thenComposeAsync(
+                buffer -> submitJournaled(plugin, session, world, buffer, physics), plugin.getMainThreadExecutor());
+            return pendingEdit(edit, "Failed to clone region");
+        } catch (Exception e) {
+            return CommandResult.error("Failed to clone region: " + e.getMessage());
+        }
+    }
+
+    private static CommandResult handleShape(MCPyLibPlugin plugin, Session session, JsonObject params) {
+        if (!params.has("type")) {
+            return CommandResult.error("Missing parameters: type");
+        }
+
+        String type = params.get("type").getAsString().toLowerCase();
+        ShapeSource shape;
+        PhysicsMode physics;
+        try {
+            BlockPattern pattern = BlockPattern.fromParams(params);
+            physics = PhysicsMode.fromParams(params, PhysicsMode.NONE);
+
+            // thickness implies hollow; hollow alone means a one-block shell
+            int thickness = 0;
+            if (params.has("thickness")) {
+                thickness = params.get("thickness").getAsInt();
+                if (thickness < 1) {
+                    return CommandResult.error("Invalid thickness: " + thickness);
+                }
+            } else if (params.has("hollow") && params.get("hollow").getAsBoolean()) {
+                thickness = 1;
+            }
+
+            switch (type) {
+                case "sphere": {
+                    if (!params.has("x") || !params.has("y") || !params.has("z")) {
+                        return CommandResult.error("Missing parameters: x, y, z, radius");
+                    }
+                    double[] radii = shapeRadii(params, 3);
+                    shape = ShapeSource.sphere(params.get("x").getAsInt(), params.get("y").getAsInt(), params.get("z").getAsInt(),
+                        radii[0], radii[1], radii[2], pattern, thickness);
+                    break;
+                }
+                case "cylinder": {
+                    if (!params.has("x") || !params.has("y") || !params.has("z")) {
+                        return CommandResult.error("Missing parameters: x, y, z, radius");
+                    }
+                    double[] radii = shapeRadii(params, 2);
+                    int height = params.has("height") ? params.get("height").getAsInt() : 1;
+                    if (height < 1) {
+                        return CommandResult.error("Invalid height: " + height);
+                    }
+                    String axisName = params.has("axis") ? params.get("axis").getAsString().toLowerCase() : "y";
+                    int axis = "xyz".indexOf(axisName);
+                    if (axisName.length() != 1 || axis < 0) {
+                        return CommandResult.error("Invalid axis: " + axisName + " (valid: x, y, z)");
+                    }
+                    shape = ShapeSource.cylinder(params.get("x").getAsInt(), params.get("y").getAsInt(), params.get("z").getAsInt(),
+                        radii[0], radii[1], height, axis, pattern, thickness);
+                    break;
+                }
+                case "pyramid": {
+                    if (!params.has("x") || !params.has("y") || !params.has("z") || !params.has("radius")) {
+                        return CommandResult.error("Missing parameters: x, y, z, radius");
+                    }
+                    int radius = params.get("radius").getAsInt();
+                    int height = params.has("height") ? params.get("height").getAsInt() : radius + 1;
+                    if (radius < 0 || height < 1) {
+                        return CommandResult.error("Invalid pyramid size: radius " + radius + ", height " + height);
+                    }
+                    shape = ShapeSource.pyramid(params.get("x").getAsInt(), params.get("y").getAsInt(), params.get("z").getAsInt(),
+                        radius, height, pattern, thickness);
+                    break;
+                }
+                case "line": {
+                    if (!params.has("x1") || !params.has("y1") || !params.has("z1") ||
+                        !params.has("x2") || !params.has("y2") || !params.has("z2")) {
+                        return CommandResult.error("Missing parameters: x1, y1, z1, x2, y2, z2");
+                    }
+                    double radius = params.has("radius") ? params.get("radius").getAsDouble() : 0;
+                    if (radius < 0) {
+                        return CommandResult.error("Invalid radius: " + radius);
+                    }
+                    shape = ShapeSource.line(params.get("x1").getAsInt(), params.get("y1").getAsInt(), params.get("z1").getAsInt(),
+                        params.get("x2").getAsInt(), params.get("y2").getAsInt(), params.get("z2").getAsInt(), radius, pattern);
+                    break;
+                }
+                case "box": {
+                    if (!params.has("x1") || !params.has("y1") || !params.has("z1") ||
+                        !params.has("x2") || !params.has("y2") || !params.has("z2")) {
+                        return CommandResult.error("Missing parameters: x1, y1, z1, x2, y2, z2");
+                    }
+                    int x1 = params.get("x1").getAsInt();
+                    int y1 = params.get("y1").getAsInt();
+                    int z1 = params.get("z1").getAsInt();
+                    int x2 = params.get("x2").getAsInt();
+                    int y2 = params.get("y2").getAsInt();
+                    int z2 = params.get("z2").getAsInt();
+                    shape = ShapeSource.box(Math.min(x1, x2), Math.min(y1, y2), Math.min(z1, z2),
+                        Math.max(x1, x2), Math.max(y1, y2), Math.max(z1, z2), pattern, thickness);
+                    break;
+                }
+                default:
+                    return CommandResult.error("Unknown shape type: " + type + " (valid: sphere, cylinder, pyramid, line, box)");
+            }
+        } catch (IllegalArgumentException e) {
+            return CommandResult.error(e.getMessage());
+        }
+
+        // Every position in the bounding box is tested, so it is bounded like the other edits
+        long volume = shape.getVolume();
+        long maxVolume = plugin.getConfig().getLong("edits.max-clipboard-volume", 16777216L);
+        if (volume > maxVolume) {
+            return CommandResult.error("Shape too large (max " + maxVolume + " blocks): " + volume);
+        }
+
+        World world = Bukkit.getWorlds().get(0);
+
+        try {
+            return pendingEdit(submitJournaled(plugin, session, world, shape, physics), "Failed to draw shape");
+        } catch (Exception e) {
+            return CommandResult.error("Failed to draw shape: " + e.getMessage());
+        }
+    }
+
+    private static CommandResult handleReplace(MCPyLibPlugin plugin, Session session, JsonObject params) {
+        if (!params.has("from")) {
+            return CommandResult.error("Missing parameters: x1, y1, z1, x2, y2, z2, from, block or pattern");
+        }
+        return maskedEdit(plugin, session, params, params.get("from"), 0, 0, 0, "Failed to replace blocks");
+    }
+
+    private static CommandResult handleMaskFill(MCPyLibPlugin plugin, Session session, JsonObject params) {
+        if (!params.has("mask")) {
+            return CommandResult.error("Missing parameters: x1, y1, z1, x2, y2, z2, mask, block or pattern");
+        }
+
+        // The mask may be tested at a neighbor, e.g. [0, -1, 0] to fill above matching blocks
+        int offsetX = 0;
+        int offsetY = 0;
+        int offsetZ = 0;
+        if (params.has("offset")) {
+            JsonArray offset = params.getAsJsonArray("offset");
+            if (offset.size() != 3) {
+                return CommandResult.error("Invalid offset: expected [dx, dy, dz]");
+            }
+            offsetX = offset.get(0).getAsInt();
+            offsetY = offset.get(1).getAsInt();
+            offsetZ = offset.get(2).getAsInt();
+        }
+        return maskedEdit(plugin, session, params, params.get("mask"), offsetX, offsetY, offsetZ, "Failed to fill mask");
+    }
+
+    // Writes the pattern wherever the matcher accepts the block at position + offset. Matching runs
+    // on chunk snapshots off the main thread; only the matching positions are written.
+    private static CommandResult maskedEdit(MCPyLibPlugin plugin, Session session, JsonObject params, JsonElement mask,
+                                            int offsetX, int offsetY, int offsetZ, String failure) {
+        if (!params.has("x1") || !params.has("y1") || !params.has("z1") ||
+            !params.has("x2") || !params.has("y2") || !params.has("z2")) {
+            return CommandResult.error("Missing parameters: x1, y1, z1, x2, y2, z2");
+        }
+
+        BlockMatcher matcher;
+        BlockPattern pattern;
+        PhysicsMode physics;
+        try {
+            matcher = BlockMatcher.parse(mask);
+            pattern = BlockPattern.fromParams(params);
+            physics = PhysicsMode.fromParams(params, PhysicsMode.NONE);
+        } catch (IllegalArgumentException e) {
+            return CommandResult.error(e.getMessage());
+        }
+
+        World world = Bukkit.getWorlds().get(0);
+
+        int x1 = params.get("x1").getAsInt();
+        int y1 = params.get("y1").getAsInt();
+        int z1 = params.get("z1").getAsInt();
+        int x2 = params.get("x2").getAsInt();
+        int y2 = params.get("y2").getAsInt();
+        int z2 = params.get("z2").getAsInt();
+
+        int minX = Math.min(x1, x2);
+        int maxX = Math.max(x1, x2);
+        int minZ = Math.min(z1, z2);
+        int maxZ = Math.max(z1, z2);
+        // Only positions whose tested block lies inside the world can match
+        int minY = Math.max(Math.min(y1, y2), world.getMinHeight() - offsetY);
+        int maxY = Math.min(Math.max(y1, y2), world.getMaxHeight() - 1 - offsetY);
+        if (minY > maxY) {
+            return CommandResult.success(0);
+        }
+
+        // The region is snapshotted on the main thread, so it is bounded like copy
+        long volume = (long) (maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1);
+        long maxVolume = plugin.getConfig().getLong("edits.max-clipboard-volume", 16777216L);
+        if (volume > maxVolume) {
+            return CommandResult.error("Region too large (max " + maxVolume + " blocks): " + volume);
+        }
+
+        try {
+            RegionSnapshot snapshot = RegionSnapshot.capture(world, minX + offsetX, minY + offsetY, minZ + offsetZ,
+                maxX + offsetX, maxY + offsetY, maxZ + offsetZ);
+
+            CompletableFuture<EditResult> edit = CompletableFuture.supplyAsync(() -> {
+                BlockBuffer buffer = new BlockBuffer();
+                for (int x = minX; x <= maxX; x++) {
+                    for (int z = minZ; z <= maxZ; z++) {
+                        int testX = x + offsetX;
+                        int testZ = z + offsetZ;
+                        ChunkSnapshot chunk = snapshot.chunkAt(testX, testZ);
+                        for (int y = minY; y <= maxY; y++) {
+                            if (matcher.matches(chunk, testX & 15, y + offsetY, testZ & 15)) {
+                                buffer.set(x, y, z, pattern.apply(x, y, z));
+                            }
+                        }
+                    }
+                }
+                return buffer;
+            }, plugin.getAsyncExecutor()).thenComposeAsync(
+                buffer -> submitJournaled(plugin, session, world, buffer, physics), plugin.getMainThreadExecutor());
+            return pendingEdit(edit, failure);
+        } catch (Exception e) {
+            return CommandResult.error(failure + ": " + e.getMessage());
+        }
+    }
+
+    // "radius" for every axis, or "radii" with one value per axis
+    private static double[] shapeRadii(JsonObject params, int count) {
+        double[] radii = new double[count];
+        if (params.has("radii")) {
+            JsonArray values = params.getAsJsonArray("radii");
+            if (values.size() != count) {
+                throw new IllegalArgumentException("Invalid radii: expected " + count + " values");
+            }
+            for (int i = 0; i < count; i++) {
+                radii[i] = values.get(i).getAsDouble();
+            }
+        } else if (params.has("radius")) {
+            java.util.Arrays.fill(radii, params.get("radius").getAsDouble());
+        } else {
+            throw new IllegalArgumentException("Missing parameters: radius or radii");
+        }
+        for (double radius : radii) {
+            if (radius < 0) {
+                throw new IllegalArgumentException("Invalid radius: " + radius);
+            }
+        }
+        return radii;
+    }
+
+    // Hashes every 16x16x16 section overlapping the box, so clients can re-read only what changed.
+    // Snapshots of the loaded chunks are taken on the main thread; each chunk column is hashed on the
+    // worker pool. Chunks that are not loaded are counted in unloaded_chunks, not loaded.
+    private static CommandResult handleRegionHash(MCPyLibPlugin plugin, JsonObject params) {
+        if (!params.has("x1") || !params.has("y1") || !params.has("z1") ||
+            !params.has("x2") || !params.has("y2") || !params.has("z2")) {
+            return CommandResult.error("Missing parameters: x1, y1, z1, x2, y2, z2");
+        }
+
+        World world = Bukkit.getWorlds().get(0);
+
+        int x1 = params.get("x1").getAsInt();
+        int y1 = params.get("y1").getAsInt();
+        int z1 = params.get("z1").getAsInt();
+        int x2 = params.get("x2").getAsInt();
+        int y2 = params.get("y2").getAsInt();
+        int z2 = params.get("z2").getAsInt();
+
+        int minChunkX = Math.min(x1, x2) >> 4;
+        int maxChunkX = Math.max(x1, x2) >> 4;
+        int minChunkZ = Math.min(z1, z2) >> 4;
+        int maxChunkZ = Math.max(z1, z2) >> 4;
+        int worldMinSection = world.getMinHeight() >> 4;
+        int minSectionY = Math.max(Math.min(y1, y2), world.getMinHeight()) >> 4;
+        int maxSectionY = Math.min(Math.max(y1, y2), world.getMaxHeight() - 1) >> 4;
+        if (minSectionY > maxSectionY) {
+            Map<String, Object> result = new HashMap<>();
+            result.put("sections", new ArrayList<>());
+            result.put("unloaded_chunks", 0);
+            return CommandResult.success(result);
+        }
+
+        long volume = (long) (maxChunkX - minChunkX + 1) * (maxChunkZ - minChunkZ + 1)
+            * (maxSectionY - minSectionY + 1) * 4096;
+        long maxVolume = plugin.getConfig().getLong("workers.max-scan-volume", 67108864L);
+        if (volume > maxVolume) {
+            return CommandResult.error("Region too large (max " + maxVolume + " blocks): " + volume);
+        }
+
+        try {
+            RegionSnapshot snapshot = RegionSnapshot.captureLoaded(world, minChunkX << 4, minSectionY << 4, minChunkZ << 4,
+                (maxChunkX << 4) + 15, (maxSectionY << 4) + 15, (maxChunkZ << 4) + 15, false);
+
+            List<CompletableFuture<List<Map<String, Object>>>> columns = new ArrayList<>();
+            for (int cx = minChunkX; cx <= maxChunkX; cx++) {
+                for (int cz = minChunkZ; cz <= maxChunkZ; cz++) {
+                    ChunkSnapshot chunk = snapshot.chunkAt(cx << 4, cz << 4);
+                    if (chunk == null) {
+                        continue;
+                    }
+                    int chunkX = cx;
+                    int chunkZ = cz;
+                    columns.add(CompletableFuture.supplyAsync(() -> {
+                        SectionHash.Hasher hasher = new SectionHash.Hasher();
+                        List<Map<String, Object>> sections = new ArrayList<>();
+                        for (int sy = minSectionY; sy <= maxSectionY; sy++) {
+                            Map<String, Object> section = new HashMap<>();
+                            section.put("x", chunkX);
+                            section.put("y", sy);
+                            section.put("z", chunkZ);
+                            section.put("hash", String.format("%016x", hasher.hash(chunk, sy, worldMinSection)));
+                            sections.add(section);
+                        }
+                        return sections;
+                    }, plugin.getWorkerPool()));
+                }
+            }
+
+            return CommandResult.pending(CompletableFuture.allOf(columns.toArray(new CompletableFuture[0]))
+                .handle((ignored, error) -> {
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                        return CommandResult.error("Failed to hash region: " + cause.getMessage());
+                    }
+                    List<Map<String, Object>> sections = new ArrayList<>();
+                    for (CompletableFuture<List<Map<String, Object>>> column : columns) {
+                        sections.addAll(column.join());
+                    }
+                    Map<String, Object> result = new HashMap<>();
+                    result.put("sections", sections);
+                    result.put("unloaded_chunks", snapshot.getUnloadedChunks());
+                    return CommandResult.success(result);
+                }));
+        } catch (Exception e) {
+            return CommandResult.error("Failed to hash region: " + e.getMessage());
+        }
+    }
+
+    // Positions of the blocks a matcher accepts, as base64 varint triples dx, dy, dz from the minimum
+    // corner. Every chunk column is scanned in parallel on the worker pool.
+    private static CommandResult handleFindBlocks(MCPyLibPlugin plugin, JsonObject params) {
+        if (!params.has("x1") || !params.has("y1") || !params.has("z1") ||
+            !params.has("x2") || !params.has("y2") || !params.has("z2") || !params.has("match")) {
+            return CommandResult.error("Missing parameters: x1, y1, z1, x2, y2, z2, match");
+        }
+
+        BlockMatcher matcher;
+        try {
+            matcher = BlockMatcher.parse(params.get("match"));
+        } catch (IllegalArgumentException e) {
+            return CommandResult.error(e.getMessage());
+        }
+        int limit = params.has("limit") ? params.get("limit").getAsInt() : Integer.MAX_VALUE;
+        if (limit <= 0) {
+            return CommandResult.error("Invalid limit: " + limit);
+        }
+        boolean byChunk = params.has("group_by_chunk") && params.get("group_by_chunk").getAsBoolean();
+
+        World world = Bukkit.getWorlds().get(0);
+
+        int x1 = params.get("x1").getAsInt();
+        int y1 = params.get("y1").getAsInt();
+        int z1 = params.get("z1").getAsInt();
+        int x2 = params.get("x2").getAsInt();
+        int y2 = params.get("y2").getAsInt();
+        int z2 = params.get("z2").getAsInt();
+
+        int minX = Math.min(x1, x2);
+        int maxX = Math.max(x1, x2);
+        int minZ = Math.min(z1, z2);
+        int maxZ = Math.max(z1, z2);
+        int minY = Math.max(Math.min(y1, y2), world.getMinHeight());
+        int maxY = Math.min(Math.max(y1, y2), world.getMaxHeight() - 1);
+
+        long volume = (long) (maxX - minX + 1) * Math.max(0, maxY - minY + 1) * (maxZ - minZ + 1);
+        long maxVolume = plugin.getConfig().getLong("workers.max-scan-volume", 67108864L);
+        if (volume > maxVolume) {
+            return CommandResult.error("Region too large (max " + maxVolume + " blocks): " + volume);
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("x", minX);
+        result.put("y", minY);
+        result.put("z", minZ);
+        if (minY > maxY) {
+            result.put("count", 0);
+            result.put("truncated", false);
+            result.put("unloaded_chunks", 0);
+            if (byChunk) {
+                result.put("chunks", new ArrayList<>());
+            } else {
+                result.put("blocks", "");
+            }
+            return CommandResult.success(result);
+        }
+
+        // Empty sections hold only air variants, so they can be skipped unless the matcher accepts one
+        boolean matchesAir = matcher.matches(Material.AIR.createBlockData())
+            || matcher.matches(Material.CAVE_AIR.createBlockData())
+            || matcher.matches(Material.VOID_AIR.createBlockData());
+        int worldMinSection = world.getMinHeight() >> 4;
+
+        try {
+            // Only loaded chunks are scanned; the rest are counted in unloaded_chunks
+            RegionSnapshot snapshot = RegionSnapshot.captureLoaded(world, minX, minY, minZ, maxX, maxY, maxZ, false);
+
+            // Workers stop once the limit is reached; every chunk keeps its matches in scan order
+            java.util.concurrent.atomic.AtomicInteger found = new java.util.concurrent.atomic.AtomicInteger();
+            List<int[]> chunkCoords = new ArrayList<>();
+            List<CompletableFuture<int[]>> chunks = new ArrayList<>();
+            for (int cx = minX >> 4; cx <= maxX >> 4; cx++) {
+                for (int cz = minZ >> 4; cz <= maxZ >> 4; cz++) {
+                    ChunkSnapshot chunk = snapshot.chunkAt(cx << 4, cz << 4);
+                    if (chunk == null) {
+                        continue;
+                    }
+                    int x0 = Math.max(minX, cx << 4);
+                    int xEnd = Math.min(maxX, (cx << 4) + 15);
+                    int z0 = Math.max(minZ, cz << 4);
+                    int zEnd = Math.min(maxZ, (cz << 4) + 15);
+                    chunkCoords.add(new int[] {cx, cz});
+                    chunks.add(CompletableFuture.supplyAsync(() -> {
+                        int[] matches = new int[16];
+                        int count = 0;
+                        // Scanning stops at limit + 1, which shows whether anything was left out
+                        for (int y = minY; y <= maxY && found.get() <= limit; y++) {
+                            if (!matchesAir && (y == minY || (y & 15) == 0)
+                                && chunk.isSectionEmpty((y >> 4) - worldMinSection)) {
+                                y |= 15;
+                                continue;
+                            }
+                            for (int z = z0; z <= zEnd; z++) {
+                                for (int x = x0; x <= xEnd; x++) {
+                                    if (!matcher.matches(chunk, x & 15, y, z & 15)) {
+                                        continue;
+                                    }
+                                    if (found.incrementAndGet() > limit) {
+                                        return java.util.Arrays.copyOf(matches, count);
+                                    }
+                                    if (count + 3 > matches.length) {
+                                        matches = java.util.Arrays.copyOf(matches, matches.length * 2);
+                                    }
+                                    matches[count++] = x - minX;
+                                    matches[count++] = y - minY;
+                                    matches[count++] = z - minZ;
+                                }
+                            }
+                        }
+                        return java.util.Arrays.copyOf(matches, count);
+                    }, plugin.getWorkerPool()));
+                }
+            }
+
+            return CommandResult.pending(CompletableFuture.allOf(chunks.toArray(new CompletableFuture[0]))
+                .handle((ignored, error) -> {
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                        return CommandResult.error("Failed to find blocks: " + cause.getMessage());
+                    }
+
+                    int total = 0;
+                    java.io.ByteArrayOutputStream packed = new java.io.ByteArrayOutputStream();
+                    List<Map<String, Object>> groups = new ArrayList<>();
+                    for (int i = 0; i < chunks.size() && total < limit; i++) {
+                        int[] matches = chunks.get(i).join();
+                        int take = Math.min(matches.length / 3, limit - total);
+                        if (take == 0) {
+                            continue;
+                        }
+                        if (byChunk) {
+                            packed = new java.io.ByteArrayOutputStream();
+                        }
+                        for (int j = 0; j < take * 3; j++) {
+                            VarInts.write(packed, matches[j]);
+                        }
+                        total += take;
+                        if (byChunk) {
+                            Map<String, Object> group = new HashMap<>();
+                            group.put("x", chunkCoords.get(i)[0]);
+                            group.put("z", chunkCoords.get(i)[1]);
+                            group.put("count", take);
+                            group.put("blocks", java.util.Base64.getEncoder().encodeToString(packed.toByteArray()));
+                            groups.add(group);
+                        }
+                    }
+
+                    result.put("count", total);
+                    // More than limit matches exist, so some were left out
+                    result.put("truncated", found.get() > limit);
+                    result.put("unloaded_chunks", snapshot.getUnloadedChunks());
+                    if (byChunk) {
+                        result.put("chunks", groups);
+                    } else {
+                        result.put("blocks", java.util.Base64.getEncoder().encodeToString(packed.toByteArray()));
+                    }
+                    return CommandResult.success(result);
+                }));
+        } catch (Exception e) {
+            return CommandResult.error("Failed to find blocks: " + e.getMessage());
+        }
+    }
+
+    // Block counts per material, optionally per Y layer, over the loaded chunks. Only the snapshot
+    // capture runs on the main thread; the counting is a fork/join task on the worker pool.
+    private static CommandResult handleRegionStats(MCPyLibPlugin plugin, JsonObject params) {
+        if (!params.has("x1") || !params.has("y1") || !params.has("z1") ||
+            !params.has("x2") || !params.has("y2") || !params.has("z2")) {
+            return CommandResult.error("Missing parameters: x1, y1, z1, x2, y2, z2");
+        }
+        boolean layers = params.has("layers") && params.get("layers").getAsBoolean();
+
+        World world = Bukkit.getWorlds().get(0);
+
+        int x1 = params.get("x1").getAsInt();
+        int y1 = params.get("y1").getAsInt();
+        int z1 = params.get("z1").getAsInt();
+        int x2 = params.get("x2").getAsInt();
+        int y2 = params.get("y2").getAsInt();
+        int z2 = params.get("z2").getAsInt();
+
+        int minX = Math.min(x1, x2);
+        int maxX = Math.max(x1, x2);
+        int minZ = Math.min(z1, z2);
+        int maxZ = Math.max(z1, z2);
+        int minY = Math.max(Math.min(y1, y2), world.getMinHeight());
+        int maxY = Math.min(Math.max(y1, y2), world.getMaxHeight() - 1);
+        if (minY > maxY) {
+            // Nothing to count, as with find_blocks
+            Map<String, Object> result = new HashMap<>();
+            result.put("total", 0);
+            result.put("counts", new HashMap<>());
+            result.put("unloaded_chunks", 0);
+            if (layers) {
+                result.put("layers", new ArrayList<>());
+            }
+            return CommandResult.success(result);
+        }
+
+        long volume = (long) (maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1);
+        long maxVolume = plugin.getConfig().getLong("workers.max-scan-volume", 67108864L);
+        if (volume > maxVolume) {
+            return CommandResult.error("Region too large (max " + maxVolume + " blocks): " + volume);
+        }
+
+        try {
+            RegionSnapshot snapshot = RegionSnapshot.captureLoaded(world, minX, minY, minZ, maxX, maxY, maxZ, false);
+            RegionStats stats = RegionStats.of(snapshot, layers, plugin.getWorkerPool().getParallelism());
+
+            return CommandResult.pending(CompletableFuture.supplyAsync(stats::invoke, plugin.getWorkerPool())
+                .handle((counts, error) -> {
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                        return CommandResult.error("Failed to compute region stats: " + cause.getMessage());
+                    }
+
+                    long total = 0;
+                    Map<String, Integer> totals = new HashMap<>();
+                    List<Map<String, Object>> layerCounts = new ArrayList<>();
+                    for (int layer = 0; layer < counts.getLayers(); layer++) {
+                        Map<String, Integer> layerTotals = new HashMap<>();
+                        for (int slot = 0; slot < counts.size(); slot++) {
+                            int count = counts.get(layer, slot);
+                            if (count > 0) {
+                                String name = "minecraft:" + counts.getMaterial(slot).name().toLowerCase();
+                                layerTotals.put(name, count);
+                                totals.merge(name, count, Integer::sum);
+                                total += count;
+                            }
+                        }
+                        if (layers) {
+                            Map<String, Object> entry = new HashMap<>();
+                            entry.put("y", minY + layer);
+                            entry.put("counts", layerTotals);
+                            layerCounts.add(entry);
+                        }
+                    }
+
+                    Map<String, Object> result = new HashMap<>();
+                    result.put("total", total);
+                    result.put("counts", totals);
+                    result.put("unloaded_chunks", snapshot.getUnloadedChunks());
+                    if (layers) {
+                        result.put("layers", layerCounts);
+                    }
+                    return CommandResult.success(result);
+                }));
+        } catch (Exception e) {
+            return CommandResult.error("Failed to compute region stats: " + e.getMessage());
+        }
+    }
+
+    private static final int MAX_HEIGHTMAP_COLUMNS = 1 << 20;
+    private static final short UNLOADED_HEIGHT = Short.MIN_VALUE;
+
+    // Surface Y of every column in an XZ rectangle, packed as little-endian shorts in base64 with
+    // index dz * width + dx. Columns are scanned on chunk snapshots on the worker pool. Chunks that
+    // are not loaded are skipped rather than loaded; their columns hold UNLOADED_HEIGHT.
+    private static CommandResult handleHeightmap(MCPyLibPlugin plugin, JsonObject params) {
+        if (!params.has("x1") || !params.has("z1") || !params.has("x2") || !params.has("z2")) {
+            return CommandResult.error("Missing parameters: x1, z1, x2, z2");
+        }
+
+        org.bukkit.HeightMap type = org.bukkit.HeightMap.WORLD_SURFACE;
+        if (params.has("type")) {
+            try {
+                type = org.bukkit.HeightMap.valueOf(params.get("type").getAsString().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                return CommandResult.error("Invalid heightmap type: " + params.get("type").getAsString());
+            }
+        }
+        boolean materials = params.has("materials") && params.get("materials").getAsBoolean();
+
+        World world = Bukkit.getWorlds().get(0);
+
+        int x1 = params.get("x1").getAsInt();
+        int z1 = params.get("z1").getAsInt();
+        int x2 = params.get("x2").getAsInt();
+        int z2 = params.get("z2").getAsInt();
+
+        int minX = Math.min(x1, x2);
+        int maxX = Math.max(x1, x2);
+        int minZ = Math.min(z1, z2);
+        int maxZ = Math.max(z1, z2);
+        int width = maxX - minX + 1;
+        int length = maxZ - minZ + 1;
+        if ((long) width * length > MAX_HEIGHTMAP_COLUMNS) {
+            return CommandResult.error("Region too large (max " + MAX_HEIGHTMAP_COLUMNS + " columns): "
+                + (long) width * length);
+        }
+
+        int minY = world.getMinHeight();
+        int maxY = world.getMaxHeight() - 1;
+        org.bukkit.HeightMap heightMap = type;
+
+        try {
+            RegionSnapshot snapshot = RegionSnapshot.captureLoaded(world, minX, minY, minZ, maxX, maxY, maxZ, false);
+
+            // Each task fills the columns of one chunk, so the tasks never write the same index
+            short[] heights = new short[width * length];
+            Material[] surface = materials ? new Material[width * length] : null;
+            List<CompletableFuture<Void>> chunks = new ArrayList<>();
+            for (int cx = minX >> 4; cx <= maxX >> 4; cx++) {
+                for (int cz = minZ >> 4; cz <= maxZ >> 4; cz++) {
+                    ChunkSnapshot chunk = snapshot.chunkAt(cx << 4, cz << 4);
+                    int x0 = Math.max(minX, cx << 4);
+                    int xEnd = Math.min(maxX, (cx << 4) + 15);
+                    int z0 = Math.max(minZ, cz << 4);
+                    int zEnd = Math.min(maxZ, (cz << 4) + 15);
+                    chunks.add(CompletableFuture.runAsync(() -> {
+                        for (int z = z0; z <= zEnd; z++) {
+                            for (int x = x0; x <= xEnd; x++) {
+                                int index = (z - minZ) * width + (x - minX);
+                                // Surface stays null, which the palette reports as null
+                                if (chunk == null) {
+                                    heights[index] = UNLOADED_HEIGHT;
+                                    continue;
+                                }
+                                int y = surfaceY(chunk, x & 15, z & 15, heightMap, minY, maxY);
+                                heights[index] = (short) y;
+                                if (surface != null) {
+                                    surface[index] = y < minY ? Material.AIR : chunk.getBlockType(x & 15, y, z & 15);
+                                }
+                            }
+                        }
+                    }, plugin.getWorkerPool()));
+                }
+            }
+
+            return CommandResult.pending(CompletableFuture.allOf(chunks.toArray(new CompletableFuture[0]))
+                .handle((ignored, error) -> {
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                        return CommandResult.error("Failed to read heightmap: " + cause.getMessage());
+                    }
+
+                    ByteBuffer packed = ByteBuffer.allocate(heights.length * 2)
+                        .order(java.nio.ByteOrder.LITTLE_ENDIAN);
+                    packed.asShortBuffer().put(heights);
+
+                    Map<String, Object> result = new HashMap<>();
+                    result.put("x", minX);
+                    result.put("z", minZ);
+                    result.put("width", width);
+                    result.put("length", length);
+                    result.put("heights", java.util.Base64.getEncoder().encodeToString(packed.array()));
+                    result.put("unloaded_chunks", snapshot.getUnloadedChunks());
+
+                    if (surface != null) {
+                        // Palette index per column, packed the same way as the heights
+                        Map<Material, Integer> indexes = new HashMap<>();
+                        List<String> palette = new ArrayList<>();
+                        ByteBuffer surfacePacked = ByteBuffer.allocate(surface.length * 2)
+                            .order(java.nio.ByteOrder.LITTLE_ENDIAN);
+                        for (Material material : surface) {
+                            Integer index = indexes.get(material);
+                            if (index == null) {
+                                index = palette.size();
+                                indexes.put(material, index);
+                                palette.add(material == null ? null : "minecraft:" + material.name().toLowerCase());
+                            }
+                            surfacePacked.putShort((short) (int) index);
+                        }
+                        result.put("palette", palette);
+                        result.put("surface", java.util.Base64.getEncoder().encodeToString(surfacePacked.array()));
+                    }
+                    return CommandResult.success(result);
+                }));
+        } catch (Exception e) {
+            return CommandResult.error("Failed to read heightmap: " + e.getMessage());
+        }
+    }
+
+    // Y of the highest block the heightmap counts, or minY - 1 when the column has none.
+    // The snapshot's own heightmap is the world surface, so the scan starts there.
+    private static int surfaceY(ChunkSnapshot chunk, int localX, int localZ, org.bukkit.HeightMap type,
+                                int minY, int maxY) {
+        for (int y = Math.min(chunk.getHighestBlockYAt(localX, localZ), maxY); y >= minY; y--) {
+            Material material = chunk.getBlockType(localX, y, localZ);
+            if (material.isAir()) {
+                continue;
+            }
+            switch (type) {
+                case WORLD_SURFACE:
+                case WORLD_SURFACE_WG:
+                    return y;
+                case OCEAN_FLOOR:
+                case OCEAN_FLOOR_WG:
+                    if (material.isSolid()) {
+                        return y;
+                    }
+                    break;
+                case MOTION_BLOCKING_NO_LEAVES:
+                    if (org.bukkit.Tag.LEAVES.isTagged(material)) {
+                        break;
+                    }
+                    // fall through
+                default:
+                    if (material.isSolid() || holdsFluid(material, chunk, localX, y, localZ)) {
+                        return y;
+                    }
+                    break;
+            }
+        }
+        return minY - 1;
+    }
+
+    // Fluids and blocks with a fluid in them, which vanilla's motion-blocking heightmaps count
+    private static boolean holdsFluid(Material material, ChunkSnapshot chunk, int localX, int y, int localZ) {
+        switch (material) {
+            case WATER:
+            case LAVA:
+            case BUBBLE_COLUMN:
+            case KELP:
+            case KELP_PLANT:
+            case SEAGRASS:
+            case TALL_SEAGRASS:
+                return true;
+            default:
+                BlockData data = chunk.getBlockData(localX, y, localZ);
+                return data instanceof org.bukkit.block.data.Waterlogged
+                    && ((org.bukkit.block.data.Waterlogged) data).isWaterlogged();
+        }
+    }
+
+    // Describes every supported block entity in the box. Item stacks go into a shared table that
+    // container slots refer to by index, so a chest full of the same loot costs one spec. Only
+    // loaded chunks are read; a region read must not load or generate chunks on the main thread.
+    private static CommandResult handleGetBlockEntities(MCPyLibPlugin plugin, JsonObject params) {
+        if (!params.has("x1") || !params.has("y1") || !params.has("z1") ||
+            !params.has("x2") || !params.has("y2") || !params.has("z2")) {
+            return CommandResult.error("Missing parameters: x1, y1, z1, x2, y2, z2");
+        }
+
+        World world = Bukkit.getWorlds().get(0);
+
+        int x1 = params.get("x1").getAsInt();
+        int y1 = params.get("y1").getAsInt();
+        int z1 = params.get("z1").getAsInt();
+        int x2 = params.get("x2").getAsInt();
+        int y2 = params.get("y2").getAsInt();
+        int z2 = params.get("z2").getAsInt();
+
+        int minX = Math.min(x1, x2);
+        int maxX = Math.max(x1, x2);
+        int minY = Math.min(y1, y2);
+        int maxY = Math.max(y1, y2);
+        int minZ = Math.min(z1, z2);
+        int maxZ = Math.max(z1, z2);
+
+        long volume = (long) (maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1);
+        long maxVolume = plugin.getConfig().getLong("edits.max-clipboard-volume", 16777216L);
+        if (volume > maxVolume) {
+            return CommandResult.error("Region too large (max " + maxVolume + " blocks): " + volume);
+        }
+
+        try {
+            BlockEntities.ItemTable items = new BlockEntities.ItemTable();
+            List<Map<String, Object>> entities = new ArrayList<>();
+            int unloaded = 0;
+            for (int cx = minX >> 4; cx <= maxX >> 4; cx++) {
+                for (int cz = minZ >> 4; cz <= maxZ >> 4; cz++) {
+                    if (!world.isChunkLoaded(cx, cz)) {
+                        unloaded++;
+                        continue;
+                    }
+                    for (BlockState state : world.getChunkAt(cx, cz).getTileEntities()) {
+                        int x = state.getX();
+                        int y = state.getY();
+                        int z = state.getZ();
+                        if (x < minX || x > maxX || y < minY || y > maxY || z < minZ || z > maxZ) {
+                            continue;
+                        }
+                        Map<String, Object> entity = BlockEntities.describe(state, items);
+                        if (entity == null) {
+                            continue;
+                        }
+                        entity.put("x", x);
+                        entity.put("y", y);
+                        entity.put("z", z);
+                        entity.put("type", state.getType().getKey().toString());
+                        entities.add(entity);
+                    }
+                }
+            }
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("items", items.getSpecs());
+            result.put("block_entities", entities);
+            result.put("unloaded_chunks", unloaded);
+            return CommandResult.success(result);
+        } catch (Exception e) {
+            return CommandResult.error("Failed to get block entities: " + e.getMessage());
+        }
+    }
+
+    // Applies block entity descriptions in the format get_block_entities returns. Every record is
+    // checked against a fresh state first, and the states are only written once all of them are valid.
+    private static CommandResult handleSetBlockEntities(Session session, JsonObject params) {
+        if (!params.has("block_entities")) {
+            return CommandResult.error("Missing parameters: block_entities");
+        }
+
+        World world = Bukkit.getWorlds().get(0);
+
+        List<String> items = new ArrayList<>();
+        if (params.has("items")) {
+            for (JsonElement item : params.getAsJsonArray("items")) {
+                items.add(item.getAsString());
+            }
+        }
+
+        JsonArray records = params.getAsJsonArray("block_entities");
+        List<BlockState> states = new ArrayList<>();
+        JournalEntry journal = new JournalEntry(world);
+        for (int i = 0; i < records.size(); i++) {
+            JsonObject record = records.get(i).getAsJsonObject();
+            if (!record.has("x") || !record.has("y") || !record.has("z")) {
+                return CommandResult.error("Missing 'x', 'y' or 'z' in block entity " + i);
+            }
+            int x = record.get("x").getAsInt();
+            int y = record.get("y").getAsInt();
+            int z = record.get("z").getAsInt();
+
+            Block block = world.getBlockAt(x, y, z);
+            BlockState state = block.getState();
+            if (!(state instanceof org.bukkit.block.TileState)) {
+                return CommandResult.error("No block entity at " + x + ", " + y + ", " + z);
+            }
+            try {
+                BlockEntities.apply(state, record, items);
+            } catch (IllegalArgumentException e) {
+                return CommandResult.error("Invalid block entity at " + x + ", " + y + ", " + z + ": " + e.getMessage());
+            }
+            journal.record(x, y, z, block.getBlockData(), block.getState());
+            states.add(state);
+        }
+
+        try {
+            for (BlockState state : states) {
+                state.update(true, false);
+            }
+            session.getJournal().record(journal);
+            return CommandResult.success(states.size());
+        } catch (Exception e) {
+            return CommandResult.error("Failed to set block entities: " + e.getMessage());
+        }
+    }
+
+    // Named clipboards are shared by every connection; unnamed ones belong to the session
+    private static final Map<String, Clipboard> clipboards = new HashMap<>();
+
+    private static CommandResult handleCopy(MCPyLibPlugin plugin, Session session, JsonObject params) {
+        if (!params.has("x1") || !params.has("y1") || !params.has("z1") ||
+            !params.has("x2") || !params.has("y2") || !params.has("z2")) {
+            return CommandResult.error("Missing parameters: x1, y1, z1, x2, y2, z2");
+        }
+
+        CompletableFuture<Clipboard> copy;
+        try {
+            copy = copyRegion(plugin, params);
+        } catch (IllegalArgumentException e) {
+            return CommandResult.error(e.getMessage());
+        } catch (Exception e) {
+            return CommandResult.error("Failed to copy region: " + e.getMessage());
+        }
+
+        // Store the finished clipboard back on the main thread, where the clipboards are read
+        return CommandResult.pending(copy.handleAsync((clipboard, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                return CommandResult.error("Failed to copy region: " + cause.getMessage());
+            }
+            if (params.has("name")) {
+                clipboards.put(params.get("name").getAsString(), clipboard);
+            } else {
+                session.setClipboard(clipboard);
+            }
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("width", clipboard.getWidth());
+            result.put("height", clipboard.getHeight());
+            result.put("length", clipboard.getLength());
+            result.put("count", clipboard.getVolume());
+            result.put("palette", clipboard.getPalette().size());
+            result.put("block_entities", clipboard.getTiles().size());
+            return CommandResult.success(result);
+        }, plugin.getMainThreadExecutor()));
+    }
+
+    // Reads x1..z2 and the optional origin, snapshots the box and builds the clipboard off the main thread
+    private static CompletableFuture<Clipboard> copyRegion(MCPyLibPlugin plugin, JsonObject params) {
+        int x1 = params.get("x1").getAsInt();
+        int y1 = params.get("y1").getAsInt();
+        int z1 = params.get("z1").getAsInt();
+        int x2 = params.get("x2").getAsInt();
+        int y2 = params.get("y2").getAsInt();
+        int z2 = params.get("z2").getAsInt();
+
+        int minX = Math.min(x1, x2);
+        int maxX = Math.max(x1, x2);
+        int minY = Math.min(y1, y2);
+        int maxY = Math.max(y1, y2);
+        int minZ = Math.min(z1, z2);
+        int maxZ = Math.max(z1, z2);
+
+        long volume = (long) (maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1);
+        long maxVolume = plugin.getConfig().getLong("edits.max-clipboard-volume", 16777216L);
+        if (volume > maxVolume) {
+            throw new IllegalArgumentException("Region too large (max " + maxVolume + " blocks): " + volume);
+        }
+
+        // The origin is the point that lands on the paste position; defaults to the minimum corner
+        int originX = minX;
+        int originY = minY;
+        int originZ = minZ;
+        if (params.has("origin")) {
+            JsonArray origin = params.getAsJsonArray("origin");
+            if (origin.size() != 3) {
+                throw new IllegalArgumentException("Invalid origin: expected [x, y, z]");
+            }
+            originX = origin.get(0).getAsInt();
+            originY = origin.get(1).getAsInt();
+            originZ = origin.get(2).getAsInt();
+        }
+
+        World world = Bukkit.getWorlds().get(0);
+        RegionSnapshot snapshot = RegionSnapshot.capture(world, minX, minY, minZ, maxX, maxY, maxZ);
+        Map<Integer, BlockState> tiles = Clipboard.captureTiles(world, minX, minY, minZ, maxX, maxY, maxZ);
+        int ox = originX;
+        int oy = originY;
+        int oz = originZ;
+        return CompletableFuture.supplyAsync(() -> Clipboard.fromSnapshot(snapshot, ox, oy, oz, tiles),
+            plugin.getAsyncExecutor());
+    }
+
+    private static CommandResult handlePaste(MCPyLibPlugin plugin, Session session, JsonObject params) {
+        if (!params.has("x") || !params.has("y") || !params.has("z")) {
+            return CommandResult.error("Missing parameters: x, y, z");
+        }
+
+        int x = params.get("x").getAsInt();
+        int y = params.get("y").getAsInt();
+        int z = params.get("z").getAsInt();
+
+        Clipboard clipboard;
+        if (params.has("name")) {
+            String name = params.get("name").getAsString();
+            clipboard = clipboards.get(name);
+            if (clipboard == null) {
+                return CommandResult.error("Clipboard not found: " + name);
+            }
+        } else {
+            clipboard = session.getClipboard();
+            if (clipboard == null) {
+                return CommandResult.error("Clipboard is empty: copy a region first");
+            }
+        }
+
+        org.bukkit.block.structure.StructureRotation rotation;
+        org.bukkit.block.structure.Mirror mirror;
+        try {
+            rotation = PasteTransform.parseRotation(params.has("rotate") ? params.get("rotate").getAsInt() : 0);
+            mirror = PasteTransform.parseMirror(params.has("mirror") ? params.get("mirror").getAsString() : "none");
+        } catch (IllegalArgumentException e) {
+            return CommandResult.error(e.getMessage());
+        }
+
+        boolean ignoreAir = params.has("ignore_air") && params.get("ignore_air").getAsBoolean();
+
+        // Repeated pastes step by offset from one copy to the next
+        int repeat = params.has("repeat") ? params.get("repeat").getAsInt() : 1;
+        if (repeat < 1) {
+            return CommandResult.error("Invalid repeat: " + repeat);
+        }
+        int stepX = 0;
+        int stepY = 0;
+        int stepZ = 0;
+        if (params.has("offset")) {
+            JsonArray offset = params.getAsJsonArray("offset");
+            if (offset.size() != 3) {
+                return CommandResult.error("Invalid offset: expected [dx, dy, dz]");
+            }
+            stepX = offset.get(0).getAsInt();
+            stepY = offset.get(1).getAsInt();
+            stepZ = offset.get(2).getAsInt();
+        } else if (repeat > 1) {
+            return CommandResult.error("Missing parameters: offset (required when repeat > 1)");
+        }
+
+        // Every copy is laid out in one buffer, so the total is bounded like a single copy
+        long volume = clipboard.getVolume() * repeat;
+        long maxVolume = plugin.getConfig().getLong("edits.max-clipboard-volume", 16777216L);
+        if (volume > maxVolume) {
+            return CommandResult.error("Paste too large (max " + maxVolume + " blocks): " + volume);
+        }
+
+        PhysicsMode physics;
+        try {
+            physics = PhysicsMode.fromParams(params, PhysicsMode.NONE);
+        } catch (IllegalArgumentException e) {
+            return CommandResult.error(e.getMessage());
+        }
+
+        World world = Bukkit.getWorlds().get(0);
+
+        int dx = stepX;
+        int dy = stepY;
+        int dz = stepZ;
+        try {
+            // Lay out every copy off the main thread, then write it time-sliced
+            CompletableFuture<EditResult> edit = CompletableFuture.supplyAsync(() -> {
+                BlockBuffer buffer = new BlockBuffer();
+                for (int i = 0; i < repeat; i++) {
+                    PasteTransform transform = new PasteTransform(x + dx * i, y + dy * i, z + dz * i, rotation, mirror);
+                    clipboard.pasteInto(buffer, transform, ignoreAir);
+                }
+                return buffer;
+            }, plugin.getAsyncExecutor()).thenComposeAsync(
+                buffer -> submitJournaled(plugin, session, world, buffer, physics), plugin.getMainThreadExecutor());
+            return pendingEdit(edit, "Failed to paste clipboard");
+        } catch (Exception e) {
+            return CommandResult.error("Failed to paste clipboard: " + e.getMessage());
+        }
+    }
+
+    private static CommandResult handleSchematicSave(MCPyLibPlugin plugin, Session session, JsonObject params) {
+        if (!params.has("name")) {
+            return CommandResult.error("Missing parameters: name");
+        }
+
+        String name = params.get("name").getAsString();
+        File file;
+        try {
+            file = SpongeSchematic.resolve(plugin.getSchematicFolder(), name);
+        } catch (Exception e) {
+            return CommandResult.error("Failed to save schematic: " + e.getMessage());
+        }
+
+        // Save a region directly, or else the named or session clipboard
+        CompletableFuture<Clipboard> clipboard;
+        if (params.has("x1")) {
+            if (!params.has("y1") || !params.has("z1") ||
+                !params.has("x2") || !params.has("y2") || !params.has("z2")) {
+                return CommandResult.error("Missing parameters: x1, y1, z1, x2, y2, z2");
+            }
+            try {
+                clipboard = copyRegion(plugin, params);
+            } catch (Exception e) {
+                return CommandResult.error("Failed to save schematic: " + e.getMessage());
+            }
+        } else if (params.has("clipboard")) {
+            String clipboardName = params.get("clipboard").getAsString();
+            Clipboard named = clipboards.get(clipboardName);
+            if (named == null) {
+                return CommandResult.error("Clipboard not found: " + clipboardName);
+            }
+            clipboard = CompletableFuture.completedFuture(named);
+        } else {
+            Clipboard own = session.getClipboard();
+            if (own == null) {
+                return CommandResult.error("Clipboard is empty: copy a region first or pass x1, y1, z1, x2, y2, z2");
+            }
+            clipboard = CompletableFuture.completedFuture(own);
+        }
+
+        // Encoding and disk I/O run off the main thread
+        return CommandResult.pending(clipboard.handleAsync((source, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                return CommandResult.error("Failed to save schematic: " + cause.getMessage());
+            }
+            try {
+                SpongeSchematic.save(file, source);
+                Map<String, Object> result = new HashMap<>();
+                result.put("name", file.getName());
+                result.put("width", source.getWidth());
+                result.put("height", source.getHeight());
+                result.put("length", source.getLength());
+                result.put("palette", source.getPalette().size());
+                result.put("block_entities", source.getTiles().size());
+                return CommandResult.success(result);
+            } catch (Exception e) {
+                return CommandResult.error("Failed to save schematic: " + e.getMessage());
+            }
+        }, plugin.getAsyncExecutor()));
+    }
+
+    private static CommandResult handleSchematicLoad(MCPyLibPlugin plugin, Session session, JsonObject params) {
+        if (!params.has("name") || !params.has("x") || !params.has("y") || !params.has("z")) {
+            return CommandResult.error("Missing parameters: name, x, y, z");
         }
 
-        World world = Bukkit.getWorlds().get(0);
-        int count = 0;
+        String name = params.get("name").getAsString();
+        int x = params.get("x").getAsInt();
+        int y = params.get("y").getAsInt();
+        int z = params.get("z").getAsInt();
+        boolean ignoreAir = params.has("ignore_air") && params.get("ignore_air").getAsBoolean();
 
+        File file;
+        PasteTransform transform;
+        PhysicsMode physics;
         try {
-            // Clone blocks from source to destination
-            for (int x = minX; x <= maxX; x++) {
-                for (int y = minY; y <= maxY; y++) {
-                    for (int z = minZ; z <= maxZ; z++) {
-                        // Calculate offset from source corner
-                        int offsetX = x - minX;
-                        int offsetY = y - minY;
-                        int offsetZ = z - minZ;
-
-                        // Calculate destination coordinates
-                        int newX = destX + offsetX;
-                        int newY = destY + offsetY;
-                        int newZ = destZ + offsetZ;
-
-                        // Get source block
-                        Block sourceBlock = world.getBlockAt(x, y, z);
-                        BlockData sourceData = sourceBlock.getBlockData();
+            file = SpongeSchematic.resolve(plugin.getSchematicFolder(), name);
+            transform = new PasteTransform(x, y, z,
+                PasteTransform.parseRotation(params.has("rotate") ? params.get("rotate").getAsInt() : 0),
+                PasteTransform.parseMirror(params.has("mirror") ? params.get("mirror").getAsString() : "none"));
+            physics = PhysicsMode.fromParams(params, PhysicsMode.NONE);
+        } catch (Exception e) {
+            return CommandResult.error("Failed to load schematic: " + e.getMessage());
+        }
 
-                        // Set destination block
-                        Block destBlock = world.getBlockAt(newX, newY, newZ);
-                        destBlock.setBlockData(sourceData);
+        World world = Bukkit.getWorlds().get(0);
+        long maxVolume = plugin.getConfig().getLong("edits.max-clipboard-volume", 16777216L);
 
-                        count++;
-                    }
-                }
+        // Decode off the main thread straight into a write buffer, then hand it to the write engine
+        CompletableFuture<EditResult> edit = CompletableFuture.supplyAsync(() -> {
+            BlockBuffer buffer = new BlockBuffer();
+            try {
+                SpongeSchematic.load(file, transform, ignoreAir, buffer, maxVolume);
+            } catch (IOException e) {
+                throw new CompletionException(e);
             }
-
-            return CommandResult.success(count);
-        } catch (Exception e) {
-            return CommandResult.error("Failed to clone region: " + e.getMessage());
-        }
+            return buffer;
+        }, plugin.getAsyncExecutor()).thenComposeAsync(
+            buffer -> submitJournaled(plugin, session, world, buffer, physics), plugin.getMainThreadExecutor());
+        return pendingEdit(edit, "Failed to load schematic");
     }
 
     private static Material parseMaterial(String blockName) {
@@ -1034,31 +2468,18 @@ public class CommandHandler {
         }
     }
 
-    private static Entity findEntityByUUID(UUID uuid) {
-        for (World world : Bukkit.getWorlds()) {
-            for (Entity entity : world.getEntities()) {
-                if (entity.getUniqueId().equals(uuid)) {
-                    return entity;
-                }
-            }
-        }
-        return null;
-    }
-
-    private static CommandResult handleGetEntityPos(JsonObject params) {
+    private static CommandResult handleGetEntityPos(MCPyLibPlugin plugin, Session session, JsonObject params) {
         if (!params.has("uuid")) {
             return CommandResult.error("Missing parameter: uuid");
         }
 
         String uuidStr = params.get("uuid").getAsString();
-        UUID uuid;
+        Entity entity;
         try {
-            uuid = UUID.fromString(uuidStr);
+            entity = session.getEntities().resolve(params.get("uuid"));
         } catch (IllegalArgumentException e) {
-            return CommandResult.error("Invalid UUID format: " + uuidStr);
+            return CommandResult.error(e.getMessage());
         }
-
-        Entity entity = findEntityByUUID(uuid);
         if (entity == null) {
             return CommandResult.error("Entity not found: " + uuidStr);
         }
@@ -1071,23 +2492,23 @@ public class CommandHandler {
         position.put("yaw", (double) loc.getYaw());
         position.put("pitch", (double) loc.getPitch());
 
+        // Later reads of this entity are answered from the snapshot
+        plugin.getSnapshotService().watchEntity(entity.getUniqueId());
         return CommandResult.success(position);
     }
 
-    private static CommandResult handleGetEntityStatus(JsonObject params) {
+    private static CommandResult handleGetEntityStatus(Session session, JsonObject params) {
         if (!params.has("uuid")) {
             return CommandResult.error("Missing parameter: uuid");
         }
 
         String uuidStr = params.get("uuid").getAsString();
-        UUID uuid;
+        Entity entity;
         try {
-            uuid = UUID.fromString(uuidStr);
+            entity = session.getEntities().resolve(params.get("uuid"));
         } catch (IllegalArgumentException e) {
-            return CommandResult.error("Invalid UUID format: " + uuidStr);
+            return CommandResult.error(e.getMessage());
         }
-
-        Entity entity = findEntityByUUID(uuid);
         if (entity == null) {
             return CommandResult.error("Entity not found: " + uuidStr);
         }
@@ -1135,20 +2556,185 @@ public class CommandHandler {
         return CommandResult.success(status);
     }
 
-    private static CommandResult handleTeleportEntity(JsonObject params) {
+    // Entities in a box (x1..z2) or within radius of x, y, z, found through the world's spatial
+    // lookup rather than a scan of every entity. Results are columnar: one array per requested field,
+    // with position, rotation and velocity flattened to [x0, y0, z0, x1, ...]. The handle column
+    // only allocates handles with allocate_handles, so polling does not grow the session's table.
+    private static CommandResult handleQueryEntities(Session session, JsonObject params) {
+        boolean box = params.has("x1") && params.has("y1") && params.has("z1") &&
+            params.has("x2") && params.has("y2") && params.has("z2");
+        boolean sphere = params.has("x") && params.has("y") && params.has("z") && params.has("radius");
+        if (!box && !sphere) {
+            return CommandResult.error("Missing parameters: x1, y1, z1, x2, y2, z2 or x, y, z, radius");
+        }
+
+        Set<EntityType> types;
+        try {
+            types = params.has("type") ? parseEntityTypes(params.get("type")) : null;
+        } catch (IllegalArgumentException e) {
+            return CommandResult.error(e.getMessage());
+        }
+        String tag = params.has("tag") ? params.get("tag").getAsString() : null;
+        String name = params.has("name") ? params.get("name").getAsString() : null;
+        boolean allocateHandles = params.has("allocate_handles") && params.get("allocate_handles").getAsBoolean();
+        int limit = params.has("limit") ? params.get("limit").getAsInt() : Integer.MAX_VALUE;
+        boolean sortByDistance = params.has("sort") && params.get("sort").getAsString().equalsIgnoreCase("distance");
+
+        Set<String> fields = new HashSet<>(List.of("type", "position"));
+        if (params.has("fields")) {
+            fields.clear();
+            for (JsonElement field : params.getAsJsonArray("fields")) {
+                String fieldName = field.getAsString().toLowerCase();
+                if (!List.of("handle", "type", "name", "position", "rotation", "velocity", "health", "tags")
+                        .contains(fieldName)) {
+                    return CommandResult.error("Invalid field: " + fieldName +
+                        " (valid: handle, type, name, position, rotation, velocity, health, tags)");
+                }
+                fields.add(fieldName);
+            }
+        }
+
+        World world = Bukkit.getWorlds().get(0);
+        final Set<EntityType> typeFilter = types;
+        Predicate<Entity> filter = entity ->
+            (typeFilter == null || typeFilter.contains(entity.getType())) &&
+            (tag == null || entity.getScoreboardTags().contains(tag)) &&
+            (name == null || name.equals(nameOf(entity)));
+
+        try {
+            List<Entity> matches;
+            Location center;
+            if (box) {
+                double x1 = params.get("x1").getAsDouble();
+                double y1 = params.get("y1").getAsDouble();
+                double z1 = params.get("z1").getAsDouble();
+                double x2 = params.get("x2").getAsDouble();
+                double y2 = params.get("y2").getAsDouble();
+                double z2 = params.get("z2").getAsDouble();
+                // Block coordinates are inclusive, so the box reaches the far edge of the last block
+                BoundingBox bounds = new BoundingBox(
+                    Math.min(x1, x2), Math.min(y1, y2), Math.min(z1, z2),
+                    Math.max(x1, x2) + 1, Math.max(y1, y2) + 1, Math.max(z1, z2) + 1);
+                center = bounds.getCenter().toLocation(world);
+                matches = new ArrayList<>(world.getNearbyEntities(bounds, filter));
+            } else {
+                center = new Location(world, params.get("x").getAsDouble(),
+                    params.get("y").getAsDouble(), params.get("z").getAsDouble());
+                double radius = params.get("radius").getAsDouble();
+                double radiusSquared = radius * radius;
+                matches = new ArrayList<>(world.getNearbyEntities(center, radius, radius, radius,
+                    filter.and(entity -> entity.getLocation().distanceSquared(center) <= radiusSquared)));
+            }
+
+            int total = matches.size();
+            if (sortByDistance) {
+                matches.sort(Comparator.comparingDouble(entity -> entity.getLocation().distanceSquared(center)));
+            }
+            if (matches.size() > limit) {
+                matches = matches.subList(0, Math.max(0, limit));
+            }
+
+            List<String> uuids = new ArrayList<>();
+            List<Integer> handles = new ArrayList<>();
+            List<String> typeNames = new ArrayList<>();
+            List<String> names = new ArrayList<>();
+            List<Double> positions = new ArrayList<>();
+            List<Float> rotations = new ArrayList<>();
+            List<Double> velocities = new ArrayList<>();
+            List<Double> health = new ArrayList<>();
+            List<List<String>> tags = new ArrayList<>();
+            for (Entity entity : matches) {
+                uuids.add(entity.getUniqueId().toString());
+                if (fields.contains("handle")) {
+                    handles.add(allocateHandles ? Integer.valueOf(session.getEntities().handleFor(entity))
+                        : session.getEntities().find(entity));
+                }
+                if (fields.contains("type")) {
+                    typeNames.add("minecraft:" + entity.getType().name().toLowerCase());
+                }
+                if (fields.contains("name")) {
+                    names.add(nameOf(entity));
+                }
+                Location loc = entity.getLocation();
+                if (fields.contains("position")) {
+                    positions.add(loc.getX());
+                    positions.add(loc.getY());
+                    positions.add(loc.getZ());
+                }
+                if (fields.contains("rotation")) {
+                    rotations.add(loc.getYaw());
+                    rotations.add(loc.getPitch());
+                }
+                if (fields.contains("velocity")) {
+                    Vector vel = entity.getVelocity();
+                    velocities.add(vel.getX());
+                    velocities.add(vel.getY());
+                    velocities.add(vel.getZ());
+                }
+                if (fields.contains("health")) {
+                    health.add(entity instanceof LivingEntity ? ((LivingEntity) entity).getHealth() : null);
+                }
+                if (fields.contains("tags")) {
+                    tags.add(new ArrayList<>(entity.getScoreboardTags()));
+                }
+            }
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("count", uuids.size());
+            result.put("total", total);
+            result.put("uuids", uuids);
+            if (fields.contains("handle")) result.put("handles", handles);
+            if (fields.contains("type")) result.put("types", typeNames);
+            if (fields.contains("name")) result.put("names", names);
+            if (fields.contains("position")) result.put("positions", positions);
+            if (fields.contains("rotation")) result.put("rotations", rotations);
+            if (fields.contains("velocity")) result.put("velocities", velocities);
+            if (fields.contains("health")) result.put("health", health);
+            if (fields.contains("tags")) result.put("tags", tags);
+            return CommandResult.success(result);
+        } catch (Exception e) {
+            return CommandResult.error("Failed to query entities: " + e.getMessage());
+        }
+    }
+
+    // The custom name, or the player name for players; null for an unnamed entity
+    private static String nameOf(Entity entity) {
+        return entity instanceof Player ? entity.getName() : entity.getCustomName();
+    }
+
+    // One entity type or a list of them
+    private static Set<EntityType> parseEntityTypes(JsonElement param) {
+        JsonArray names = param.isJsonArray() ? param.getAsJsonArray() : new JsonArray();
+        if (!param.isJsonArray()) {
+            names.add(param);
+        }
+        Set<EntityType> types = EnumSet.noneOf(EntityType.class);
+        for (JsonElement name : names) {
+            String typeName = name.getAsString();
+            if (typeName.startsWith("minecraft:")) {
+                typeName = typeName.substring("minecraft:".length());
+            }
+            try {
+                types.add(EntityType.valueOf(typeName.toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid entity type: " + typeName);
+            }
+        }
+        return types;
+    }
+
+    private static CommandResult handleTeleportEntity(MCPyLibPlugin plugin, Session session, JsonObject params) {
         if (!params.has("uuid") || !params.has("x") || !params.has("y") || !params.has("z")) {
             return CommandResult.error("Missing parameters: uuid, x, y, z");
         }
 
         String uuidStr = params.get("uuid").getAsString();
-        UUID uuid;
+        Entity entity;
         try {
-            uuid = UUID.fromString(uuidStr);
+            entity = session.getEntities().resolve(params.get("uuid"));
         } catch (IllegalArgumentException e) {
-            return CommandResult.error("Invalid UUID format: " + uuidStr);
+            return CommandResult.error(e.getMessage());
         }
-
-        Entity entity = findEntityByUUID(uuid);
         if (entity == null) {
             return CommandResult.error("Entity not found: " + uuidStr);
         }
@@ -1174,26 +2760,280 @@ public class CommandHandler {
 
         try {
             boolean success = entity.teleport(location);
+            plugin.getSnapshotService().markEntityDirty(entity.getUniqueId());
             return CommandResult.success(success);
         } catch (Exception e) {
             return CommandResult.error("Failed to teleport entity: " + e.getMessage());
         }
     }
 
-    private static CommandResult handleSetEntityVelocity(JsonObject params) {
+    // Applies changes to many entities in one main-thread pass. The packed form lists `entities`
+    // (handles or UUIDs) with base64 little-endian arrays holding one entry per entity: `positions`
+    // (float64 x, y, z), `velocities` (float32 x, y, z) and `rotations` (float32 yaw, pitch).
+    // The sparse form is `ops`, a list of {handle, teleport?, velocity?, rotation?, ai?, target?}.
+    // Every reference is resolved before anything changes; entities that are not loaded, or that a
+    // change does not apply to, are reported by index.
+    private static CommandResult handleMutateEntities(MCPyLibPlugin plugin, Session session, JsonObject params) {
+        if (!params.has("entities") && !params.has("ops")) {
+            return CommandResult.error("Missing parameters: entities or ops");
+        }
+
+        EntityHandles handles = session.getEntities();
+        JsonArray refs = params.has("entities") ? params.getAsJsonArray("entities") : new JsonArray();
+        JsonArray ops = params.has("ops") ? params.getAsJsonArray("ops") : new JsonArray();
+        Entity[] entities = new Entity[refs.size()];
+        Entity[] opEntities = new Entity[ops.size()];
+        Entity[] opTargets = new Entity[ops.size()];
+        ByteBuffer positions;
+        ByteBuffer velocities;
+        ByteBuffer rotations;
+        try {
+            positions = params.has("positions") ? unpackNumbers(params.get("positions").getAsString(), refs.size() * 3, 8, "positions") : null;
+            velocities = params.has("velocities") ? unpackNumbers(params.get("velocities").getAsString(), refs.size() * 3, 4, "velocities") : null;
+            rotations = params.has("rotations") ? unpackNumbers(params.get("rotations").getAsString(), refs.size() * 2, 4, "rotations") : null;
+            for (int i = 0; i < entities.length; i++) {
+                entities[i] = handles.resolve(refs.get(i));
+            }
+            for (int i = 0; i < opEntities.length; i++) {
+                JsonObject op = ops.get(i).getAsJsonObject();
+                if (!op.has("handle")) {
+                    return CommandResult.error("Missing parameter: handle (in ops[" + i + "])");
+                }
+                validateEntityOp(op, i);
+                opEntities[i] = handles.resolve(op.get("handle"));
+                if (op.has("target") && !op.get("target").isJsonNull()) {
+                    opTargets[i] = handles.resolve(op.get("target"));
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            return CommandResult.error(e.getMessage());
+        }
+
+        SnapshotService snapshots = plugin.getSnapshotService();
+        try {
+            int applied = 0;
+            List<Integer> failed = new ArrayList<>();
+            for (int i = 0; i < entities.length; i++) {
+                Entity entity = entities[i];
+                if (entity == null) {
+                    failed.add(i);
+                    continue;
+                }
+                snapshots.markEntityDirty(entity.getUniqueId());
+                Location current = entity.getLocation();
+                float yaw = rotations != null ? rotations.getFloat(i * 8) : current.getYaw();
+                float pitch = rotations != null ? rotations.getFloat(i * 8 + 4) : current.getPitch();
+                if (positions != null) {
+                    Location location = new Location(entity.getWorld(), positions.getDouble(i * 24),
+                        positions.getDouble(i * 24 + 8), positions.getDouble(i * 24 + 16), yaw, pitch);
+                    if (!entity.teleport(location)) {
+                        failed.add(i);
+                        continue;
+                    }
+                } else if (rotations != null) {
+                    entity.setRotation(yaw, pitch);
+                }
+                if (velocities != null) {
+                    entity.setVelocity(new Vector(velocities.getFloat(i * 12), velocities.getFloat(i * 12 + 4),
+                        velocities.getFloat(i * 12 + 8)));
+                }
+                applied++;
+            }
+
+            List<Integer> failedOps = new ArrayList<>();
+            for (int i = 0; i < opEntities.length; i++) {
+                if (opEntities[i] != null) {
+                    snapshots.markEntityDirty(opEntities[i].getUniqueId());
+                }
+                if (applyEntityOp(opEntities[i], opTargets[i], ops.get(i).getAsJsonObject())) {
+                    applied++;
+                } else {
+                    failedOps.add(i);
+                }
+            }
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("applied", applied);
+            result.put("failed", failed);
+            result.put("failed_ops", failedOps);
+            return CommandResult.success(result);
+        } catch (Exception e) {
+            return CommandResult.error("Failed to mutate entities: " + e.getMessage());
+        }
+    }
+
+    // Checks the shape of every change in a sparse op, so a malformed op fails the request before
+    // any entity has changed
+    private static void validateEntityOp(JsonObject op, int index) {
+        String field = null;
+        try {
+            field = "teleport";
+            if (op.has(field)) {
+                JsonArray teleport = op.getAsJsonArray(field);
+                if (teleport.size() != 3 && teleport.size() != 5) {
+                    throw new IllegalArgumentException("expected [x, y, z] or [x, y, z, yaw, pitch]");
+                }
+                for (JsonElement value : teleport) {
+                    value.getAsDouble();
+                }
+            }
+            field = "rotation";
+            if (op.has(field)) {
+                JsonArray rotation = op.getAsJsonArray(field);
+                if (rotation.size() != 2) {
+                    throw new IllegalArgumentException("expected [yaw, pitch]");
+                }
+                rotation.get(0).getAsFloat();
+                rotation.get(1).getAsFloat();
+            }
+            field = "velocity";
+            if (op.has(field)) {
+                JsonArray velocity = op.getAsJsonArray(field);
+                if (velocity.size() != 3) {
+                    throw new IllegalArgumentException("expected [x, y, z]");
+                }
+                for (JsonElement value : velocity) {
+                    value.getAsDouble();
+                }
+            }
+            field = "ai";
+            if (op.has(field) && !op.get(field).getAsJsonPrimitive().isBoolean()) {
+                throw new IllegalArgumentException("expected true or false");
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid " + field + " (in ops[" + index + "]): " + e.getMessage());
+        }
+    }
+
+    // Returns false if the entity is gone or one of the changes does not apply to it. The op has
+    // already been checked by validateEntityOp.
+    private static boolean applyEntityOp(Entity entity, Entity target, JsonObject op) {
+        if (entity == null) {
+            return false;
+        }
+        Location current = entity.getLocation();
+        float yaw = current.getYaw();
+        float pitch = current.getPitch();
+        if (op.has("rotation")) {
+            JsonArray rotation = op.getAsJsonArray("rotation");
+            yaw = rotation.get(0).getAsFloat();
+            pitch = rotation.get(1).getAsFloat();
+        }
+
+        boolean ok = true;
+        if (op.has("teleport")) {
+            JsonArray teleport = op.getAsJsonArray("teleport");
+            if (teleport.size() == 5 && !op.has("rotation")) {
+                yaw = teleport.get(3).getAsFloat();
+                pitch = teleport.get(4).getAsFloat();
+            }
+            ok = entity.teleport(new Location(entity.getWorld(), teleport.get(0).getAsDouble(),
+                teleport.get(1).getAsDouble(), teleport.get(2).getAsDouble(), yaw, pitch));
+        } else if (op.has("rotation")) {
+            entity.setRotation(yaw, pitch);
+        }
+        if (op.has("velocity")) {
+            JsonArray velocity = op.getAsJsonArray("velocity");
+            entity.setVelocity(new Vector(velocity.get(0).getAsDouble(), velocity.get(1).getAsDouble(),
+                velocity.get(2).getAsDouble()));
+        }
+        if (op.has("ai")) {
+            if (entity instanceof LivingEntity) {
+                ((LivingEntity) entity).setAI(op.get("ai").getAsBoolean());
+            } else {
+                ok = false;
+            }
+        }
+        if (op.has("target")) {
+            boolean clear = op.get("target").isJsonNull();
+            if (entity instanceof Mob && (clear || target instanceof LivingEntity)) {
+                ((Mob) entity).setTarget(clear ? null : (LivingEntity) target);
+            } else {
+                ok = false;
+            }
+        }
+        return ok;
+    }
+
+    // Base64 of little-endian values `width` bytes wide; exactly `values` of them are expected
+    private static ByteBuffer unpackNumbers(String data, int values, int width, String name) {
+        byte[] bytes = java.util.Base64.getDecoder().decode(data);
+        if (bytes.length != values * width) {
+            throw new IllegalArgumentException("Malformed " + name + ": expected " + values + " values");
+        }
+        return ByteBuffer.wrap(bytes).order(java.nio.ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // Uploads keyframe tracks ([{entity, keyframes}]) that the server interpolates every tick.
+    // Entity references are resolved once, here; tracks whose entity is not loaded are skipped.
+    private static CommandResult handleAnimateEntities(MCPyLibPlugin plugin, Session session, JsonObject params) {
+        if (!params.has("tracks")) {
+            return CommandResult.error("Missing parameter: tracks");
+        }
+
+        String interpolation = params.has("interpolation") ? params.get("interpolation").getAsString().toLowerCase() : "linear";
+        if (!interpolation.equals("linear") && !interpolation.equals("catmull_rom")) {
+            return CommandResult.error("Invalid interpolation: " + interpolation + " (valid: linear, catmull_rom)");
+        }
+        boolean loop = params.has("loop") && params.get("loop").getAsBoolean();
+
+        List<EntityAnimator.Track> tracks = new ArrayList<>();
+        List<Integer> missing = new ArrayList<>();
+        try {
+            JsonArray trackArray = params.getAsJsonArray("tracks");
+            for (int i = 0; i < trackArray.size(); i++) {
+                JsonObject track = trackArray.get(i).getAsJsonObject();
+                if (!track.has("entity") || !track.has("keyframes")) {
+                    return CommandResult.error("Missing parameters: entity, keyframes (in tracks[" + i + "])");
+                }
+                Entity entity = session.getEntities().resolve(track.get("entity"));
+                EntityAnimator.Track parsed = EntityAnimator.Track.fromJson(entity, track.getAsJsonArray("keyframes"));
+                if (entity == null) {
+                    missing.add(i);
+                } else {
+                    tracks.add(parsed);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            return CommandResult.error(e.getMessage());
+        }
+        if (tracks.isEmpty()) {
+            return CommandResult.error("No animated entity is loaded");
+        }
+
+        try {
+            int id = plugin.getEntityAnimator().play(tracks, interpolation.equals("catmull_rom"), loop);
+            Map<String, Object> result = new HashMap<>();
+            result.put("id", id);
+            result.put("tracks", tracks.size());
+            result.put("missing", missing);
+            return CommandResult.success(result);
+        } catch (Exception e) {
+            return CommandResult.error("Failed to start animation: " + e.getMessage());
+        }
+    }
+
+    // Stops one animation by id, or every animation when no id is given
+    private static CommandResult handleStopAnimation(MCPyLibPlugin plugin, JsonObject params) {
+        EntityAnimator animator = plugin.getEntityAnimator();
+        if (params.has("id") && !params.get("id").isJsonNull()) {
+            return CommandResult.success(animator.cancel(params.get("id").getAsInt()) ? 1 : 0);
+        }
+        return CommandResult.success(animator.cancelAll());
+    }
+
+    private static CommandResult handleSetEntityVelocity(Session session, JsonObject params) {
         if (!params.has("uuid") || !params.has("vx") || !params.has("vy") || !params.has("vz")) {
             return CommandResult.error("Missing parameters: uuid, vx, vy, vz");
         }
 
         String uuidStr = params.get("uuid").getAsString();
-        UUID uuid;
+        Entity entity;
         try {
-            uuid = UUID.fromString(uuidStr);
+            entity = session.getEntities().resolve(params.get("uuid"));
         } catch (IllegalArgumentException e) {
-            return CommandResult.error("Invalid UUID format: " + uuidStr);
+            return CommandResult.error(e.getMessage());
         }
-
-        Entity entity = findEntityByUUID(uuid);
         if (entity == null) {
             return CommandResult.error("Entity not found: " + uuidStr);
         }
@@ -1216,20 +3056,18 @@ public class CommandHandler {
         }
     }
 
-    private static CommandResult handleSetEntityRotation(JsonObject params) {
+    private static CommandResult handleSetEntityRotation(MCPyLibPlugin plugin, Session session, JsonObject params) {
         if (!params.has("uuid") || !params.has("yaw") || !params.has("pitch")) {
             return CommandResult.error("Missing parameters: uuid, yaw, pitch");
         }
 
         String uuidStr = params.get("uuid").getAsString();
-        UUID uuid;
+        Entity entity;
         try {
-            uuid = UUID.fromString(uuidStr);
+            entity = session.getEntities().resolve(params.get("uuid"));
         } catch (IllegalArgumentException e) {
-            return CommandResult.error("Invalid UUID format: " + uuidStr);
+            return CommandResult.error(e.getMessage());
         }
-
-        Entity entity = findEntityByUUID(uuid);
         if (entity == null) {
             return CommandResult.error("Entity not found: " + uuidStr);
         }
@@ -1242,26 +3080,25 @@ public class CommandHandler {
             loc.setYaw(yaw);
             loc.setPitch(pitch);
             entity.teleport(loc);
+            plugin.getSnapshotService().markEntityDirty(entity.getUniqueId());
             return CommandResult.success(true);
         } catch (Exception e) {
             return CommandResult.error("Failed to set entity rotation: " + e.getMessage());
         }
     }
 
-    private static CommandResult handleSetEntityAI(JsonObject params) {
+    private static CommandResult handleSetEntityAI(Session session, JsonObject params) {
         if (!params.has("uuid") || !params.has("enabled")) {
             return CommandResult.error("Missing parameters: uuid, enabled");
         }
 
         String uuidStr = params.get("uuid").getAsString();
-        UUID uuid;
+        Entity entity;
         try {
-            uuid = UUID.fromString(uuidStr);
+            entity = session.getEntities().resolve(params.get("uuid"));
         } catch (IllegalArgumentException e) {
-            return CommandResult.error("Invalid UUID format: " + uuidStr);
+            return CommandResult.error(e.getMessage());
         }
-
-        Entity entity = findEntityByUUID(uuid);
         if (entity == null) {
             return CommandResult.error("Entity not found: " + uuidStr);
         }
@@ -1280,20 +3117,18 @@ public class CommandHandler {
         }
     }
 
-    private static CommandResult handleSetEntityTarget(JsonObject params) {
+    private static CommandResult handleSetEntityTarget(Session session, JsonObject params) {
         if (!params.has("uuid")) {
             return CommandResult.error("Missing parameter: uuid");
         }
 
         String uuidStr = params.get("uuid").getAsString();
-        UUID uuid;
+        Entity entity;
         try {
-            uuid = UUID.fromString(uuidStr);
+            entity = session.getEntities().resolve(params.get("uuid"));
         } catch (IllegalArgumentException e) {
-            return CommandResult.error("Invalid UUID format: " + uuidStr);
+            return CommandResult.error(e.getMessage());
         }
-
-        Entity entity = findEntityByUUID(uuid);
         if (entity == null) {
             return CommandResult.error("Entity not found: " + uuidStr);
         }
@@ -1307,14 +3142,12 @@ public class CommandHandler {
         // If target_uuid is provided, set the target; otherwise clear it
         if (params.has("target_uuid") && !params.get("target_uuid").isJsonNull()) {
             String targetUuidStr = params.get("target_uuid").getAsString();
-            UUID targetUuid;
+            Entity targetEntity;
             try {
-                targetUuid = UUID.fromString(targetUuidStr);
+                targetEntity = session.getEntities().resolve(params.get("target_uuid"));
             } catch (IllegalArgumentException e) {
-                return CommandResult.error("Invalid target UUID format: " + targetUuidStr);
+                return CommandResult.error("Invalid target: " + e.getMessage());
             }
-
-            Entity targetEntity = findEntityByUUID(targetUuid);
             if (targetEntity == null) {
                 return CommandResult.error("Target entity not found: " + targetUuidStr);
             }
@@ -1340,20 +3173,18 @@ public class CommandHandler {
         }
     }
 
-    private static CommandResult handleRemoveEntity(JsonObject params) {
+    private static CommandResult handleRemoveEntity(MCPyLibPlugin plugin, Session session, JsonObject params) {
         if (!params.has("uuid")) {
             return CommandResult.error("Missing parameter: uuid");
         }
 
         String uuidStr = params.get("uuid").getAsString();
-        UUID uuid;
+        Entity entity;
         try {
-            uuid = UUID.fromString(uuidStr);
+            entity = session.getEntities().resolve(params.get("uuid"));
         } catch (IllegalArgumentException e) {
-            return CommandResult.error("Invalid UUID format: " + uuidStr);
+            return CommandResult.error(e.getMessage());
         }
-
-        Entity entity = findEntityByUUID(uuid);
         if (entity == null) {
             return CommandResult.error("Entity not found: " + uuidStr);
         }
@@ -1365,26 +3196,25 @@ public class CommandHandler {
 
         try {
             entity.remove();
+            plugin.getSnapshotService().markEntityDirty(entity.getUniqueId());
             return CommandResult.success(true);
         } catch (Exception e) {
             return CommandResult.error("Failed to remove entity: " + e.getMessage());
         }
     }
 
-    private static CommandResult handleGetEntityEquipment(JsonObject params) {
+    private static CommandResult handleGetEntityEquipment(Session session, JsonObject params) {
         if (!params.has("uuid")) {
             return CommandResult.error("Missing parameter: uuid");
         }
 
         String uuidStr = params.get("uuid").getAsString();
-        UUID uuid;
+        Entity entity;
         try {
-            uuid = UUID.fromString(uuidStr);
+            entity = session.getEntities().resolve(params.get("uuid"));
         } catch (IllegalArgumentException e) {
-            return CommandResult.error("Invalid UUID format: " + uuidStr);
+            return CommandResult.error(e.getMessage());
         }
-
-        Entity entity = findEntityByUUID(uuid);
         if (entity == null) {
             return CommandResult.error("Entity not found: " + uuidStr);
         }
@@ -1438,20 +3268,18 @@ public class CommandHandler {
         return new ItemStack(material, amount);
     }
 
-    private static CommandResult handleSetEntityEquipment(JsonObject params) {
+    private static CommandResult handleSetEntityEquipment(Session session, JsonObject params) {
         if (!params.has("uuid") || !params.has("equipment")) {
             return CommandResult.error("Missing parameters: uuid, equipment");
         }
 
         String uuidStr = params.get("uuid").getAsString();
-        UUID uuid;
+        Entity entity;
         try {
-            uuid = UUID.fromString(uuidStr);
+            entity = session.getEntities().resolve(params.get("uuid"));
         } catch (IllegalArgumentException e) {
-            return CommandResult.error("Invalid UUID format: " + uuidStr);
+            return CommandResult.error(e.getMessage());
         }
-
-        Entity entity = findEntityByUUID(uuid);
         if (entity == null) {
             return CommandResult.error("Entity not found: " + uuidStr);
         }
@@ -1547,20 +3375,18 @@ public class CommandHandler {
         }
     }
 
-    private static CommandResult handleGetVillagerData(JsonObject params) {
+    private static CommandResult handleGetVillagerData(Session session, JsonObject params) {
         if (!params.has("uuid")) {
             return CommandResult.error("Missing parameter: uuid");
         }
 
         String uuidStr = params.get("uuid").getAsString();
-        UUID uuid;
+        Entity entity;
         try {
-            uuid = UUID.fromString(uuidStr);
+            entity = session.getEntities().resolve(params.get("uuid"));
         } catch (IllegalArgumentException e) {
-            return CommandResult.error("Invalid UUID format: " + uuidStr);
+            return CommandResult.error(e.getMessage());
         }
-
-        Entity entity = findEntityByUUID(uuid);
         if (entity == null) {
             return CommandResult.error("Entity not found: " + uuidStr);
         }
@@ -1600,20 +3426,18 @@ public class CommandHandler {
         return CommandResult.success(result);
     }
 
-    private static CommandResult handleSetVillagerProfession(JsonObject params) {
+    private static CommandResult handleSetVillagerProfession(Session session, JsonObject params) {
         if (!params.has("uuid") || !params.has("profession")) {
             return CommandResult.error("Missing parameters: uuid, profession");
         }
 
         String uuidStr = params.get("uuid").getAsString();
-        UUID uuid;
+        Entity entity;
         try {
-            uuid = UUID.fromString(uuidStr);
+            entity = session.getEntities().resolve(params.get("uuid"));
         } catch (IllegalArgumentException e) {
-            return CommandResult.error("Invalid UUID format: " + uuidStr);
+            return CommandResult.error(e.getMessage());
         }
-
-        Entity entity = findEntityByUUID(uuid);
         if (entity == null) {
             return CommandResult.error("Entity not found: " + uuidStr);
         }
@@ -1640,20 +3464,18 @@ public class CommandHandler {
         }
     }
 
-    private static CommandResult handleSetVillagerTrades(JsonObject params) {
+    private static CommandResult handleSetVillagerTrades(Session session, JsonObject params) {
         if (!params.has("uuid") || !params.has("trades")) {
             return CommandResult.error("Missing parameters: uuid, trades");
         }
 
         String uuidStr = params.get("uuid").getAsString();
-        UUID uuid;
+        Entity entity;
         try {
-            uuid = UUID.fromString(uuidStr);
+            entity = session.getEntities().resolve(params.get("uuid"));
         } catch (IllegalArgumentException e) {
-            return CommandResult.error("Invalid UUID format: " + uuidStr);
+            return CommandResult.error(e.getMessage());
         }
-
-        Entity entity = findEntityByUUID(uuid);
         if (entity == null) {
             return CommandResult.error("Entity not found: " + uuidStr);
         }
@@ -1663,51 +3485,171 @@ public class CommandHandler {
         }
 
         Villager villager = (Villager) entity;
-        JsonArray tradesArray = params.getAsJsonArray("trades");
 
         try {
-            List<MerchantRecipe> recipes = new ArrayList<>();
+            villager.setRecipes(parseRecipes(params.getAsJsonArray("trades")));
+            return CommandResult.success(true);
+        } catch (Exception e) {
+            return CommandResult.error("Failed to set villager trades: " + e.getMessage());
+        }
+    }
 
-            for (JsonElement tradeElement : tradesArray) {
-                JsonObject tradeData = tradeElement.getAsJsonObject();
+    // Builds a trade list once and keeps it under a name for apply_trades; redefining a name replaces it
+    private static CommandResult handleDefineTradeTemplate(MCPyLibPlugin plugin, JsonObject params) {
+        if (!params.has("name") || !params.has("trades")) {
+            return CommandResult.error("Missing parameters: name, trades");
+        }
 
-                // Parse sell item (result)
-                if (!tradeData.has("sell")) {
-                    return CommandResult.error("Trade missing 'sell' field");
-                }
-                JsonObject sellData = tradeData.getAsJsonObject("sell");
-                ItemStack result = createItemStack(sellData);
+        String name = params.get("name").getAsString();
+        try {
+            List<MerchantRecipe> recipes = parseRecipes(params.getAsJsonArray("trades"));
+            plugin.getTradeTemplates().put(name, recipes);
+            return CommandResult.success(recipes.size());
+        } catch (Exception e) {
+            return CommandResult.error("Failed to define trade template: " + e.getMessage());
+        }
+    }
 
-                // Create MerchantRecipe
-                int maxUses = tradeData.has("max_uses") ?
-                    tradeData.get("max_uses").getAsInt() : 10;
-                boolean experienceReward = !tradeData.has("experience_reward") ||
-                    tradeData.get("experience_reward").getAsBoolean();
+    // Gives a template's trades to many villagers, chosen by `villagers` (handles or UUIDs) or by a
+    // region (x1..z2). Overrides ([{villager, template?, trades?, max_uses?}]) swap the template,
+    // append trades or change max uses for single villagers. References that are not applied, either
+    // not loaded, not villagers or overrides for a villager outside the targets, come back in skipped.
+    private static CommandResult handleApplyTrades(MCPyLibPlugin plugin, Session session, JsonObject params) {
+        boolean region = params.has("x1") && params.has("y1") && params.has("z1") &&
+            params.has("x2") && params.has("y2") && params.has("z2");
+        if (!params.has("template") || (!params.has("villagers") && !region)) {
+            return CommandResult.error("Missing parameters: template, villagers or x1, y1, z1, x2, y2, z2");
+        }
 
-                MerchantRecipe recipe = new MerchantRecipe(result, maxUses);
-                recipe.setExperienceReward(experienceReward);
+        Map<String, List<MerchantRecipe>> templates = plugin.getTradeTemplates();
+        String templateName = params.get("template").getAsString();
+        List<MerchantRecipe> template = templates.get(templateName);
+        if (template == null) {
+            return CommandResult.error("Trade template not found: " + templateName);
+        }
 
-                // Add first ingredient (buy1)
-                if (!tradeData.has("buy1")) {
-                    return CommandResult.error("Trade missing 'buy1' field");
+        List<Entity> targets = new ArrayList<>();
+        JsonArray skipped = new JsonArray();
+        Map<Entity, List<MerchantRecipe>> overrides = new HashMap<>();
+        try {
+            if (params.has("villagers")) {
+                JsonArray refs = params.getAsJsonArray("villagers");
+                for (int i = 0; i < refs.size(); i++) {
+                    Entity entity = session.getEntities().resolve(refs.get(i));
+                    if (entity instanceof AbstractVillager) {
+                        targets.add(entity);
+                    } else {
+                        skipped.add(refs.get(i));
+                    }
                 }
-                JsonObject buy1Data = tradeData.getAsJsonObject("buy1");
-                recipe.addIngredient(createItemStack(buy1Data));
+            } else {
+                int x1 = params.get("x1").getAsInt();
+                int y1 = params.get("y1").getAsInt();
+                int z1 = params.get("z1").getAsInt();
+                int x2 = params.get("x2").getAsInt();
+                int y2 = params.get("y2").getAsInt();
+                int z2 = params.get("z2").getAsInt();
+                BoundingBox bounds = new BoundingBox(
+                    Math.min(x1, x2), Math.min(y1, y2), Math.min(z1, z2),
+                    Math.max(x1, x2) + 1, Math.max(y1, y2) + 1, Math.max(z1, z2) + 1);
+                targets.addAll(Bukkit.getWorlds().get(0).getNearbyEntities(bounds, entity -> entity instanceof AbstractVillager));
+            }
 
-                // Add second ingredient if provided (buy2)
-                if (tradeData.has("buy2") && !tradeData.get("buy2").isJsonNull()) {
-                    JsonObject buy2Data = tradeData.getAsJsonObject("buy2");
-                    recipe.addIngredient(createItemStack(buy2Data));
+            if (params.has("overrides")) {
+                Set<Entity> targetSet = new HashSet<>(targets);
+                for (JsonElement element : params.getAsJsonArray("overrides")) {
+                    JsonObject override = element.getAsJsonObject();
+                    if (!override.has("villager")) {
+                        return CommandResult.error("Missing parameter: villager (in overrides)");
+                    }
+                    Entity entity = session.getEntities().resolve(override.get("villager"));
+                    if (entity == null || !targetSet.contains(entity)) {
+                        if (!skipped.contains(override.get("villager"))) {
+                            skipped.add(override.get("villager"));
+                        }
+                        continue;
+                    }
+                    List<MerchantRecipe> base = template;
+                    if (override.has("template")) {
+                        base = templates.get(override.get("template").getAsString());
+                        if (base == null) {
+                            return CommandResult.error("Trade template not found: " + override.get("template").getAsString());
+                        }
+                    }
+                    List<MerchantRecipe> recipes = new ArrayList<>(base);
+                    if (override.has("trades")) {
+                        recipes.addAll(parseRecipes(override.getAsJsonArray("trades")));
+                    }
+                    if (override.has("max_uses")) {
+                        int maxUses = override.get("max_uses").getAsInt();
+                        for (int i = 0; i < recipes.size(); i++) {
+                            MerchantRecipe recipe = recipes.get(i);
+                            MerchantRecipe copy = new MerchantRecipe(recipe.getResult(), 0, maxUses,
+                                recipe.hasExperienceReward(), recipe.getVillagerExperience(), recipe.getPriceMultiplier());
+                            copy.setIngredients(recipe.getIngredients());
+                            recipes.set(i, copy);
+                        }
+                    }
+                    overrides.put(entity, recipes);
                 }
-
-                recipes.add(recipe);
             }
+        } catch (IllegalArgumentException e) {
+            return CommandResult.error(e.getMessage());
+        }
 
-            villager.setRecipes(recipes);
-            return CommandResult.success(true);
+        try {
+            // setRecipes copies every recipe into the villager, so the shared list is never mutated
+            for (Entity entity : targets) {
+                ((AbstractVillager) entity).setRecipes(overrides.getOrDefault(entity, template));
+            }
+            Map<String, Object> result = new HashMap<>();
+            result.put("applied", targets.size());
+            result.put("skipped", skipped);
+            return CommandResult.success(result);
         } catch (Exception e) {
-            return CommandResult.error("Failed to set villager trades: " + e.getMessage());
+            return CommandResult.error("Failed to apply trades: " + e.getMessage());
+        }
+    }
+
+    // Builds recipes from [{sell, buy1, buy2?, max_uses?, experience_reward?}]
+    private static List<MerchantRecipe> parseRecipes(JsonArray tradesArray) {
+        List<MerchantRecipe> recipes = new ArrayList<>();
+
+        for (JsonElement tradeElement : tradesArray) {
+            JsonObject tradeData = tradeElement.getAsJsonObject();
+
+            // Parse sell item (result)
+            if (!tradeData.has("sell")) {
+                throw new IllegalArgumentException("Trade missing 'sell' field");
+            }
+            JsonObject sellData = tradeData.getAsJsonObject("sell");
+            ItemStack result = createItemStack(sellData);
+
+            // Create MerchantRecipe
+            int maxUses = tradeData.has("max_uses") ?
+                tradeData.get("max_uses").getAsInt() : 10;
+            boolean experienceReward = !tradeData.has("experience_reward") ||
+                tradeData.get("experience_reward").getAsBoolean();
+
+            MerchantRecipe recipe = new MerchantRecipe(result, maxUses);
+            recipe.setExperienceReward(experienceReward);
+
+            // Add first ingredient (buy1)
+            if (!tradeData.has("buy1")) {
+                throw new IllegalArgumentException("Trade missing 'buy1' field");
+            }
+            JsonObject buy1Data = tradeData.getAsJsonObject("buy1");
+            recipe.addIngredient(createItemStack(buy1Data));
+
+            // Add second ingredient if provided (buy2)
+            if (tradeData.has("buy2") && !tradeData.get("buy2").isJsonNull()) {
+                JsonObject buy2Data = tradeData.getAsJsonObject("buy2");
+                recipe.addIngredient(createItemStack(buy2Data));
+            }
+
+            recipes.add(recipe);
         }
+        return recipes;
     }
 
     // ===== Phase 0: exec (generic command executor) =====
@@ -1720,6 +3662,8 @@ public class CommandHandler {
         if (command.startsWith("/")) {
             command = command.substring(1);
         }
+        // The command may change anything the snapshot holds
+        plugin.getSnapshotService().markAllDirty();
         try {
             final String cmd = command;
             // Must run on main thread
@@ -2302,20 +4246,18 @@ public class CommandHandler {
         }
     }
 
-    private static CommandResult handleDamage(JsonObject params) {
+    private static CommandResult handleDamage(Session session, JsonObject params) {
         if (!params.has("uuid") || !params.has("amount")) {
             return CommandResult.error("Missing parameters: uuid, amount");
         }
 
         String uuidStr = params.get("uuid").getAsString();
-        UUID uuid;
+        Entity entity;
         try {
-            uuid = UUID.fromString(uuidStr);
+            entity = session.getEntities().resolve(params.get("uuid"));
         } catch (IllegalArgumentException e) {
-            return CommandResult.error("Invalid UUID format: " + uuidStr);
+            return CommandResult.error(e.getMessage());
         }
-
-        Entity entity = findEntityByUUID(uuid);
         if (entity == null) {
             return CommandResult.error("Entity not found: " + uuidStr);
         }
@@ -2329,9 +4271,7 @@ public class CommandHandler {
 
         try {
             if (params.has("source_uuid") && !params.get("source_uuid").isJsonNull()) {
-                String sourceUuidStr = params.get("source_uuid").getAsString();
-                UUID sourceUuid = UUID.fromString(sourceUuidStr);
-                Entity sourceEntity = findEntityByUUID(sourceUuid);
+                Entity sourceEntity = session.getEntities().resolve(params.get("source_uuid"));
                 if (sourceEntity != null) {
                     living.damage(amount, sourceEntity);
                 } else {
@@ -2369,7 +4309,7 @@ public class CommandHandler {
         }
     }
 
-    private static CommandResult handleRemoveObjective(JsonObject params) {
+    private static CommandResult handleRemoveObjective(MCPyLibPlugin plugin, JsonObject params) {
         if (!params.has("name")) {
             return CommandResult.error("Missing parameter: name");
         }
@@ -2383,13 +4323,14 @@ public class CommandHandler {
                 return CommandResult.error("Objective not found: " + name);
             }
             objective.unregister();
+            plugin.getSnapshotService().markObjectiveDirty(name);
             return CommandResult.success(true);
         } catch (Exception e) {
             return CommandResult.error("Failed to remove objective: " + e.getMessage());
         }
     }
 
-    private static CommandResult handleSetScore(JsonObject params) {
+    private static CommandResult handleSetScore(MCPyLibPlugin plugin, JsonObject params) {
         if (!params.has("objective") || !params.has("player") || !params.has("score")) {
             return CommandResult.error("Missing parameters: objective, player, score");
         }
@@ -2405,13 +4346,14 @@ public class CommandHandler {
                 return CommandResult.error("Objective not found: " + objectiveName);
             }
             objective.getScore(playerName).setScore(score);
+            plugin.getSnapshotService().markScoreDirty(objectiveName, playerName);
             return CommandResult.success(true);
         } catch (Exception e) {
             return CommandResult.error("Failed to set score: " + e.getMessage());
         }
     }
 
-    private static CommandResult handleGetScore(JsonObject params) {
+    private static CommandResult handleGetScore(MCPyLibPlugin plugin, JsonObject params) {
         if (!params.has("objective") || !params.has("player")) {
             return CommandResult.error("Missing parameters: objective, player");
         }
@@ -2426,6 +4368,8 @@ public class CommandHandler {
                 return CommandResult.error("Objective not found: " + objectiveName);
             }
             org.bukkit.scoreboard.Score scoreObj = objective.getScore(playerName);
+            // Later reads of this score are answered from the snapshot
+            plugin.getSnapshotService().watchScore(objectiveName, playerName);
             return CommandResult.success(scoreObj.getScore());
         } catch (Exception e) {
             return CommandResult.error("Failed to get score: " + e.getMessage());
@@ -2465,70 +4409,67 @@ public class CommandHandler {
         }
     }
 
-    private static CommandResult handleAddTag(JsonObject params) {
+    private static CommandResult handleAddTag(MCPyLibPlugin plugin, Session session, JsonObject params) {
         if (!params.has("uuid") || !params.has("tag")) {
             return CommandResult.error("Missing parameters: uuid, tag");
         }
 
         String uuidStr = params.get("uuid").getAsString();
-        UUID uuid;
+        Entity entity;
         try {
-            uuid = UUID.fromString(uuidStr);
+            entity = session.getEntities().resolve(params.get("uuid"));
         } catch (IllegalArgumentException e) {
-            return CommandResult.error("Invalid UUID format: " + uuidStr);
+            return CommandResult.error(e.getMessage());
         }
-
-        Entity entity = findEntityByUUID(uuid);
         if (entity == null) {
             return CommandResult.error("Entity not found: " + uuidStr);
         }
 
         String tag = params.get("tag").getAsString();
         boolean added = entity.addScoreboardTag(tag);
+        plugin.getSnapshotService().markEntityDirty(entity.getUniqueId());
         return CommandResult.success(added);
     }
 
-    private static CommandResult handleRemoveTag(JsonObject params) {
+    private static CommandResult handleRemoveTag(MCPyLibPlugin plugin, Session session, JsonObject params) {
         if (!params.has("uuid") || !params.has("tag")) {
             return CommandResult.error("Missing parameters: uuid, tag");
         }
 
         String uuidStr = params.get("uuid").getAsString();
-        UUID uuid;
+        Entity entity;
         try {
-            uuid = UUID.fromString(uuidStr);
+            entity = session.getEntities().resolve(params.get("uuid"));
         } catch (IllegalArgumentException e) {
-            return CommandResult.error("Invalid UUID format: " + uuidStr);
+            return CommandResult.error(e.getMessage());
         }
-
-        Entity entity = findEntityByUUID(uuid);
         if (entity == null) {
             return CommandResult.error("Entity not found: " + uuidStr);
         }
 
         String tag = params.get("tag").getAsString();
         boolean removed = entity.removeScoreboardTag(tag);
+        plugin.getSnapshotService().markEntityDirty(entity.getUniqueId());
         return CommandResult.success(removed);
     }
 
-    private static CommandResult handleGetTags(JsonObject params) {
+    private static CommandResult handleGetTags(MCPyLibPlugin plugin, Session session, JsonObject params) {
         if (!params.has("uuid")) {
             return CommandResult.error("Missing parameter: uuid");
         }
 
         String uuidStr = params.get("uuid").getAsString();
-        UUID uuid;
+        Entity entity;
         try {
-            uuid = UUID.fromString(uuidStr);
+            entity = session.getEntities().resolve(params.get("uuid"));
         } catch (IllegalArgumentException e) {
-            return CommandResult.error("Invalid UUID format: " + uuidStr);
+            return CommandResult.error(e.getMessage());
         }
-
-        Entity entity = findEntityByUUID(uuid);
         if (entity == null) {
             return CommandResult.error("Entity not found: " + uuidStr);
         }
 
+        plugin.getSnapshotService().watchEntity(entity.getUniqueId());
         return CommandResult.success(new ArrayList<>(entity.getScoreboardTags()));
     }
 
@@ -2802,20 +4743,18 @@ public class CommandHandler {
         }
     }
 
-    private static CommandResult handleAttribute(JsonObject params) {
+    private static CommandResult handleAttribute(Session session, JsonObject params) {
         if (!params.has("uuid") || !params.has("attribute")) {
             return CommandResult.error("Missing parameters: uuid, attribute");
         }
 
         String uuidStr = params.get("uuid").getAsString();
-        UUID uuid;
+        Entity entity;
         try {
-            uuid = UUID.fromString(uuidStr);
+            entity = session.getEntities().resolve(params.get("uuid"));
         } catch (IllegalArgumentException e) {
-            return CommandResult.error("Invalid UUID format: " + uuidStr);
+            return CommandResult.error(e.getMessage());
         }
-
-        Entity entity = findEntityByUUID(uuid);
         if (entity == null) {
             return CommandResult.error("Entity not found: " + uuidStr);
         }
@@ -3120,6 +5059,87 @@ public class CommandHandler {
     }
 
     // ===== Phase 6: World generation & structure placement =====
+    // Biomes of a box at 4x4x4 cell resolution, read from chunk snapshots off the main thread. Chunks
+    // that are not loaded are skipped rather than loaded; their cells get a null palette entry.
+    private static CommandResult handleGetBiomes(MCPyLibPlugin plugin, JsonObject params) {
+        if (!params.has("x1") || !params.has("y1") || !params.has("z1") ||
+            !params.has("x2") || !params.has("y2") || !params.has("z2")) {
+            return CommandResult.error("Missing parameters: x1, y1, z1, x2, y2, z2");
+        }
+
+        World world = Bukkit.getWorlds().get(0);
+
+        int x1 = params.get("x1").getAsInt();
+        int y1 = params.get("y1").getAsInt();
+        int z1 = params.get("z1").getAsInt();
+        int x2 = params.get("x2").getAsInt();
+        int y2 = params.get("y2").getAsInt();
+        int z2 = params.get("z2").getAsInt();
+
+        int minX = Math.min(x1, x2);
+        int maxX = Math.max(x1, x2);
+        int minZ = Math.min(z1, z2);
+        int maxZ = Math.max(z1, z2);
+        int minY = Math.max(Math.min(y1, y2), world.getMinHeight());
+        int maxY = Math.min(Math.max(y1, y2), world.getMaxHeight() - 1);
+        if (minY > maxY) {
+            return CommandResult.error("Region is outside the world height");
+        }
+
+        long volume = (long) (maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1);
+        long maxVolume = plugin.getConfig().getLong("edits.max-clipboard-volume", 16777216L);
+        if (volume > maxVolume) {
+            return CommandResult.error("Region too large (max " + maxVolume + " blocks): " + volume);
+        }
+
+        try {
+            RegionSnapshot snapshot = RegionSnapshot.captureLoaded(world, minX, minY, minZ, maxX, maxY, maxZ, true);
+            return CommandResult.pending(CompletableFuture.supplyAsync(() -> {
+                Map<String, Object> response = BiomeGrid.fromSnapshot(snapshot).toResponse();
+                response.put("unloaded_chunks", snapshot.getUnloadedChunks());
+                return response;
+            }, plugin.getAsyncExecutor())
+                .handle((result, error) -> {
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                        return CommandResult.error("Failed to get biomes: " + cause.getMessage());
+                    }
+                    return CommandResult.success(result);
+                }));
+        } catch (Exception e) {
+            return CommandResult.error("Failed to get biomes: " + e.getMessage());
+        }
+    }
+
+    // Writes a palette-encoded cell grid in the layout getbiomes returns, chunk by chunk within the tick budget
+    private static CommandResult handleSetBiomes(MCPyLibPlugin plugin, JsonObject params) {
+        BiomeGrid grid;
+        try {
+            grid = BiomeGrid.fromParams(params);
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            return CommandResult.error(e.getMessage());
+        }
+
+        long volume = (long) grid.getVolume() * 64;
+        long maxVolume = plugin.getConfig().getLong("edits.max-clipboard-volume", 16777216L);
+        if (volume > maxVolume) {
+            return CommandResult.error("Region too large (max " + maxVolume + " blocks): " + volume);
+        }
+
+        try {
+            World world = Bukkit.getWorlds().get(0);
+            return CommandResult.pending(plugin.getWriteEngine().submitBiomes(world, grid).handle((changed, error) -> {
+                if (error != null) {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    return CommandResult.error("Failed to set biomes: " + cause.getMessage());
+                }
+                return CommandResult.success(changed);
+            }));
+        } catch (Exception e) {
+            return CommandResult.error("Failed to set biomes: " + e.getMessage());
+        }
+    }
+
     private static CommandResult handleFillBiome(MCPyLibPlugin plugin, JsonObject params) {
         if (!params.has("x1") || !params.has("y1") || !params.has("z1") ||
             !params.has("x2") || !params.has("y2") || !params.has("z2") || !params.has("biome")) {
@@ -3265,34 +5285,32 @@ public class CommandHandler {
     }
 
     // ===== Phase 7: Other utility commands =====
-    private static CommandResult handleRide(JsonObject params) {
+    private static CommandResult handleRide(MCPyLibPlugin plugin, Session session, JsonObject params) {
         if (!params.has("passenger_uuid")) {
             return CommandResult.error("Missing parameter: passenger_uuid");
         }
 
         String passengerUuidStr = params.get("passenger_uuid").getAsString();
-        UUID passengerUuid;
+        Entity passenger;
         try {
-            passengerUuid = UUID.fromString(passengerUuidStr);
+            passenger = session.getEntities().resolve(params.get("passenger_uuid"));
         } catch (IllegalArgumentException e) {
-            return CommandResult.error("Invalid UUID format: " + passengerUuidStr);
+            return CommandResult.error(e.getMessage());
         }
-
-        Entity passenger = findEntityByUUID(passengerUuid);
         if (passenger == null) {
             return CommandResult.error("Passenger entity not found: " + passengerUuidStr);
         }
+        // Mounting or dismounting moves the passenger
+        plugin.getSnapshotService().markEntityDirty(passenger.getUniqueId());
 
         if (params.has("vehicle_uuid") && !params.get("vehicle_uuid").isJsonNull()) {
             String vehicleUuidStr = params.get("vehicle_uuid").getAsString();
-            UUID vehicleUuid;
+            Entity vehicle;
             try {
-                vehicleUuid = UUID.fromString(vehicleUuidStr);
+                vehicle = session.getEntities().resolve(params.get("vehicle_uuid"));
             } catch (IllegalArgumentException e) {
-                return CommandResult.error("Invalid vehicle UUID format: " + vehicleUuidStr);
+                return CommandResult.error("Invalid vehicle: " + e.getMessage());
             }
-
-            Entity vehicle = findEntityByUUID(vehicleUuid);
             if (vehicle == null) {
                 return CommandResult.error("Vehicle entity not found: " + vehicleUuidStr);
             }
@@ -3333,6 +5351,7 @@ public class CommandHandler {
             targets.append(usernames.get(i).getAsString());
         }
 
+        plugin.getSnapshotService().markAllDirty();
         try {
             final String cmd = "spreadplayers " + centerX + " " + centerZ + " " +
                 spreadDistance + " " + maxRange + " false " + targets;
@@ -1,29 +1,54 @@
 package com.mcpylib.plugin;
 
+import java.util.concurrent.CompletableFuture;
+
 public class CommandResult {
 
     private final boolean success;
     private final Object data;
     private final String error;
+    private final CompletableFuture<CommandResult> pending;
+    // Snapshot tick the data was read at, or -1 when it was read live on the main thread
+    private final long tick;
 
-    private CommandResult(boolean success, Object data, String error) {
+    private CommandResult(boolean success, Object data, String error, CompletableFuture<CommandResult> pending, long tick) {
         this.success = success;
         this.data = data;
         this.error = error;
+        this.pending = pending;
+        this.tick = tick;
     }
 
     public static CommandResult success(Object data) {
-        return new CommandResult(true, data, null);
+        return new CommandResult(true, data, null, null, -1);
     }
 
     public static CommandResult error(String error) {
-        return new CommandResult(false, null, error);
+        return new CommandResult(false, null, error, null, -1);
+    }
+
+    // Result of work that finishes on a later tick; the client handler waits for it off the main thread
+    public static CommandResult pending(CompletableFuture<CommandResult> pending) {
+        return new CommandResult(true, null, null, pending, -1);
+    }
+
+    // Data answered from the per-tick snapshot instead of the live world
+    public static CommandResult snapshot(Object data, long tick) {
+        return new CommandResult(true, data, null, null, tick);
     }
 
     public boolean isSuccess() {
         return success;
     }
 
+    public boolean isPending() {
+        return pending != null;
+    }
+
+    public CompletableFuture<CommandResult> getPending() {
+        return pending;
+    }
+
     public Object getData() {
         return data;
     }
@@ -31,4 +56,8 @@ public class CommandResult {
     public String getError() {
         return error;
     }
+
+    public long getTick() {
+        return tick;
+    }
 }
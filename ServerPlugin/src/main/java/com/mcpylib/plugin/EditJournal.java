@@ -0,0 +1,148 @@
+package com.mcpylib.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+// Undo and redo history for one connection. The newest entries stay in memory; once the journal
+// holds more than the memory limit, older entries are spilled to memory-mapped files. Block entity
+// snapshots cannot be spilled, so if the journal is still over the limit, the oldest entries are
+// dropped.
+public class EditJournal {
+
+    private final File folder;
+    private final int sessionId;
+    private final int maxEntries;
+    private final long memoryLimit;
+
+    private final Deque<JournalEntry> undo = new ArrayDeque<>();
+    private final Deque<JournalEntry> redo = new ArrayDeque<>();
+    private int nextFile;
+
+    public EditJournal(File folder, int sessionId, int maxEntries, long memoryLimit) {
+        this.folder = folder;
+        this.sessionId = sessionId;
+        this.maxEntries = maxEntries;
+        this.memoryLimit = memoryLimit;
+    }
+
+    // Records a new edit; anything that could have been redone is discarded
+    public synchronized void record(JournalEntry entry) {
+        clear(redo);
+        addUndo(entry);
+    }
+
+    public synchronized void addUndo(JournalEntry entry) {
+        add(undo, entry);
+    }
+
+    public synchronized void addRedo(JournalEntry entry) {
+        add(redo, entry);
+    }
+
+    public synchronized JournalEntry popUndo() {
+        return undo.pollFirst();
+    }
+
+    public synchronized JournalEntry popRedo() {
+        return redo.pollFirst();
+    }
+
+    public synchronized int getUndoSize() {
+        return undo.size();
+    }
+
+    public synchronized int getRedoSize() {
+        return redo.size();
+    }
+
+    public synchronized void close() {
+        clear(undo);
+        clear(redo);
+    }
+
+    // Removes journal files left behind by a previous run
+    public static void cleanFolder(File folder) {
+        File[] files = folder.listFiles((dir, name) -> name.endsWith(".journal"));
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+
+    private void add(Deque<JournalEntry> stack, JournalEntry entry) {
+        if (entry.isEmpty() || maxEntries <= 0) {
+            return;
+        }
+        stack.addFirst(entry);
+        while (stack.size() > maxEntries) {
+            stack.pollLast().release();
+        }
+        spillOverLimit();
+    }
+
+    private void spillOverLimit() {
+        long used = 0;
+        for (JournalEntry entry : undo) {
+            used += entry.getMemoryBytes();
+        }
+        for (JournalEntry entry : redo) {
+            used += entry.getMemoryBytes();
+        }
+        if (used <= memoryLimit) {
+            return;
+        }
+
+        // Spill from the oldest undo entries first; those are the least likely to be replayed
+        Iterator<JournalEntry> oldest = undo.descendingIterator();
+        while (used > memoryLimit && oldest.hasNext()) {
+            used -= spill(oldest.next());
+        }
+        oldest = redo.descendingIterator();
+        while (used > memoryLimit && oldest.hasNext()) {
+            used -= spill(oldest.next());
+        }
+
+        // What is left is palettes and block entities; the newest undo entry is always kept
+        while (used > memoryLimit && !redo.isEmpty()) {
+            used -= drop(redo);
+        }
+        while (used > memoryLimit && undo.size() > 1) {
+            used -= drop(undo);
+        }
+    }
+
+    private static long drop(Deque<JournalEntry> stack) {
+        JournalEntry entry = stack.pollLast();
+        long freed = entry.getMemoryBytes();
+        entry.release();
+        return freed;
+    }
+
+    private long spill(JournalEntry entry) {
+        if (entry.isSpilled()) {
+            return 0;
+        }
+        long before = entry.getMemoryBytes();
+        try {
+            if (!folder.exists() && !folder.mkdirs()) {
+                return 0;
+            }
+            entry.spill(new File(folder, "session-" + sessionId + "-" + (nextFile++) + ".journal"));
+            return before - entry.getMemoryBytes();
+        } catch (IOException e) {
+            // Keep the entry in memory rather than lose it
+            return 0;
+        }
+    }
+
+    private static void clear(Deque<JournalEntry> stack) {
+        for (JournalEntry entry : stack) {
+            entry.release();
+        }
+        stack.clear();
+    }
+}
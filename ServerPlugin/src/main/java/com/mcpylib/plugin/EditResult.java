@@ -0,0 +1,46 @@
+package com.mcpylib.plugin;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class EditResult {
+
+    private final PhysicsMode physics;
+    long placed;
+    long updates;
+    // Positions skipped because they already held the target block; -1 when not compared
+    long unchanged = -1;
+
+    public EditResult(PhysicsMode physics) {
+        this.physics = physics;
+    }
+
+    public long getPlaced() {
+        return placed;
+    }
+
+    public long getUpdates() {
+        return updates;
+    }
+
+    public long getUnchanged() {
+        return unchanged;
+    }
+
+    // Plain block count, matching the original fill/bulkedit/clone responses,
+    // unless a deferred update pass or a diff has its own count to report
+    public Object toResponse() {
+        if (physics != PhysicsMode.DEFERRED && unchanged < 0) {
+            return placed;
+        }
+        Map<String, Object> result = new HashMap<>();
+        result.put("count", placed);
+        if (physics == PhysicsMode.DEFERRED) {
+            result.put("updates", updates);
+        }
+        if (unchanged >= 0) {
+            result.put("unchanged", unchanged);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,44 @@
+package com.mcpylib.plugin;
+
+import com.google.gson.JsonObject;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.data.BlockData;
+
+// A set of block writes that the WriteEngine can replay one chunk section at a time
+public interface EditSource {
+
+    // Section keys (see SectionKey) in the order they should be written
+    long[] sections();
+
+    // Emits every write that falls inside the given section
+    void write(long section, BlockSink sink);
+
+    // Whether this edit writes the given position
+    boolean contains(int x, int y, int z);
+
+    interface BlockSink {
+        void accept(int x, int y, int z, BlockData data, TileData tile);
+    }
+
+    // Block entity contents applied right after the block itself is placed
+    interface TileData {
+        void apply(Block block, boolean applyPhysics);
+
+        static TileData ofNbt(JsonObject nbt) {
+            return (block, applyPhysics) -> {
+                BlockState state = block.getState();
+                CommandHandler.applyNBTData(state, nbt);
+                state.update(true, applyPhysics);
+            };
+        }
+
+        static TileData ofState(BlockState captured) {
+            return (block, applyPhysics) -> {
+                BlockState copy = captured.copy(block.getLocation());
+                copy.setBlockData(block.getBlockData());
+                copy.update(true, applyPhysics);
+            };
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.mcpylib.plugin;
+
+import com.google.gson.JsonElement;
+import org.bukkit.entity.Entity;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// Small integer handles for entities, scoped to one session. Handle n maps to uuids[n - 1] and an
+// entity keeps its handle for the life of the session; a handle whose entity has died or been
+// unloaded simply resolves to null. Main thread only.
+public class EntityHandles {
+
+    private final EntityRegistry registry;
+    private final List<UUID> uuids = new ArrayList<>();
+    private final Map<UUID, Integer> handles = new HashMap<>();
+
+    public EntityHandles(EntityRegistry registry) {
+        this.registry = registry;
+    }
+
+    public int handleFor(Entity entity) {
+        registry.put(entity);
+        UUID uuid = entity.getUniqueId();
+        Integer handle = handles.get(uuid);
+        if (handle == null) {
+            uuids.add(uuid);
+            handle = uuids.size();
+            handles.put(uuid, handle);
+        }
+        return handle;
+    }
+
+    // The entity's handle if this session already issued one, otherwise null
+    public Integer find(Entity entity) {
+        return handles.get(entity.getUniqueId());
+    }
+
+    // The UUID behind a handle, or null if this session never issued it
+    public UUID uuidOf(int handle) {
+        return handle < 1 || handle > uuids.size() ? null : uuids.get(handle - 1);
+    }
+
+    // Resolves an entity reference: a JSON number is a handle, anything else a UUID string.
+    // Returns null if the entity is not loaded. A JSON null, which summon_many returns for an entity
+    // that failed to spawn, counts as not loaded.
+    public Entity resolve(JsonElement ref) {
+        if (ref == null || ref.isJsonNull()) {
+            return null;
+        }
+        if (ref.isJsonPrimitive() && ref.getAsJsonPrimitive().isNumber()) {
+            UUID uuid = uuidOf(ref.getAsInt());
+            if (uuid == null) {
+                throw new IllegalArgumentException("Unknown entity handle: " + ref.getAsInt());
+            }
+            return registry.get(uuid);
+        }
+
+        String uuidStr = ref.getAsString();
+        try {
+            return registry.get(UUID.fromString(uuidStr));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid UUID format: " + uuidStr);
+        }
+    }
+
+    public Entity get(UUID uuid) {
+        return registry.get(uuid);
+    }
+}
@@ -0,0 +1,69 @@
+package com.mcpylib.plugin;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Entity;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.entity.EntityDeathEvent;
+import org.bukkit.event.entity.EntityRemoveEvent;
+import org.bukkit.event.world.EntitiesUnloadEvent;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+// Finds entities by UUID without walking every world's entity list. Hits come from a weak cache;
+// misses go to Bukkit.getEntity, which uses the server's own UUID index. Deaths, removals and
+// chunk unloads evict entries so a stale Entity is never handed out. Main thread only.
+public class EntityRegistry implements Listener {
+
+    private final Map<UUID, WeakReference<Entity>> cache = new HashMap<>();
+
+    // The loaded entity with this UUID, or null
+    public Entity get(UUID uuid) {
+        WeakReference<Entity> ref = cache.get(uuid);
+        Entity entity = ref == null ? null : ref.get();
+        if (entity != null && entity.isValid()) {
+            return entity;
+        }
+
+        entity = Bukkit.getEntity(uuid);
+        if (entity != null) {
+            cache.put(uuid, new WeakReference<>(entity));
+        } else if (ref != null) {
+            cache.remove(uuid);
+        }
+        return entity;
+    }
+
+    // Caches an entity the plugin already holds, such as one it just spawned
+    public void put(Entity entity) {
+        cache.put(entity.getUniqueId(), new WeakReference<>(entity));
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntityDeath(EntityDeathEvent event) {
+        cache.remove(event.getEntity().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntityRemove(EntityRemoveEvent event) {
+        cache.remove(event.getEntity().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntitiesUnload(EntitiesUnloadEvent event) {
+        if (cache.isEmpty()) {
+            return;
+        }
+        for (Entity entity : event.getEntities()) {
+            cache.remove(entity.getUniqueId());
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.mcpylib.plugin;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.bukkit.attribute.Attribute;
+import org.bukkit.attribute.AttributeInstance;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.inventory.EntityEquipment;
+import org.bukkit.inventory.EquipmentSlot;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Properties given to an entity before it is added to the world: type, custom name, tags,
+// rotation, AI, equipment and attribute base values. Templates are immutable, so one shared
+// template can be applied to many entities and per-entity overrides are cheap copies.
+public final class EntityTemplate {
+
+    private static final Map<String, EquipmentSlot> SLOTS = Map.of(
+        "helmet", EquipmentSlot.HEAD,
+        "chestplate", EquipmentSlot.CHEST,
+        "leggings", EquipmentSlot.LEGS,
+        "boots", EquipmentSlot.FEET,
+        "main_hand", EquipmentSlot.HAND,
+        "off_hand", EquipmentSlot.OFF_HAND);
+
+    private static final EntityTemplate EMPTY = new EntityTemplate(null, null, Collections.emptyList(),
+        null, null, null, Collections.emptyMap(), Collections.emptyMap());
+
+    private final EntityType type;
+    private final String customName;
+    private final List<String> tags;
+    private final Float yaw;
+    private final Float pitch;
+    private final Boolean ai;
+    // A null item clears the slot
+    private final Map<EquipmentSlot, ItemStack> equipment;
+    private final Map<Attribute, Double> attributes;
+
+    private EntityTemplate(EntityType type, String customName, List<String> tags, Float yaw, Float pitch,
+                           Boolean ai, Map<EquipmentSlot, ItemStack> equipment, Map<Attribute, Double> attributes) {
+        this.type = type;
+        this.customName = customName;
+        this.tags = tags;
+        this.yaw = yaw;
+        this.pitch = pitch;
+        this.ai = ai;
+        this.equipment = equipment;
+        this.attributes = attributes;
+    }
+
+    // Reads entity_type, name, tags, yaw, pitch, ai, equipment ({slot: item spec}) and
+    // attributes ({attribute: base value}); entity_type is required
+    public static EntityTemplate fromJson(JsonObject json) {
+        if (!json.has("entity_type")) {
+            throw new IllegalArgumentException("Missing parameter: entity_type");
+        }
+        return EMPTY.with(json);
+    }
+
+    // A copy with every property present in the override replaced
+    public EntityTemplate with(JsonObject override) {
+        EntityType type = this.type;
+        if (override.has("entity_type")) {
+            type = parseType(override.get("entity_type").getAsString());
+        }
+
+        String customName = override.has("name")
+            ? (override.get("name").isJsonNull() ? null : override.get("name").getAsString()) : this.customName;
+
+        List<String> tags = this.tags;
+        if (override.has("tags")) {
+            tags = new ArrayList<>();
+            for (JsonElement tag : override.getAsJsonArray("tags")) {
+                tags.add(tag.getAsString());
+            }
+        }
+
+        Float yaw = override.has("yaw") ? override.get("yaw").getAsFloat() : this.yaw;
+        Float pitch = override.has("pitch") ? override.get("pitch").getAsFloat() : this.pitch;
+        Boolean ai = override.has("ai") ? override.get("ai").getAsBoolean() : this.ai;
+
+        Map<EquipmentSlot, ItemStack> equipment = this.equipment;
+        if (override.has("equipment")) {
+            equipment = new EnumMap<>(EquipmentSlot.class);
+            equipment.putAll(this.equipment);
+            for (Map.Entry<String, JsonElement> entry : override.getAsJsonObject("equipment").entrySet()) {
+                EquipmentSlot slot = SLOTS.get(entry.getKey().toLowerCase());
+                if (slot == null) {
+                    throw new IllegalArgumentException("Invalid equipment slot: " + entry.getKey() +
+                        " (valid: helmet, chestplate, leggings, boots, main_hand, off_hand)");
+                }
+                equipment.put(slot, entry.getValue().isJsonNull() ? null
+                    : BlockEntities.parseItem(entry.getValue().getAsString(), 1));
+            }
+        }
+
+        Map<Attribute, Double> attributes = this.attributes;
+        if (override.has("attributes")) {
+            attributes = new LinkedHashMap<>(this.attributes);
+            for (Map.Entry<String, JsonElement> entry : override.getAsJsonObject("attributes").entrySet()) {
+                String name = entry.getKey().toUpperCase();
+                try {
+                    attributes.put(Attribute.valueOf(name), entry.getValue().getAsDouble());
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Invalid attribute: " + name);
+                }
+            }
+        }
+
+        boolean living = LivingEntity.class.isAssignableFrom(type.getEntityClass());
+        if (!living && (ai != null || !equipment.isEmpty() || !attributes.isEmpty())) {
+            throw new IllegalArgumentException("Entity type cannot have ai, equipment or attributes: " +
+                type.name().toLowerCase());
+        }
+        return new EntityTemplate(type, customName, tags, yaw, pitch, ai, equipment, attributes);
+    }
+
+    public EntityType getType() {
+        return type;
+    }
+
+    // Called from the spawn consumer, before the entity is added to the world. Attributes the
+    // entity does not have are skipped.
+    public void apply(Entity entity) {
+        if (customName != null) {
+            entity.setCustomName(customName);
+        }
+        for (String tag : tags) {
+            entity.addScoreboardTag(tag);
+        }
+        if (yaw != null || pitch != null) {
+            entity.setRotation(yaw != null ? yaw : entity.getLocation().getYaw(),
+                pitch != null ? pitch : entity.getLocation().getPitch());
+        }
+        if (!(entity instanceof LivingEntity)) {
+            return;
+        }
+
+        LivingEntity living = (LivingEntity) entity;
+        if (ai != null) {
+            living.setAI(ai);
+        }
+        EntityEquipment slots = living.getEquipment();
+        if (slots != null) {
+            for (Map.Entry<EquipmentSlot, ItemStack> entry : equipment.entrySet()) {
+                slots.setItem(entry.getKey(), entry.getValue() == null ? null : entry.getValue().clone());
+            }
+        }
+        for (Map.Entry<Attribute, Double> entry : attributes.entrySet()) {
+            AttributeInstance instance = living.getAttribute(entry.getKey());
+            if (instance == null) {
+                continue;
+            }
+            instance.setBaseValue(entry.getValue());
+            // Start at full health when the maximum is raised
+            if (entry.getKey() == Attribute.MAX_HEALTH) {
+                living.setHealth(instance.getValue());
+            }
+        }
+    }
+
+    private static EntityType parseType(String name) {
+        String typeName = name.startsWith("minecraft:") ? name.substring("minecraft:".length()) : name;
+        EntityType type;
+        try {
+            type = EntityType.valueOf(typeName.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid entity type: " + typeName);
+        }
+        if (type == EntityType.PLAYER || !type.isSpawnable()) {
+            throw new IllegalArgumentException("Cannot summon entity type: " + typeName);
+        }
+        return type;
+    }
+}
@@ -0,0 +1,137 @@
+package com.mcpylib.plugin;
+
+import org.bukkit.World;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.data.BlockData;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// The prior state of every position one edit changed. Records are varints in write order:
+// zigzag(dx), zigzag(dy), zigzag(dz) from the previous position, then the palette index.
+public class JournalEntry {
+
+    // Rough heap cost of one palette entry (the BlockData and its index entry) and of one block
+    // entity snapshot, which stay on the heap when the records are spilled
+    private static final int PALETTE_ENTRY_BYTES = 128;
+    private static final int TILE_BYTES = 1024;
+
+    private final World world;
+    private final List<BlockData> palette = new ArrayList<>();
+    private final Map<BlockData, Integer> paletteIndex = new HashMap<>();
+    // Block entity snapshots by record number
+    private final Map<Integer, BlockState> tiles = new HashMap<>();
+
+    private byte[] bytes = new byte[256];
+    private int length;
+    private int count;
+    private int lastX;
+    private int lastY;
+    private int lastZ;
+
+    // Set once the records have been moved to disk
+    private File file;
+    private ByteBuffer mapped;
+
+    public JournalEntry(World world) {
+        this.world = world;
+    }
+
+    public void record(int x, int y, int z, BlockData data, BlockState tile) {
+        Integer index = paletteIndex.get(data);
+        if (index == null) {
+            index = palette.size();
+            palette.add(data);
+            paletteIndex.put(data, index);
+        }
+
+        if (length + 20 > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + 20));
+        }
+        length = VarInts.write(bytes, length, VarInts.zigzag(x - lastX));
+        length = VarInts.write(bytes, length, VarInts.zigzag(y - lastY));
+        length = VarInts.write(bytes, length, VarInts.zigzag(z - lastZ));
+        length = VarInts.write(bytes, length, index);
+        lastX = x;
+        lastY = y;
+        lastZ = z;
+
+        if (tile != null) {
+            tiles.put(count, tile);
+        }
+        count++;
+    }
+
+    // Adds the recorded states to the buffer. A position written twice by the edit keeps its first,
+    // original state.
+    public void decodeInto(BlockBuffer buffer) {
+        ByteBuffer in = mapped != null ? mapped.duplicate() : ByteBuffer.wrap(bytes, 0, length);
+        int x = 0;
+        int y = 0;
+        int z = 0;
+        for (int i = 0; i < count; i++) {
+            x += VarInts.unzigzag(VarInts.read(in, "journal"));
+            y += VarInts.unzigzag(VarInts.read(in, "journal"));
+            z += VarInts.unzigzag(VarInts.read(in, "journal"));
+            BlockData data = palette.get(VarInts.read(in, "journal"));
+            if (buffer.contains(x, y, z)) {
+                continue;
+            }
+            BlockState tile = tiles.isEmpty() ? null : tiles.get(i);
+            buffer.set(x, y, z, data, tile != null ? EditSource.TileData.ofState(tile) : null);
+        }
+    }
+
+    // Moves the records into a memory-mapped file so they no longer count against the heap
+    public void spill(File target) throws IOException {
+        if (mapped != null) {
+            return;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(target, "rw"); FileChannel channel = raf.getChannel()) {
+            channel.write(ByteBuffer.wrap(bytes, 0, length));
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+        }
+        file = target;
+        bytes = null;
+    }
+
+    public void release() {
+        mapped = null;
+        bytes = null;
+        if (file != null) {
+            file.delete();
+            file = null;
+        }
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public boolean isSpilled() {
+        return mapped != null;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    // Estimated heap bytes held by the entry: the encoded records until they are spilled, plus the
+    // palette and block entity snapshots, which are never spilled
+    public long getMemoryBytes() {
+        return (bytes != null ? bytes.length : 0)
+            + (long) palette.size() * PALETTE_ENTRY_BYTES + (long) tiles.size() * TILE_BYTES;
+    }
+}
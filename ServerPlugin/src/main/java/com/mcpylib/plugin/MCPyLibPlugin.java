@@ -1,12 +1,27 @@
 package com.mcpylib.plugin;
 
+import org.bukkit.inventory.MerchantRecipe;
 import org.bukkit.plugin.java.JavaPlugin;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Level;
 
 public class MCPyLibPlugin extends JavaPlugin {
 
     private NetworkServer networkServer;
     private TokenManager tokenManager;
+    private WriteEngine writeEngine;
+    private ForkJoinPool workerPool;
+    private EntityRegistry entityRegistry;
+    private EntityAnimator entityAnimator;
+    private SnapshotService snapshotService;
+    // Named trade lists from define_trade_template, shared by every connection; main thread only
+    private final Map<String, List<MerchantRecipe>> tradeTemplates = new HashMap<>();
 
     @Override
     public void onEnable() {
@@ -16,6 +31,30 @@ public class MCPyLibPlugin extends JavaPlugin {
         // Initialize token manager
         tokenManager = new TokenManager(this);
 
+        // Pre-parse the default state of every block so hot loops never parse strings
+        BlockDataRegistry.prewarm();
+        writeEngine = new WriteEngine(this);
+        writeEngine.start();
+
+        // Worker threads for scans over chunk snapshots
+        int threads = getConfig().getInt("workers.threads", 0);
+        if (threads <= 0) {
+            threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        }
+        workerPool = new ForkJoinPool(threads);
+
+        // UUID lookups for entity commands, kept current by entity events
+        entityRegistry = new EntityRegistry();
+        getServer().getPluginManager().registerEvents(entityRegistry, this);
+        entityAnimator = new EntityAnimator(this);
+
+        // Per-tick view of players and watched entities and scores, read by client threads
+        snapshotService = new SnapshotService(this);
+        snapshotService.start();
+
+        // Undo journals are per connection, so nothing spilled by a previous run is still reachable
+        EditJournal.cleanFolder(getJournalFolder());
+
         // Get configuration
         String host = getConfig().getString("server.host", "0.0.0.0");
         int port = getConfig().getInt("server.port", 65535);
@@ -47,6 +86,23 @@ public class MCPyLibPlugin extends JavaPlugin {
             networkServer.stop();
         }
 
+        // Fail any edits still queued so waiting clients are released
+        if (writeEngine != null) {
+            writeEngine.stop();
+        }
+
+        if (entityAnimator != null) {
+            entityAnimator.stop();
+        }
+
+        if (snapshotService != null) {
+            snapshotService.stop();
+        }
+
+        if (workerPool != null) {
+            workerPool.shutdownNow();
+        }
+
         getLogger().info("MCPyLib plugin disabled!");
     }
 
@@ -57,4 +113,46 @@ public class MCPyLibPlugin extends JavaPlugin {
     public TokenManager getTokenManager() {
         return tokenManager;
     }
+
+    public WriteEngine getWriteEngine() {
+        return writeEngine;
+    }
+
+    public ForkJoinPool getWorkerPool() {
+        return workerPool;
+    }
+
+    public EntityRegistry getEntityRegistry() {
+        return entityRegistry;
+    }
+
+    public EntityAnimator getEntityAnimator() {
+        return entityAnimator;
+    }
+
+    public SnapshotService getSnapshotService() {
+        return snapshotService;
+    }
+
+    public Map<String, List<MerchantRecipe>> getTradeTemplates() {
+        return tradeTemplates;
+    }
+
+    public File getSchematicFolder() {
+        return new File(getDataFolder(), "schematics");
+    }
+
+    public File getJournalFolder() {
+        return new File(getDataFolder(), "undo");
+    }
+
+    // Runs CompletableFuture stages on the server thread
+    public Executor getMainThreadExecutor() {
+        return task -> getServer().getScheduler().runTask(this, task);
+    }
+
+    // Runs CompletableFuture stages on the scheduler's async pool, for file I/O and snapshot work
+    public Executor getAsyncExecutor() {
+        return task -> getServer().getScheduler().runTaskAsynchronously(this, task);
+    }
 }
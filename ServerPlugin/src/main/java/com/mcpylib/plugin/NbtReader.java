@@ -0,0 +1,173 @@
+package com.mcpylib.plugin;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static com.mcpylib.plugin.NbtWriter.*;
+
+// Streaming pull reader for binary NBT. nextTag() reads a named tag header; the caller then reads
+// or skips its payload. Large arrays can be consumed straight from input() after beginArray().
+public class NbtReader implements Closeable {
+
+    private final DataInputStream in;
+    private String name;
+    private int listType;
+
+    public NbtReader(InputStream in) {
+        this.in = new DataInputStream(in);
+    }
+
+    // Type of the next tag inside the current compound, or TAG_END when it is finished
+    public int nextTag() throws IOException {
+        int type = in.readUnsignedByte();
+        name = type == TAG_END ? null : in.readUTF();
+        return type;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public DataInputStream input() {
+        return in;
+    }
+
+    public byte readByte() throws IOException {
+        return in.readByte();
+    }
+
+    public short readShort() throws IOException {
+        return in.readShort();
+    }
+
+    public int readInt() throws IOException {
+        return in.readInt();
+    }
+
+    public long readLong() throws IOException {
+        return in.readLong();
+    }
+
+    public float readFloat() throws IOException {
+        return in.readFloat();
+    }
+
+    public double readDouble() throws IOException {
+        return in.readDouble();
+    }
+
+    public String readString() throws IOException {
+        return in.readUTF();
+    }
+
+    // Reads the length of a byte, int or long array; the elements follow in input()
+    public int beginArray() throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Negative NBT array length: " + length);
+        }
+        return length;
+    }
+
+    public byte[] readByteArray() throws IOException {
+        byte[] value = new byte[beginArray()];
+        in.readFully(value);
+        return value;
+    }
+
+    public int[] readIntArray() throws IOException {
+        int[] value = new int[beginArray()];
+        for (int i = 0; i < value.length; i++) {
+            value[i] = in.readInt();
+        }
+        return value;
+    }
+
+    // Reads a list header and returns the element count; listType() gives the element type
+    public int beginList() throws IOException {
+        listType = in.readUnsignedByte();
+        int size = in.readInt();
+        return Math.max(size, 0);
+    }
+
+    public int listType() {
+        return listType;
+    }
+
+    // Integer value of any numeric tag, so files that widen or narrow a field still load
+    public long readNumber(int type) throws IOException {
+        switch (type) {
+            case TAG_BYTE:
+                return in.readByte();
+            case TAG_SHORT:
+                return in.readShort();
+            case TAG_INT:
+                return in.readInt();
+            case TAG_LONG:
+                return in.readLong();
+            case TAG_FLOAT:
+                return (long) in.readFloat();
+            case TAG_DOUBLE:
+                return (long) in.readDouble();
+            default:
+                throw new IOException("Expected a numeric tag for '" + name + "' but found type " + type);
+        }
+    }
+
+    public void skip(int type) throws IOException {
+        switch (type) {
+            case TAG_END:
+                break;
+            case TAG_BYTE:
+                in.skipNBytes(1);
+                break;
+            case TAG_SHORT:
+                in.skipNBytes(2);
+                break;
+            case TAG_INT:
+            case TAG_FLOAT:
+                in.skipNBytes(4);
+                break;
+            case TAG_LONG:
+            case TAG_DOUBLE:
+                in.skipNBytes(8);
+                break;
+            case TAG_BYTE_ARRAY:
+                in.skipNBytes(beginArray());
+                break;
+            case TAG_STRING:
+                in.skipNBytes(in.readUnsignedShort());
+                break;
+            case TAG_LIST: {
+                int size = beginList();
+                int elementType = listType;
+                for (int i = 0; i < size; i++) {
+                    skip(elementType);
+                }
+                break;
+            }
+            case TAG_COMPOUND: {
+                int child;
+                while ((child = nextTag()) != TAG_END) {
+                    skip(child);
+                }
+                break;
+            }
+            case TAG_INT_ARRAY:
+                in.skipNBytes(4L * beginArray());
+                break;
+            case TAG_LONG_ARRAY:
+                in.skipNBytes(8L * beginArray());
+                break;
+            default:
+                throw new IOException("Unknown NBT tag type: " + type);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,106 @@
+package com.mcpylib.plugin;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Streaming writer for binary NBT. A null name writes a bare payload, as used for list elements.
+public class NbtWriter implements Closeable {
+
+    static final int TAG_END = 0;
+    static final int TAG_BYTE = 1;
+    static final int TAG_SHORT = 2;
+    static final int TAG_INT = 3;
+    static final int TAG_LONG = 4;
+    static final int TAG_FLOAT = 5;
+    static final int TAG_DOUBLE = 6;
+    static final int TAG_BYTE_ARRAY = 7;
+    static final int TAG_STRING = 8;
+    static final int TAG_LIST = 9;
+    static final int TAG_COMPOUND = 10;
+    static final int TAG_INT_ARRAY = 11;
+    static final int TAG_LONG_ARRAY = 12;
+
+    private final DataOutputStream out;
+
+    public NbtWriter(OutputStream out) {
+        this.out = new DataOutputStream(out);
+    }
+
+    public void beginCompound(String name) throws IOException {
+        header(TAG_COMPOUND, name);
+    }
+
+    public void endCompound() throws IOException {
+        out.writeByte(TAG_END);
+    }
+
+    // Elements follow as unnamed payloads; a list of compounds ends each one with endCompound()
+    public void beginList(String name, int elementType, int size) throws IOException {
+        header(TAG_LIST, name);
+        out.writeByte(size == 0 ? TAG_END : elementType);
+        out.writeInt(size);
+    }
+
+    public void writeByte(String name, int value) throws IOException {
+        header(TAG_BYTE, name);
+        out.writeByte(value);
+    }
+
+    public void writeShort(String name, int value) throws IOException {
+        header(TAG_SHORT, name);
+        out.writeShort(value);
+    }
+
+    public void writeInt(String name, int value) throws IOException {
+        header(TAG_INT, name);
+        out.writeInt(value);
+    }
+
+    public void writeLong(String name, long value) throws IOException {
+        header(TAG_LONG, name);
+        out.writeLong(value);
+    }
+
+    public void writeFloat(String name, float value) throws IOException {
+        header(TAG_FLOAT, name);
+        out.writeFloat(value);
+    }
+
+    public void writeDouble(String name, double value) throws IOException {
+        header(TAG_DOUBLE, name);
+        out.writeDouble(value);
+    }
+
+    public void writeString(String name, String value) throws IOException {
+        header(TAG_STRING, name);
+        out.writeUTF(value);
+    }
+
+    public void writeByteArray(String name, byte[] value, int offset, int length) throws IOException {
+        header(TAG_BYTE_ARRAY, name);
+        out.writeInt(length);
+        out.write(value, offset, length);
+    }
+
+    public void writeIntArray(String name, int... value) throws IOException {
+        header(TAG_INT_ARRAY, name);
+        out.writeInt(value.length);
+        for (int v : value) {
+            out.writeInt(v);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void header(int type, String name) throws IOException {
+        if (name != null) {
+            out.writeByte(type);
+            out.writeUTF(name);
+        }
+    }
+}
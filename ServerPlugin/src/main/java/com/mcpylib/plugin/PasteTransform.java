@@ -0,0 +1,112 @@
+package com.mcpylib.plugin;
+
+import org.bukkit.block.data.BlockData;
+import org.bukkit.block.structure.Mirror;
+import org.bukkit.block.structure.StructureRotation;
+
+// Places origin-relative positions at a paste point, mirroring first and then rotating clockwise
+public class PasteTransform {
+
+    private final int x;
+    private final int y;
+    private final int z;
+    private final StructureRotation rotation;
+    private final Mirror mirror;
+
+    public PasteTransform(int x, int y, int z, StructureRotation rotation, Mirror mirror) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.rotation = rotation;
+        this.mirror = mirror;
+    }
+
+    public boolean isIdentity() {
+        return rotation == StructureRotation.NONE && mirror == Mirror.NONE;
+    }
+
+    // Transforms a whole palette once so per-block placement never clones BlockData
+    public BlockData[] apply(BlockData[] palette) {
+        BlockData[] transformed = new BlockData[palette.length];
+        for (int i = 0; i < palette.length; i++) {
+            BlockData data = palette[i];
+            if (data != null && !isIdentity()) {
+                data = data.clone();
+                data.mirror(mirror);
+                data.rotate(rotation);
+            }
+            transformed[i] = data;
+        }
+        return transformed;
+    }
+
+    public int worldX(int rx, int rz) {
+        if (mirror == Mirror.FRONT_BACK) {
+            rx = -rx;
+        } else if (mirror == Mirror.LEFT_RIGHT) {
+            rz = -rz;
+        }
+        switch (rotation) {
+            case CLOCKWISE_90:
+                return x - rz;
+            case CLOCKWISE_180:
+                return x - rx;
+            case COUNTERCLOCKWISE_90:
+                return x + rz;
+            default:
+                return x + rx;
+        }
+    }
+
+    public int worldY(int ry) {
+        return y + ry;
+    }
+
+    public int worldZ(int rx, int rz) {
+        if (mirror == Mirror.FRONT_BACK) {
+            rx = -rx;
+        } else if (mirror == Mirror.LEFT_RIGHT) {
+            rz = -rz;
+        }
+        switch (rotation) {
+            case CLOCKWISE_90:
+                return z + rx;
+            case CLOCKWISE_180:
+                return z - rz;
+            case COUNTERCLOCKWISE_90:
+                return z - rx;
+            default:
+                return z + rz;
+        }
+    }
+
+    public static StructureRotation parseRotation(int degrees) {
+        switch (Math.floorMod(degrees, 360)) {
+            case 0:
+                return StructureRotation.NONE;
+            case 90:
+                return StructureRotation.CLOCKWISE_90;
+            case 180:
+                return StructureRotation.CLOCKWISE_180;
+            case 270:
+                return StructureRotation.COUNTERCLOCKWISE_90;
+            default:
+                throw new IllegalArgumentException("Invalid rotation: " + degrees + " (valid: 0, 90, 180, 270)");
+        }
+    }
+
+    public static Mirror parseMirror(String name) {
+        switch (name.toLowerCase()) {
+            case "none":
+                return Mirror.NONE;
+            case "x":
+            case "front_back":
+                return Mirror.FRONT_BACK;
+            case "z":
+            case "left_right":
+                return Mirror.LEFT_RIGHT;
+            default:
+                throw new IllegalArgumentException("Invalid mirror: " + name + " (valid: none, x, z)");
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.mcpylib.plugin;
+
+import com.google.gson.JsonObject;
+
+public enum PhysicsMode {
+
+    // Every placement runs vanilla physics and neighbor updates
+    FULL,
+    // Blocks are written raw; nothing reacts to the change
+    NONE,
+    // Blocks are written raw, then one update pass runs over the edit boundary
+    // and over blocks that need support or connect to their neighbors
+    DEFERRED;
+
+    public static PhysicsMode fromParams(JsonObject params, PhysicsMode defaultMode) {
+        if (!params.has("physics") || params.get("physics").isJsonNull()) {
+            return defaultMode;
+        }
+
+        String value = params.get("physics").getAsString();
+        try {
+            return PhysicsMode.valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid physics mode: " + value + " (valid: full, none, deferred)");
+        }
+    }
+}
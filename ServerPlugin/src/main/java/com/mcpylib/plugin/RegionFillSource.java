@@ -0,0 +1,59 @@
+package com.mcpylib.plugin;
+
+import org.bukkit.block.data.BlockData;
+
+// Writes one BlockData into every position of a box without materializing the positions
+public class RegionFillSource implements EditSource {
+
+    private final int minX, minY, minZ, maxX, maxY, maxZ;
+    private final BlockData data;
+
+    public RegionFillSource(int minX, int minY, int minZ, int maxX, int maxY, int maxZ, BlockData data) {
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+        this.data = data;
+    }
+
+    @Override
+    public long[] sections() {
+        int sx0 = minX >> 4, sx1 = maxX >> 4;
+        int sy0 = minY >> 4, sy1 = maxY >> 4;
+        int sz0 = minZ >> 4, sz1 = maxZ >> 4;
+        long[] keys = new long[(sx1 - sx0 + 1) * (sy1 - sy0 + 1) * (sz1 - sz0 + 1)];
+        int i = 0;
+        for (int sx = sx0; sx <= sx1; sx++) {
+            for (int sz = sz0; sz <= sz1; sz++) {
+                for (int sy = sy0; sy <= sy1; sy++) {
+                    keys[i++] = SectionKey.of(sx, sy, sz);
+                }
+            }
+        }
+        return keys;
+    }
+
+    @Override
+    public void write(long section, BlockSink sink) {
+        int sx = SectionKey.x(section) << 4;
+        int sy = SectionKey.y(section) << 4;
+        int sz = SectionKey.z(section) << 4;
+        int x0 = Math.max(minX, sx), x1 = Math.min(maxX, sx + 15);
+        int y0 = Math.max(minY, sy), y1 = Math.min(maxY, sy + 15);
+        int z0 = Math.max(minZ, sz), z1 = Math.min(maxZ, sz + 15);
+        for (int y = y0; y <= y1; y++) {
+            for (int z = z0; z <= z1; z++) {
+                for (int x = x0; x <= x1; x++) {
+                    sink.accept(x, y, z, data, null);
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean contains(int x, int y, int z) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+    }
+}
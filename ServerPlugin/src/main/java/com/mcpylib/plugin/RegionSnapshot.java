@@ -0,0 +1,131 @@
+package com.mcpylib.plugin;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+
+// Immutable chunk snapshots covering a box. Capture on the main thread; read from any thread.
+// A snapshot from captureLoaded has no data for chunks that were not loaded: chunkAt returns null.
+public class RegionSnapshot {
+
+    private final World world;
+    private final int minX;
+    private final int minY;
+    private final int minZ;
+    private final int maxX;
+    private final int maxY;
+    private final int maxZ;
+    private final int minChunkX;
+    private final int minChunkZ;
+    private final int chunksX;
+    private final ChunkSnapshot[] chunks;
+    private final int unloadedChunks;
+
+    private RegionSnapshot(World world, int minX, int minY, int minZ, int maxX, int maxY, int maxZ, ChunkSnapshot[] chunks,
+                           int unloadedChunks) {
+        this.world = world;
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+        this.minChunkX = minX >> 4;
+        this.minChunkZ = minZ >> 4;
+        this.chunksX = (maxX >> 4) - minChunkX + 1;
+        this.chunks = chunks;
+        this.unloadedChunks = unloadedChunks;
+    }
+
+    public static RegionSnapshot capture(World world, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        return capture(world, minX, minY, minZ, maxX, maxY, maxZ, false);
+    }
+
+    public static RegionSnapshot capture(World world, int minX, int minY, int minZ, int maxX, int maxY, int maxZ,
+                                         boolean biomes) {
+        return capture(world, minX, minY, minZ, maxX, maxY, maxZ, biomes, false);
+    }
+
+    // Snapshots only the chunks that are already loaded, so a large read never loads or generates
+    // chunks on the main thread
+    public static RegionSnapshot captureLoaded(World world, int minX, int minY, int minZ, int maxX, int maxY, int maxZ,
+                                               boolean biomes) {
+        return capture(world, minX, minY, minZ, maxX, maxY, maxZ, biomes, true);
+    }
+
+    private static RegionSnapshot capture(World world, int minX, int minY, int minZ, int maxX, int maxY, int maxZ,
+                                          boolean biomes, boolean loadedOnly) {
+        int minChunkX = minX >> 4;
+        int minChunkZ = minZ >> 4;
+        int chunksX = (maxX >> 4) - minChunkX + 1;
+        int chunksZ = (maxZ >> 4) - minChunkZ + 1;
+        ChunkSnapshot[] chunks = new ChunkSnapshot[chunksX * chunksZ];
+        int unloaded = 0;
+        for (int cz = 0; cz < chunksZ; cz++) {
+            for (int cx = 0; cx < chunksX; cx++) {
+                if (loadedOnly && !world.isChunkLoaded(minChunkX + cx, minChunkZ + cz)) {
+                    unloaded++;
+                    continue;
+                }
+                chunks[cz * chunksX + cx] = world.getChunkAt(minChunkX + cx, minChunkZ + cz)
+                    .getChunkSnapshot(true, biomes, false);
+            }
+        }
+        return new RegionSnapshot(world, minX, minY, minZ, maxX, maxY, maxZ, chunks, unloaded);
+    }
+
+    // Snapshot of the chunk holding the given block column, or null if it was not loaded
+    public ChunkSnapshot chunkAt(int x, int z) {
+        return chunks[((z >> 4) - minChunkZ) * chunksX + ((x >> 4) - minChunkX)];
+    }
+
+    // Chunks left out because they were not loaded
+    public int getUnloadedChunks() {
+        return unloadedChunks;
+    }
+
+    public BlockData getBlockData(int x, int y, int z) {
+        return chunkAt(x, z).getBlockData(x & 15, y, z & 15);
+    }
+
+    public Material getType(int x, int y, int z) {
+        return chunkAt(x, z).getBlockType(x & 15, y, z & 15);
+    }
+
+    public boolean contains(int x, int y, int z) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+    }
+
+    public long getVolume() {
+        return (long) (maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1);
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    public int getMinX() {
+        return minX;
+    }
+
+    public int getMinY() {
+        return minY;
+    }
+
+    public int getMinZ() {
+        return minZ;
+    }
+
+    public int getMaxX() {
+        return maxX;
+    }
+
+    public int getMaxY() {
+        return maxY;
+    }
+
+    public int getMaxZ() {
+        return maxZ;
+    }
+}
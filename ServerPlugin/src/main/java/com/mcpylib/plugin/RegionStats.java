@@ -0,0 +1,152 @@
+package com.mcpylib.plugin;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+
+import java.util.Arrays;
+import java.util.concurrent.RecursiveTask;
+
+// Counts blocks per material over a snapshot by splitting the chunk columns in halves on a
+// ForkJoinPool. Each leaf counts a run of columns into one Counts, which only has room for the
+// materials that actually occur, so a per-Y breakdown stays small.
+public class RegionStats extends RecursiveTask<RegionStats.Counts> {
+
+    private final RegionSnapshot snapshot;
+    private final int[][] columns;
+    private final int from;
+    private final int to;
+    private final int leafColumns;
+    private final boolean layers;
+
+    private RegionStats(RegionSnapshot snapshot, int[][] columns, int from, int to, int leafColumns, boolean layers) {
+        this.snapshot = snapshot;
+        this.columns = columns;
+        this.from = from;
+        this.to = to;
+        this.leafColumns = leafColumns;
+        this.layers = layers;
+    }
+
+    // Splits the snapshot's chunk columns into a few leaves per worker thread. Chunks the snapshot
+    // left out because they were not loaded are not counted.
+    public static RegionStats of(RegionSnapshot snapshot, boolean layers, int parallelism) {
+        int minChunkX = snapshot.getMinX() >> 4;
+        int minChunkZ = snapshot.getMinZ() >> 4;
+        int chunksX = (snapshot.getMaxX() >> 4) - minChunkX + 1;
+        int chunksZ = (snapshot.getMaxZ() >> 4) - minChunkZ + 1;
+        int[][] columns = new int[chunksX * chunksZ][];
+        int loaded = 0;
+        for (int i = 0; i < columns.length; i++) {
+            int chunkX = minChunkX + i % chunksX;
+            int chunkZ = minChunkZ + i / chunksX;
+            if (snapshot.chunkAt(chunkX << 4, chunkZ << 4) != null) {
+                columns[loaded++] = new int[] {chunkX, chunkZ};
+            }
+        }
+        columns = Arrays.copyOf(columns, loaded);
+        int leafColumns = Math.max(1, columns.length / (Math.max(1, parallelism) * 4));
+        return new RegionStats(snapshot, columns, 0, columns.length, leafColumns, layers);
+    }
+
+    @Override
+    protected Counts compute() {
+        if (to - from <= leafColumns) {
+            Counts counts = new Counts(layers ? snapshot.getMaxY() - snapshot.getMinY() + 1 : 1);
+            for (int i = from; i < to; i++) {
+                count(counts, columns[i][0], columns[i][1]);
+            }
+            return counts;
+        }
+
+        int middle = (from + to) >>> 1;
+        RegionStats left = new RegionStats(snapshot, columns, from, middle, leafColumns, layers);
+        left.fork();
+        Counts counts = new RegionStats(snapshot, columns, middle, to, leafColumns, layers).compute();
+        counts.addAll(left.join());
+        return counts;
+    }
+
+    private void count(Counts counts, int chunkX, int chunkZ) {
+        int minY = snapshot.getMinY();
+        int maxY = snapshot.getMaxY();
+
+        ChunkSnapshot chunk = snapshot.chunkAt(chunkX << 4, chunkZ << 4);
+        int x0 = Math.max(snapshot.getMinX(), chunkX << 4) & 15;
+        int x1 = Math.min(snapshot.getMaxX(), (chunkX << 4) + 15) & 15;
+        int z0 = Math.max(snapshot.getMinZ(), chunkZ << 4) & 15;
+        int z1 = Math.min(snapshot.getMaxZ(), (chunkZ << 4) + 15) & 15;
+        for (int y = minY; y <= maxY; y++) {
+            int layer = layers ? y - minY : 0;
+            for (int z = z0; z <= z1; z++) {
+                for (int x = x0; x <= x1; x++) {
+                    counts.add(layer, chunk.getBlockType(x, y, z), 1);
+                }
+            }
+        }
+    }
+
+    // Block counts per layer for the materials seen so far, in first-seen order. Counters are a
+    // flat array indexed by layer * capacity + slot and grow when a new material appears.
+    public static final class Counts {
+        private final int layers;
+        // Slot + 1 for each Material ordinal, 0 when the material has not been seen
+        private final int[] slots = new int[Material.values().length];
+        private Material[] materials = new Material[16];
+        private int[] counts;
+        private int size;
+
+        Counts(int layers) {
+            this.layers = layers;
+            this.counts = new int[layers * materials.length];
+        }
+
+        public int getLayers() {
+            return layers;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public Material getMaterial(int slot) {
+            return materials[slot];
+        }
+
+        public int get(int layer, int slot) {
+            return counts[layer * materials.length + slot];
+        }
+
+        void add(int layer, Material material, int count) {
+            int slot = slotOf(material);
+            counts[layer * materials.length + slot] += count;
+        }
+
+        void addAll(Counts other) {
+            for (int i = 0; i < other.size; i++) {
+                int slot = slotOf(other.materials[i]);
+                for (int layer = 0; layer < layers; layer++) {
+                    counts[layer * materials.length + slot] += other.get(layer, i);
+                }
+            }
+        }
+
+        private int slotOf(Material material) {
+            int slot = slots[material.ordinal()] - 1;
+            if (slot >= 0) {
+                return slot;
+            }
+            if (size == materials.length) {
+                int capacity = materials.length;
+                int[] grown = new int[layers * capacity * 2];
+                for (int layer = 0; layer < layers; layer++) {
+                    System.arraycopy(counts, layer * capacity, grown, layer * capacity * 2, capacity);
+                }
+                counts = grown;
+                materials = Arrays.copyOf(materials, capacity * 2);
+            }
+            materials[size] = material;
+            slots[material.ordinal()] = ++size;
+            return size - 1;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.mcpylib.plugin;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.block.data.BlockData;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// 64-bit fingerprint of a 16x16x16 chunk section. Built from the block state strings rather than
+// runtime ids, so a hash stays the same across restarts as long as the blocks do.
+public final class SectionHash {
+
+    private static final long FNV_OFFSET = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    // Hash of a section that holds nothing but air
+    private static final long EMPTY = computeEmpty();
+
+    private SectionHash() {
+    }
+
+    // Not thread-safe: give each worker its own hasher
+    public static final class Hasher {
+        private final Map<BlockData, Long> states = new HashMap<>();
+
+        public long hash(ChunkSnapshot chunk, int sectionY, int minSectionY) {
+            int baseY = sectionY << 4;
+            // An empty section may still mix in cave_air or void_air, which hash differently
+            if (chunk.isSectionEmpty(sectionY - minSectionY) && onlyAir(chunk, baseY)) {
+                return EMPTY;
+            }
+
+            long h = FNV_OFFSET;
+            for (int y = 0; y < 16; y++) {
+                for (int z = 0; z < 16; z++) {
+                    for (int x = 0; x < 16; x++) {
+                        BlockData data = chunk.getBlockData(x, baseY + y, z);
+                        Long state = states.get(data);
+                        if (state == null) {
+                            state = stateHash(data.getAsString());
+                            states.put(data, state);
+                        }
+                        h = (h ^ state) * FNV_PRIME;
+                    }
+                }
+            }
+            return finish(h);
+        }
+    }
+
+    private static boolean onlyAir(ChunkSnapshot chunk, int baseY) {
+        for (int y = 0; y < 16; y++) {
+            for (int z = 0; z < 16; z++) {
+                for (int x = 0; x < 16; x++) {
+                    if (chunk.getBlockType(x, baseY + y, z) != Material.AIR) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    static long stateHash(String state) {
+        long h = FNV_OFFSET;
+        for (int i = 0; i < state.length(); i++) {
+            h = (h ^ state.charAt(i)) * FNV_PRIME;
+        }
+        return h;
+    }
+
+    private static long computeEmpty() {
+        long air = stateHash("minecraft:air");
+        long h = FNV_OFFSET;
+        for (int i = 0; i < 4096; i++) {
+            h = (h ^ air) * FNV_PRIME;
+        }
+        return finish(h);
+    }
+
+    // Final avalanche so sections that differ in one block differ in about half the bits
+    private static long finish(long h) {
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
+    }
+}
@@ -0,0 +1,39 @@
+package com.mcpylib.plugin;
+
+// Packs 16x16x16 chunk section coordinates into a long; sorting the keys groups sections by chunk
+final class SectionKey {
+
+    private SectionKey() {
+    }
+
+    static long of(int sectionX, int sectionY, int sectionZ) {
+        return ((long) sectionX & 0x3FFFFFL) << 42
+            | ((long) sectionZ & 0x3FFFFFL) << 20
+            | ((long) sectionY & 0xFFFFFL);
+    }
+
+    static long ofBlock(int x, int y, int z) {
+        return of(x >> 4, y >> 4, z >> 4);
+    }
+
+    static int x(long key) {
+        return (int) (key >> 42);
+    }
+
+    static int z(long key) {
+        return (int) (key << 22 >> 42);
+    }
+
+    static int y(long key) {
+        return (int) (key << 44 >> 44);
+    }
+
+    static long chunkKey(long key) {
+        return ((long) x(key) << 32) | (z(key) & 0xFFFFFFFFL);
+    }
+
+    // Index of a block inside its section: yyyy zzzz xxxx
+    static int localIndex(int x, int y, int z) {
+        return ((y & 15) << 8) | ((z & 15) << 4) | (x & 15);
+    }
+}
@@ -0,0 +1,47 @@
+package com.mcpylib.plugin;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// State that lives as long as one client connection
+public class Session {
+
+    private static final AtomicInteger nextId = new AtomicInteger(1);
+
+    private final int id;
+    private final EditJournal journal;
+    private final EntityHandles entities;
+    private Clipboard clipboard;
+
+    public Session(MCPyLibPlugin plugin) {
+        this.id = nextId.getAndIncrement();
+        this.journal = new EditJournal(plugin.getJournalFolder(), id,
+            plugin.getConfig().getInt("undo.max-entries", 20),
+            plugin.getConfig().getLong("undo.memory-limit-kb", 16384) * 1024L);
+        this.entities = new EntityHandles(plugin.getEntityRegistry());
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public EditJournal getJournal() {
+        return journal;
+    }
+
+    public EntityHandles getEntities() {
+        return entities;
+    }
+
+    // Releases per-connection resources, including spilled journal files
+    public void close() {
+        journal.close();
+    }
+
+    public Clipboard getClipboard() {
+        return clipboard;
+    }
+
+    public void setClipboard(Clipboard clipboard) {
+        this.clipboard = clipboard;
+    }
+}
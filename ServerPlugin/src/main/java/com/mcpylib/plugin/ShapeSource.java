@@ -0,0 +1,215 @@
+package com.mcpylib.plugin;
+
+import org.bukkit.block.data.BlockData;
+
+// Generates a solid or hollow shape inside a bounding box, one section at a time, without
+// materializing positions. Hollow shapes keep the blocks within `thickness` of the surface.
+public abstract class ShapeSource implements EditSource {
+
+    protected final int minX, minY, minZ, maxX, maxY, maxZ;
+    private final BlockPattern pattern;
+    private final int thickness;
+
+    protected ShapeSource(int minX, int minY, int minZ, int maxX, int maxY, int maxZ,
+                          BlockPattern pattern, int thickness) {
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+        this.pattern = pattern;
+        this.thickness = thickness;
+    }
+
+    // Whether the solid shape covers the position
+    protected abstract boolean solid(int x, int y, int z);
+
+    // Axes (0 = x, 1 = y, 2 = z) along which an outside neighbor makes a block part of the shell
+    protected boolean shellAlong(int axis) {
+        return true;
+    }
+
+    private boolean inside(int x, int y, int z) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ && solid(x, y, z);
+    }
+
+    @Override
+    public boolean contains(int x, int y, int z) {
+        if (!inside(x, y, z)) {
+            return false;
+        }
+        if (thickness <= 0) {
+            return true;
+        }
+        for (int d = 1; d <= thickness; d++) {
+            if (shellAlong(0) && (!inside(x + d, y, z) || !inside(x - d, y, z))) {
+                return true;
+            }
+            if (shellAlong(1) && (!inside(x, y + d, z) || !inside(x, y - d, z))) {
+                return true;
+            }
+            if (shellAlong(2) && (!inside(x, y, z + d) || !inside(x, y, z - d))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public long[] sections() {
+        int sx0 = minX >> 4, sx1 = maxX >> 4;
+        int sy0 = minY >> 4, sy1 = maxY >> 4;
+        int sz0 = minZ >> 4, sz1 = maxZ >> 4;
+        long[] keys = new long[(sx1 - sx0 + 1) * (sy1 - sy0 + 1) * (sz1 - sz0 + 1)];
+        int i = 0;
+        for (int sx = sx0; sx <= sx1; sx++) {
+            for (int sz = sz0; sz <= sz1; sz++) {
+                for (int sy = sy0; sy <= sy1; sy++) {
+                    keys[i++] = SectionKey.of(sx, sy, sz);
+                }
+            }
+        }
+        return keys;
+    }
+
+    @Override
+    public void write(long section, BlockSink sink) {
+        int sx = SectionKey.x(section) << 4;
+        int sy = SectionKey.y(section) << 4;
+        int sz = SectionKey.z(section) << 4;
+        int x0 = Math.max(minX, sx), x1 = Math.min(maxX, sx + 15);
+        int y0 = Math.max(minY, sy), y1 = Math.min(maxY, sy + 15);
+        int z0 = Math.max(minZ, sz), z1 = Math.min(maxZ, sz + 15);
+        for (int y = y0; y <= y1; y++) {
+            for (int z = z0; z <= z1; z++) {
+                for (int x = x0; x <= x1; x++) {
+                    if (contains(x, y, z)) {
+                        BlockData data = pattern.apply(x, y, z);
+                        sink.accept(x, y, z, data, null);
+                    }
+                }
+            }
+        }
+    }
+
+    // Blocks in the bounding box, which is what writing the shape visits
+    public long getVolume() {
+        return ((long) maxX - minX + 1) * ((long) maxY - minY + 1) * ((long) maxZ - minZ + 1);
+    }
+
+    // Ellipsoid around a center; radii are measured to block centers plus half a block
+    public static ShapeSource sphere(int cx, int cy, int cz, double rx, double ry, double rz,
+                                     BlockPattern pattern, int thickness) {
+        double ex = rx + 0.5, ey = ry + 0.5, ez = rz + 0.5;
+        return new ShapeSource((int) Math.floor(cx - rx), (int) Math.floor(cy - ry), (int) Math.floor(cz - rz),
+            (int) Math.ceil(cx + rx), (int) Math.ceil(cy + ry), (int) Math.ceil(cz + rz), pattern, thickness) {
+            @Override
+            protected boolean solid(int x, int y, int z) {
+                double nx = (x - cx) / ex, ny = (y - cy) / ey, nz = (z - cz) / ez;
+                return nx * nx + ny * ny + nz * nz <= 1.0;
+            }
+        };
+    }
+
+    // Elliptic cylinder standing on its base center and extending `height` blocks along the axis.
+    // A hollow cylinder is an open tube: only the curved wall is kept.
+    public static ShapeSource cylinder(int cx, int cy, int cz, double r1, double r2, int height, int axis,
+                                       BlockPattern pattern, int thickness) {
+        int span = Math.max(height, 1) - 1;
+        int minX = cx, minY = cy, minZ = cz, maxX = cx, maxY = cy, maxZ = cz;
+        // r1 and r2 are the radii along the two other axes, in x, y, z order
+        double ea = r1 + 0.5, eb = r2 + 0.5;
+        switch (axis) {
+            case 0:
+                maxX = cx + span;
+                minY = (int) Math.floor(cy - r1);
+                maxY = (int) Math.ceil(cy + r1);
+                minZ = (int) Math.floor(cz - r2);
+                maxZ = (int) Math.ceil(cz + r2);
+                break;
+            case 2:
+                maxZ = cz + span;
+                minX = (int) Math.floor(cx - r1);
+                maxX = (int) Math.ceil(cx + r1);
+                minY = (int) Math.floor(cy - r2);
+                maxY = (int) Math.ceil(cy + r2);
+                break;
+            default:
+                maxY = cy + span;
+                minX = (int) Math.floor(cx - r1);
+                maxX = (int) Math.ceil(cx + r1);
+                minZ = (int) Math.floor(cz - r2);
+                maxZ = (int) Math.ceil(cz + r2);
+                break;
+        }
+        return new ShapeSource(minX, minY, minZ, maxX, maxY, maxZ, pattern, thickness) {
+            @Override
+            protected boolean solid(int x, int y, int z) {
+                double a, b;
+                switch (axis) {
+                    case 0:
+                        a = (y - cy) / ea;
+                        b = (z - cz) / eb;
+                        break;
+                    case 2:
+                        a = (x - cx) / ea;
+                        b = (y - cy) / eb;
+                        break;
+                    default:
+                        a = (x - cx) / ea;
+                        b = (z - cz) / eb;
+                        break;
+                }
+                return a * a + b * b <= 1.0;
+            }
+
+            @Override
+            protected boolean shellAlong(int shellAxis) {
+                return shellAxis != axis;
+            }
+        };
+    }
+
+    // Square pyramid on its base center; the half-width shrinks linearly to zero at the top layer
+    public static ShapeSource pyramid(int cx, int cy, int cz, int radius, int height,
+                                      BlockPattern pattern, int thickness) {
+        return new ShapeSource(cx - radius, cy, cz - radius, cx + radius, cy + height - 1, cz + radius,
+            pattern, thickness) {
+            @Override
+            protected boolean solid(int x, int y, int z) {
+                int half = (int) Math.floor(radius * (1.0 - (double) (y - cy) / height));
+                return Math.abs(x - cx) <= half && Math.abs(z - cz) <= half;
+            }
+        };
+    }
+
+    // Segment between two points, thickened to the given radius
+    public static ShapeSource line(int x1, int y1, int z1, int x2, int y2, int z2, double radius,
+                                   BlockPattern pattern) {
+        int pad = (int) Math.ceil(radius);
+        double limit = (radius + 0.5) * (radius + 0.5);
+        double dx = x2 - x1, dy = y2 - y1, dz = z2 - z1;
+        double lengthSquared = dx * dx + dy * dy + dz * dz;
+        return new ShapeSource(Math.min(x1, x2) - pad, Math.min(y1, y2) - pad, Math.min(z1, z2) - pad,
+            Math.max(x1, x2) + pad, Math.max(y1, y2) + pad, Math.max(z1, z2) + pad, pattern, 0) {
+            @Override
+            protected boolean solid(int x, int y, int z) {
+                double t = lengthSquared == 0 ? 0
+                    : Math.max(0, Math.min(1, ((x - x1) * dx + (y - y1) * dy + (z - z1) * dz) / lengthSquared));
+                double px = x1 + t * dx - x, py = y1 + t * dy - y, pz = z1 + t * dz - z;
+                return px * px + py * py + pz * pz <= limit;
+            }
+        };
+    }
+
+    public static ShapeSource box(int minX, int minY, int minZ, int maxX, int maxY, int maxZ,
+                                  BlockPattern pattern, int thickness) {
+        return new ShapeSource(minX, minY, minZ, maxX, maxY, maxZ, pattern, thickness) {
+            @Override
+            protected boolean solid(int x, int y, int z) {
+                return true;
+            }
+        };
+    }
+}
@@ -0,0 +1,358 @@
+package com.mcpylib.plugin;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Publishes an immutable view of the state that read commands poll for: online players, watched
+// entities and watched scores. It is rebuilt once per tick and swapped in through a
+// volatile field, so client threads answer getpos, list, getscore, gettags and getentitypos
+// without waiting for the main thread, at most one tick stale. An entity or score becomes watched
+// the first time it is read through the main thread, and stops being watched once nobody has read
+// it for snapshot.watch-expiry-ticks. Main-thread commands that change an entity, player or score
+// mark it dirty, and reads of it go to the main thread until the next snapshot picks up the change.
+public class SnapshotService {
+
+    private final MCPyLibPlugin plugin;
+    // Last tick each watched entry was read; written by client threads, pruned on the main thread
+    private final Map<UUID, Long> watchedEntities = new ConcurrentHashMap<>();
+    private final Map<String, Long> watchedScores = new ConcurrentHashMap<>();
+    // Tick each entry was last changed on; stale in every snapshot up to and including that tick
+    private final Map<UUID, Long> dirtyEntities = new ConcurrentHashMap<>();
+    private final Map<String, Long> dirtyScores = new ConcurrentHashMap<>();
+    // Set by commands that may change anything, such as exec
+    private volatile long allDirty = -1;
+    private volatile Snapshot current = new Snapshot(0, 0, Collections.emptyMap(), Collections.emptyMap(),
+        Collections.emptyMap());
+    private long ticks;
+    private BukkitTask ticker;
+
+    public SnapshotService(MCPyLibPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    public void start() {
+        ticker = Bukkit.getScheduler().runTaskTimer(plugin, this::publish, 0L, 1L);
+    }
+
+    public void stop() {
+        if (ticker != null) {
+            ticker.cancel();
+            ticker = null;
+        }
+    }
+
+    public Snapshot getCurrent() {
+        return current;
+    }
+
+    // Main thread. Ignored once the watch list is full.
+    public void watchEntity(UUID uuid) {
+        if (watchedEntities.size() < plugin.getConfig().getInt("snapshot.max-watched-entities", 1024)) {
+            watchedEntities.putIfAbsent(uuid, ticks);
+        }
+    }
+
+    public void watchScore(String objective, String entry) {
+        if (watchedScores.size() < plugin.getConfig().getInt("snapshot.max-watched-scores", 1024)) {
+            watchedScores.putIfAbsent(scoreKey(objective, entry), ticks);
+        }
+    }
+
+    // Main thread. Called after a command changes an entity's position, rotation or tags, or
+    // teleports a player.
+    public void markEntityDirty(UUID uuid) {
+        dirtyEntities.put(uuid, ticks);
+    }
+
+    public void markScoreDirty(String objective, String entry) {
+        dirtyScores.put(scoreKey(objective, entry), ticks);
+    }
+
+    // Every watched score of an objective, for when the objective is removed
+    public void markObjectiveDirty(String objective) {
+        String prefix = objective + "\n";
+        for (String key : watchedScores.keySet()) {
+            if (key.startsWith(prefix)) {
+                dirtyScores.put(key, ticks);
+            }
+        }
+    }
+
+    public void markAllDirty() {
+        allDirty = ticks;
+    }
+
+    // Answers a read command from the current snapshot, or returns null when the snapshot does not
+    // hold what it asks for, in which case it goes to the main thread as usual. Malformed parameters
+    // also return null, so the main thread reports the error. Client threads only; the session's
+    // handles are safe to read here because the same thread waits for every command that allocates
+    // them.
+    public CommandResult answer(Session session, String action, JsonObject params) {
+        try {
+            return read(session, action, params);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    // Where a dirty mark matters, it is read before the snapshot. A mark that is already gone was
+    // cleared by a publish that picked up the change, so the snapshot loaded after it is new enough.
+    private CommandResult read(Session session, String action, JsonObject params) {
+        // fresh: true asks for a live read, for example right after a write from the same client
+        boolean fresh = params.has("fresh") && params.get("fresh").getAsBoolean();
+        if (fresh && !action.equalsIgnoreCase("players")) {
+            return null;
+        }
+        long everything = allDirty;
+        switch (action.toLowerCase()) {
+            case "getpos": {
+                if (!params.has("username")) {
+                    return null;
+                }
+                String name = params.get("username").getAsString().toLowerCase(Locale.ROOT);
+                PlayerState player = current.players.get(name);
+                Long changed = player == null ? null : dirtyEntities.get(player.uuid);
+                Snapshot snapshot = current;
+                player = snapshot.players.get(name);
+                if (player == null || isDirty(changed, everything, snapshot)) {
+                    return null;
+                }
+                return CommandResult.snapshot(new int[] {player.blockX, player.blockY, player.blockZ}, snapshot.tick);
+            }
+            case "list": {
+                Snapshot snapshot = current;
+                if (isDirty(null, everything, snapshot)) {
+                    return null;
+                }
+                List<Map<String, Object>> players = new ArrayList<>();
+                for (PlayerState player : snapshot.players.values()) {
+                    Map<String, Object> playerData = new HashMap<>();
+                    playerData.put("name", player.name);
+                    playerData.put("uuid", player.uuid.toString());
+                    playerData.put("gamemode", player.gamemode);
+                    players.add(playerData);
+                }
+                Map<String, Object> result = new HashMap<>();
+                result.put("online_count", players.size());
+                result.put("max_players", snapshot.maxPlayers);
+                result.put("players", players);
+                return CommandResult.snapshot(result, snapshot.tick);
+            }
+            case "players": {
+                Snapshot snapshot = current;
+                List<Map<String, Object>> players = new ArrayList<>();
+                for (PlayerState player : snapshot.players.values()) {
+                    players.add(player.toResponse());
+                }
+                return CommandResult.snapshot(players, snapshot.tick);
+            }
+            case "getscore": {
+                if (!params.has("objective") || !params.has("player")) {
+                    return null;
+                }
+                String key = scoreKey(params.get("objective").getAsString(), params.get("player").getAsString());
+                Long changed = dirtyScores.get(key);
+                Snapshot snapshot = current;
+                Integer score = snapshot.scores.get(key);
+                if (score == null || isDirty(changed, everything, snapshot)) {
+                    return null;
+                }
+                watchedScores.replace(key, snapshot.tick);
+                return CommandResult.snapshot(score, snapshot.tick);
+            }
+            case "getentitypos":
+            case "gettags": {
+                UUID uuid = params.has("uuid") ? uuidOf(session, params.get("uuid")) : null;
+                if (uuid == null) {
+                    return null;
+                }
+                Long changed = dirtyEntities.get(uuid);
+                Snapshot snapshot = current;
+                EntityState entity = snapshot.entities.get(uuid);
+                if (entity == null || isDirty(changed, everything, snapshot)) {
+                    return null;
+                }
+                watchedEntities.replace(uuid, snapshot.tick);
+                if (action.equalsIgnoreCase("gettags")) {
+                    return CommandResult.snapshot(entity.tags, snapshot.tick);
+                }
+                Map<String, Double> position = new HashMap<>();
+                position.put("x", entity.x);
+                position.put("y", entity.y);
+                position.put("z", entity.z);
+                position.put("yaw", (double) entity.yaw);
+                position.put("pitch", (double) entity.pitch);
+                return CommandResult.snapshot(position, snapshot.tick);
+            }
+            default:
+                return null;
+        }
+    }
+
+    private void publish() {
+        long tick = ++ticks;
+        long expiry = plugin.getConfig().getLong("snapshot.watch-expiry-ticks", 1200);
+
+        Map<String, PlayerState> players = new HashMap<>();
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            players.put(player.getName().toLowerCase(Locale.ROOT), new PlayerState(player));
+        }
+
+        Map<UUID, EntityState> entities = new HashMap<>();
+        EntityRegistry registry = plugin.getEntityRegistry();
+        Iterator<Map.Entry<UUID, Long>> watched = watchedEntities.entrySet().iterator();
+        while (watched.hasNext()) {
+            Map.Entry<UUID, Long> entry = watched.next();
+            Entity entity = tick - entry.getValue() > expiry ? null : registry.get(entry.getKey());
+            if (entity == null) {
+                watched.remove();
+                continue;
+            }
+            entities.put(entry.getKey(), new EntityState(entity));
+        }
+
+        Map<String, Integer> scores = new HashMap<>();
+        org.bukkit.scoreboard.Scoreboard scoreboard = Bukkit.getScoreboardManager().getMainScoreboard();
+        Iterator<Map.Entry<String, Long>> watchedScore = watchedScores.entrySet().iterator();
+        while (watchedScore.hasNext()) {
+            Map.Entry<String, Long> entry = watchedScore.next();
+            String key = entry.getKey();
+            int split = key.indexOf('\n');
+            org.bukkit.scoreboard.Objective objective = tick - entry.getValue() > expiry ? null
+                : scoreboard.getObjective(key.substring(0, split));
+            if (objective == null) {
+                watchedScore.remove();
+                continue;
+            }
+            scores.put(key, objective.getScore(key.substring(split + 1)).getScore());
+        }
+
+        current = new Snapshot(tick, Bukkit.getMaxPlayers(), players, entities, scores);
+        // Changes made before this tick are in the new snapshot
+        dirtyEntities.values().removeIf(changed -> changed < tick);
+        dirtyScores.values().removeIf(changed -> changed < tick);
+    }
+
+    private static boolean isDirty(Long changed, long everything, Snapshot snapshot) {
+        return everything >= snapshot.tick || (changed != null && changed >= snapshot.tick);
+    }
+
+    private static UUID uuidOf(Session session, JsonElement ref) {
+        if (ref.isJsonPrimitive() && ref.getAsJsonPrimitive().isNumber()) {
+            return session.getEntities().uuidOf(ref.getAsInt());
+        }
+        try {
+            return UUID.fromString(ref.getAsString());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // Objective names cannot contain a newline, so it separates the two parts
+    private static String scoreKey(String objective, String entry) {
+        return objective + "\n" + entry;
+    }
+
+    public static final class Snapshot {
+        final long tick;
+        final int maxPlayers;
+        final Map<String, PlayerState> players;
+        final Map<UUID, EntityState> entities;
+        final Map<String, Integer> scores;
+
+        Snapshot(long tick, int maxPlayers, Map<String, PlayerState> players, Map<UUID, EntityState> entities,
+                 Map<String, Integer> scores) {
+            this.tick = tick;
+            this.maxPlayers = maxPlayers;
+            this.players = players;
+            this.entities = entities;
+            this.scores = scores;
+        }
+
+        public long getTick() {
+            return tick;
+        }
+    }
+
+    static final class PlayerState {
+        final String name;
+        final UUID uuid;
+        final String world;
+        final double x;
+        final double y;
+        final double z;
+        final float yaw;
+        final float pitch;
+        final int blockX;
+        final int blockY;
+        final int blockZ;
+        final String gamemode;
+        final double health;
+
+        PlayerState(Player player) {
+            Location loc = player.getLocation();
+            this.name = player.getName();
+            this.uuid = player.getUniqueId();
+            this.world = loc.getWorld().getName();
+            this.x = loc.getX();
+            this.y = loc.getY();
+            this.z = loc.getZ();
+            this.yaw = loc.getYaw();
+            this.pitch = loc.getPitch();
+            this.blockX = loc.getBlockX();
+            this.blockY = loc.getBlockY();
+            this.blockZ = loc.getBlockZ();
+            this.gamemode = player.getGameMode().name();
+            this.health = player.getHealth();
+        }
+
+        Map<String, Object> toResponse() {
+            Map<String, Object> player = new HashMap<>();
+            player.put("name", name);
+            player.put("uuid", uuid.toString());
+            player.put("world", world);
+            player.put("x", x);
+            player.put("y", y);
+            player.put("z", z);
+            player.put("yaw", yaw);
+            player.put("pitch", pitch);
+            player.put("gamemode", gamemode);
+            player.put("health", health);
+            return player;
+        }
+    }
+
+    static final class EntityState {
+        final double x;
+        final double y;
+        final double z;
+        final float yaw;
+        final float pitch;
+        final List<String> tags;
+
+        EntityState(Entity entity) {
+            Location loc = entity.getLocation();
+            this.x = loc.getX();
+            this.y = loc.getY();
+            this.z = loc.getZ();
+            this.yaw = loc.getYaw();
+            this.pitch = loc.getPitch();
+            this.tags = Collections.unmodifiableList(new ArrayList<>(entity.getScoreboardTags()));
+        }
+    }
+}
@@ -0,0 +1,465 @@
+package com.mcpylib.plugin;
+
+import com.google.gson.JsonObject;
+import org.bukkit.Bukkit;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.data.BlockData;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static com.mcpylib.plugin.NbtWriter.*;
+
+// Reads and writes Sponge schematics (.schem): gzipped NBT with a block palette and varint block data.
+// Files are written as version 3; versions 2 and 3 can be loaded.
+public final class SpongeSchematic {
+
+    public static final String EXTENSION = ".schem";
+
+    private SpongeSchematic() {
+    }
+
+    // Resolves a schematic name inside the folder, refusing names that would escape it
+    public static File resolve(File folder, String name) throws IOException {
+        if (!name.endsWith(EXTENSION)) {
+            name = name + EXTENSION;
+        }
+        File file = new File(folder, name);
+        if (!file.getCanonicalPath().startsWith(folder.getCanonicalPath() + File.separator)) {
+            throw new IllegalArgumentException("Invalid schematic name: " + name);
+        }
+        return file;
+    }
+
+    @SuppressWarnings("deprecation")
+    public static void save(File file, Clipboard clipboard) throws IOException {
+        int width = clipboard.getWidth();
+        int height = clipboard.getHeight();
+        int length = clipboard.getLength();
+        if (width > 0xFFFF || height > 0xFFFF || length > 0xFFFF) {
+            throw new IllegalArgumentException("Region too large for a schematic (max 65535 per side)");
+        }
+
+        // Varint-encode the block indices; most palettes fit one byte per block
+        int[] blocks = clipboard.getBlocks();
+        ByteArrayOutputStream data = new ByteArrayOutputStream(blocks.length);
+        for (int value : blocks) {
+            VarInts.write(data, value);
+        }
+
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Could not create folder " + parent);
+        }
+
+        try (NbtWriter nbt = new NbtWriter(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(file))))) {
+            nbt.beginCompound("");
+            nbt.beginCompound("Schematic");
+            nbt.writeInt("Version", 3);
+            nbt.writeInt("DataVersion", Bukkit.getUnsafe().getDataVersion());
+
+            nbt.beginCompound("Metadata");
+            nbt.writeLong("Date", System.currentTimeMillis());
+            nbt.endCompound();
+
+            nbt.writeShort("Width", width);
+            nbt.writeShort("Height", height);
+            nbt.writeShort("Length", length);
+            // Position of the minimum corner relative to the origin
+            nbt.writeIntArray("Offset", -clipboard.getOriginX(), -clipboard.getOriginY(), -clipboard.getOriginZ());
+
+            nbt.beginCompound("Blocks");
+            nbt.beginCompound("Palette");
+            List<BlockData> palette = clipboard.getPalette();
+            for (int i = 0; i < palette.size(); i++) {
+                nbt.writeInt(palette.get(i).getAsString(), i);
+            }
+            nbt.endCompound();
+
+            byte[] bytes = data.toByteArray();
+            nbt.writeByteArray("Data", bytes, 0, bytes.length);
+
+            Map<Integer, BlockState> tiles = clipboard.getTiles();
+            nbt.beginList("BlockEntities", TAG_COMPOUND, tiles.size());
+            for (Map.Entry<Integer, BlockState> entry : tiles.entrySet()) {
+                int index = entry.getKey();
+                BlockState state = entry.getValue();
+                nbt.beginCompound(null);
+                nbt.writeIntArray("Pos", index % width, index / (width * length), (index / width) % length);
+                nbt.writeString("Id", tileEntityId(state));
+                nbt.beginCompound("Data");
+                writeTileData(nbt, state);
+                nbt.endCompound();
+                nbt.endCompound();
+            }
+            nbt.endCompound();
+
+            nbt.endCompound();
+            nbt.endCompound();
+        }
+    }
+
+    // Decodes the file straight into the buffer, placing blocks through the transform as they are read.
+    // Files whose box holds more than maxVolume blocks are rejected before any block is decoded.
+    // Returns the number of blocks written to the buffer.
+    public static long load(File file, PasteTransform transform, boolean ignoreAir, BlockBuffer buffer,
+                            long maxVolume) throws IOException {
+        if (!file.isFile()) {
+            throw new IllegalArgumentException("Schematic not found: " + file.getName());
+        }
+        try (NbtReader nbt = new NbtReader(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file)), 65536))) {
+            Loader loader = new Loader(nbt, transform, ignoreAir, buffer, maxVolume);
+            if (nbt.nextTag() != TAG_COMPOUND) {
+                throw new IOException("Not a schematic: root tag is not a compound");
+            }
+            loader.readCompound();
+            loader.finish();
+            return loader.placed;
+        }
+    }
+
+    private static String tileEntityId(BlockState state) {
+        if (state instanceof org.bukkit.block.HangingSign) {
+            return "minecraft:hanging_sign";
+        }
+        if (state instanceof org.bukkit.block.Sign) {
+            return "minecraft:sign";
+        }
+        return state.getType().getKey().toString();
+    }
+
+    // Only the fields CommandHandler.applyNBTData understands survive a save and load
+    private static void writeTileData(NbtWriter nbt, BlockState state) throws IOException {
+        if (state instanceof org.bukkit.Nameable) {
+            String customName = ((org.bukkit.Nameable) state).getCustomName();
+            if (customName != null) {
+                nbt.writeString("CustomName", customName);
+            }
+        }
+        if (state instanceof org.bukkit.block.Sign) {
+            org.bukkit.block.Sign sign = (org.bukkit.block.Sign) state;
+            for (int line = 0; line < 4; line++) {
+                nbt.writeString("Text" + (line + 1), sign.getLine(line));
+            }
+        }
+    }
+
+    private static final class Loader {
+        final NbtReader nbt;
+        final PasteTransform transform;
+        final boolean ignoreAir;
+        final BlockBuffer buffer;
+        final long maxVolume;
+
+        int version = 2;
+        int width = -1;
+        int height = -1;
+        int length = -1;
+        int[] offset;
+        int[] weOffset;
+        boolean metadataSeen;
+        BlockData[] palette;
+        // Block data that arrived before the palette, dimensions or origin; decoded at the end
+        byte[] deferred;
+        boolean decoded;
+        final List<int[]> tilePositions = new ArrayList<>();
+        final List<JsonObject> tileData = new ArrayList<>();
+        long placed;
+
+        Loader(NbtReader nbt, PasteTransform transform, boolean ignoreAir, BlockBuffer buffer, long maxVolume) {
+            this.nbt = nbt;
+            this.transform = transform;
+            this.ignoreAir = ignoreAir;
+            this.buffer = buffer;
+            this.maxVolume = maxVolume;
+        }
+
+        // Handles the tags of the root, Schematic and (version 3) Blocks compounds alike
+        void readCompound() throws IOException {
+            int type;
+            while ((type = nbt.nextTag()) != TAG_END) {
+                String name = nbt.name();
+                switch (name) {
+                    case "Schematic":
+                    case "Blocks":
+                        if (type != TAG_COMPOUND) {
+                            nbt.skip(type);
+                            break;
+                        }
+                        readCompound();
+                        break;
+                    case "Version":
+                        version = (int) nbt.readNumber(type);
+                        break;
+                    case "Width":
+                        width = (int) nbt.readNumber(type) & 0xFFFF;
+                        checkSize();
+                        break;
+                    case "Height":
+                        height = (int) nbt.readNumber(type) & 0xFFFF;
+                        checkSize();
+                        break;
+                    case "Length":
+                        length = (int) nbt.readNumber(type) & 0xFFFF;
+                        checkSize();
+                        break;
+                    case "Offset":
+                        if (type == TAG_INT_ARRAY) {
+                            offset = nbt.readIntArray();
+                        } else {
+                            nbt.skip(type);
+                        }
+                        break;
+                    case "Metadata":
+                        readMetadata(type);
+                        break;
+                    case "Palette":
+                        readPalette(type);
+                        break;
+                    case "BlockData":
+                    case "Data":
+                        if (type != TAG_BYTE_ARRAY) {
+                            nbt.skip(type);
+                            break;
+                        }
+                        int size = nbt.beginArray();
+                        if (ready()) {
+                            decode(nbt.input(), size);
+                        } else {
+                            // Each block takes one to five bytes, so anything longer cannot fit the largest box
+                            if (size > 5 * maxVolume) {
+                                throw new IOException("Block data is too large: " + size + " bytes");
+                            }
+                            deferred = new byte[size];
+                            nbt.input().readFully(deferred);
+                        }
+                        break;
+                    case "BlockEntities":
+                    case "TileEntities":
+                        readBlockEntities(type);
+                        break;
+                    default:
+                        nbt.skip(type);
+                        break;
+                }
+            }
+        }
+
+        void readMetadata(int type) throws IOException {
+            if (type != TAG_COMPOUND) {
+                nbt.skip(type);
+                return;
+            }
+            metadataSeen = true;
+            int child;
+            while ((child = nbt.nextTag()) != TAG_END) {
+                String name = nbt.name();
+                if (name.equals("WEOffsetX") || name.equals("WEOffsetY") || name.equals("WEOffsetZ")) {
+                    if (weOffset == null) {
+                        weOffset = new int[3];
+                    }
+                    weOffset[name.charAt(8) - 'X'] = (int) nbt.readNumber(child);
+                } else {
+                    nbt.skip(child);
+                }
+            }
+        }
+
+        void readPalette(int type) throws IOException {
+            if (type != TAG_COMPOUND) {
+                nbt.skip(type);
+                return;
+            }
+            List<BlockData> states = new ArrayList<>();
+            int child;
+            while ((child = nbt.nextTag()) != TAG_END) {
+                String spec = nbt.name();
+                int index = (int) nbt.readNumber(child);
+                if (index < 0) {
+                    throw new IOException("Invalid palette index " + index + " for " + spec);
+                }
+                while (states.size() <= index) {
+                    states.add(null);
+                }
+                try {
+                    states.set(index, BlockDataRegistry.resolve(spec));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Invalid block type in schematic: " + spec);
+                }
+            }
+            palette = transform.apply(states.toArray(new BlockData[0]));
+        }
+
+        void readBlockEntities(int type) throws IOException {
+            if (type != TAG_LIST) {
+                nbt.skip(type);
+                return;
+            }
+            int size = nbt.beginList();
+            int elementType = nbt.listType();
+            for (int i = 0; i < size; i++) {
+                if (elementType != TAG_COMPOUND) {
+                    nbt.skip(elementType);
+                    continue;
+                }
+                int[] pos = null;
+                JsonObject data = new JsonObject();
+                int child;
+                while ((child = nbt.nextTag()) != TAG_END) {
+                    String name = nbt.name();
+                    if (name.equals("Pos") && child == TAG_INT_ARRAY) {
+                        pos = nbt.readIntArray();
+                    } else if (name.equals("Data") && child == TAG_COMPOUND) {
+                        // Version 3 nests the block entity fields; version 2 keeps them inline
+                        readTileFields(data);
+                    } else {
+                        readTileField(data, name, child);
+                    }
+                }
+                if (pos != null && pos.length == 3) {
+                    tilePositions.add(pos);
+                    tileData.add(data);
+                }
+            }
+        }
+
+        void readTileFields(JsonObject data) throws IOException {
+            int child;
+            while ((child = nbt.nextTag()) != TAG_END) {
+                readTileField(data, nbt.name(), child);
+            }
+        }
+
+        void readTileField(JsonObject data, String name, int type) throws IOException {
+            switch (type) {
+                case TAG_STRING:
+                    data.addProperty(name, nbt.readString());
+                    break;
+                case TAG_BYTE:
+                case TAG_SHORT:
+                case TAG_INT:
+                case TAG_LONG:
+                    data.addProperty(name, nbt.readNumber(type));
+                    break;
+                default:
+                    nbt.skip(type);
+                    break;
+            }
+        }
+
+        // Once all three sides are known, rejects an empty box or one larger than maxVolume
+        void checkSize() throws IOException {
+            if (width < 0 || height < 0 || length < 0) {
+                return;
+            }
+            if (width == 0 || height == 0 || length == 0) {
+                throw new IOException("Invalid schematic size: " + width + "x" + height + "x" + length);
+            }
+            long volume = (long) width * height * length;
+            if (volume > maxVolume) {
+                throw new IOException("Schematic too large (max " + maxVolume + " blocks): " + volume);
+            }
+        }
+
+        boolean sized() {
+            return palette != null && width > 0 && height > 0 && length > 0;
+        }
+
+        // Block data can be decoded as it streams in once the origin is known too. Offset (version 3)
+        // and Metadata (version 2) are optional, so data seen before them waits for finish().
+        boolean ready() {
+            boolean originKnown = version >= 3 ? offset != null : metadataSeen;
+            return sized() && originKnown;
+        }
+
+        // Origin relative to the minimum corner
+        int originX() {
+            return version >= 3 ? (offset != null ? -offset[0] : 0) : (weOffset != null ? -weOffset[0] : 0);
+        }
+
+        int originY() {
+            return version >= 3 ? (offset != null ? -offset[1] : 0) : (weOffset != null ? -weOffset[1] : 0);
+        }
+
+        int originZ() {
+            return version >= 3 ? (offset != null ? -offset[2] : 0) : (weOffset != null ? -weOffset[2] : 0);
+        }
+
+        void decode(DataInput in, int size) throws IOException {
+            int originX = originX();
+            int originY = originY();
+            int originZ = originZ();
+            int dx = 0;
+            int dy = 0;
+            int dz = 0;
+            int[] remaining = {size};
+            while (remaining[0] > 0) {
+                int value = VarInts.read(in, remaining, "block data");
+
+                if (dy == height) {
+                    throw new IOException("Block data is longer than " + width + "x" + height + "x" + length);
+                }
+                BlockData data = value < palette.length ? palette[value] : null;
+                if (data == null) {
+                    throw new IOException("Block data refers to missing palette index " + value);
+                }
+                if (!ignoreAir || !data.getMaterial().isAir()) {
+                    int rx = dx - originX;
+                    int rz = dz - originZ;
+                    buffer.set(transform.worldX(rx, rz), transform.worldY(dy - originY), transform.worldZ(rx, rz), data);
+                    placed++;
+                }
+
+                if (++dx == width) {
+                    dx = 0;
+                    if (++dz == length) {
+                        dz = 0;
+                        dy++;
+                    }
+                }
+            }
+            if (dy != height) {
+                throw new IOException("Block data is shorter than " + width + "x" + height + "x" + length);
+            }
+            decoded = true;
+        }
+
+        void finish() throws IOException {
+            if (!sized()) {
+                throw new IOException("Not a schematic: missing Width, Height, Length or Palette");
+            }
+            // Without an Offset or Metadata the origin stays at the minimum corner
+            if (deferred != null) {
+                decode(new DataInputStream(new ByteArrayInputStream(deferred)), deferred.length);
+                deferred = null;
+            }
+            if (!decoded) {
+                throw new IOException("Not a schematic: missing block data");
+            }
+
+            int originX = originX();
+            int originY = originY();
+            int originZ = originZ();
+            for (int i = 0; i < tilePositions.size(); i++) {
+                int[] pos = tilePositions.get(i);
+                int rx = pos[0] - originX;
+                int rz = pos[2] - originZ;
+                buffer.setTile(transform.worldX(rx, rz), transform.worldY(pos[1] - originY), transform.worldZ(rx, rz),
+                    EditSource.TileData.ofNbt(tileData.get(i)));
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.mcpylib.plugin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+// Unsigned LEB128 varints (7 bits per byte, low bits first) as used by the block, biome and
+// schematic payloads and the edit journal. Signed deltas are zigzag-encoded first.
+final class VarInts {
+
+    private VarInts() {
+    }
+
+    static void write(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    // Writes at offset, which must leave room for 5 bytes, and returns the offset after the value
+    static int write(byte[] bytes, int offset, int value) {
+        while ((value & ~0x7F) != 0) {
+            bytes[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[offset++] = (byte) value;
+        return offset;
+    }
+
+    // Reads one varint; "what" names the payload in the error for truncated or overlong input
+    static int read(ByteBuffer in, String what) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (!in.hasRemaining()) {
+                throw new IllegalArgumentException("Malformed " + what + ": truncated data");
+            }
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed " + what + ": varint too long");
+    }
+
+    // Reads one varint from a stream holding remaining[0] more bytes of the payload, and counts
+    // the bytes it consumes off remaining[0]
+    static int read(DataInput in, int[] remaining, String what) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (remaining[0] <= 0) {
+                throw new IOException("Malformed " + what + ": truncated data");
+            }
+            remaining[0]--;
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed " + what + ": varint too long");
+    }
+
+    static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
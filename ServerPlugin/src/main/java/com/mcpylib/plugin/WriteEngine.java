@@ -0,0 +1,592 @@
+package com.mcpylib.plugin;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Biome;
+import org.bukkit.block.Block;
+import org.bukkit.block.TileState;
+import org.bukkit.block.data.Bisected;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.block.data.MultipleFacing;
+import org.bukkit.block.data.Rail;
+import org.bukkit.block.data.Waterlogged;
+import org.bukkit.block.data.type.RedstoneWire;
+import org.bukkit.block.data.type.Wall;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+
+// Applies EditSources on the main thread, one chunk section at a time, within a per-tick time budget.
+// A job first loads its chunk footprint under plugin tickets, a few chunks per tick, so writes never
+// stall on a synchronous chunk load; the tickets are released when the job ends. Entity spawn and
+// removal batches go through the same queue and per-tick budget; removal only visits chunks that
+// are already loaded, so it takes no tickets.
+public class WriteEngine {
+
+    private static final byte UNKNOWN = 0;
+    private static final byte YES = 1;
+    private static final byte NO = 2;
+
+    private final MCPyLibPlugin plugin;
+    private final Deque<Job<?>> queue = new ArrayDeque<>();
+    private BukkitTask ticker;
+
+    // Lazily filled per-material classification, indexed by Material.ordinal()
+    private final byte[] needsUpdate = new byte[Material.values().length];
+    private final byte[] tileEntity = new byte[Material.values().length];
+
+    public WriteEngine(MCPyLibPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    public void start() {
+        ticker = Bukkit.getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L);
+    }
+
+    public void stop() {
+        if (ticker != null) {
+            ticker.cancel();
+            ticker = null;
+        }
+        for (Job<?> job : queue) {
+            job.release();
+            job.future.completeExceptionally(new IllegalStateException("Plugin disabled before the edit finished"));
+        }
+        queue.clear();
+    }
+
+    public int getQueuedJobs() {
+        return queue.size();
+    }
+
+    // Queue length and the stage of the job currently being applied
+    public Map<String, Object> getProgress() {
+        Map<String, Object> progress = new HashMap<>();
+        progress.put("jobs", queue.size());
+        Job<?> job = queue.peek();
+        if (job != null) {
+            progress.put("phase", job.loaded < job.chunks.length ? "loading" : job.phase());
+            progress.put("chunks", job.chunks.length);
+            progress.put("chunks_loaded", job.loaded);
+            job.progress(progress);
+        }
+        return progress;
+    }
+
+    public CompletableFuture<EditResult> submit(World world, EditSource source, PhysicsMode physics) {
+        return submit(world, source, physics, null);
+    }
+
+    // Must be called on the main thread. Small edits usually complete before this returns.
+    // When a journal entry is given, the prior state of every changed position is recorded into it.
+    public CompletableFuture<EditResult> submit(World world, EditSource source, PhysicsMode physics, JournalEntry journal) {
+        return enqueue(new WriteJob(world, source, physics, journal));
+    }
+
+    // Sets every non-null cell of the grid, chunk by chunk, and resends each chunk once it is done.
+    // Completes with the number of cells whose biome changed.
+    public CompletableFuture<Integer> submitBiomes(World world, BiomeGrid grid) {
+        return enqueue(new BiomeJob(world, grid));
+    }
+
+    // Spawns one entity per position (x, y, z triples) from the matching template, at most
+    // entities.max-spawns-per-tick per tick. Completes with the spawned entities in order, with null
+    // where a spawn failed; one failure does not stop the rest of the batch.
+    public CompletableFuture<List<Entity>> submitSummon(World world, EntityTemplate[] templates, double[] positions) {
+        return enqueue(new SummonJob(world, templates, positions));
+    }
+
+    // Walks each chunk's entity list and removes the non-player entities the filter accepts, at most
+    // entities.max-removals-per-tick per tick. Chunks are neither loaded nor ticketed; those not
+    // loaded when their turn comes are skipped. Completes with the number removed.
+    public CompletableFuture<Integer> submitRemoval(World world, long[] chunks, Predicate<Entity> filter) {
+        return enqueue(new RemoveJob(world, chunks, filter));
+    }
+
+    private <T> CompletableFuture<T> enqueue(Job<T> job) {
+        queue.add(job);
+        if (queue.size() == 1) {
+            tick();
+        }
+        return job.future;
+    }
+
+    private void tick() {
+        long budget = plugin.getConfig().getLong("edits.tick-budget-ms", 20) * 1_000_000L;
+        long deadline = System.nanoTime() + budget;
+        int maxLoads = Math.max(1, plugin.getConfig().getInt("edits.max-chunk-loads-per-tick", 4));
+
+        while (!queue.isEmpty()) {
+            Job<?> job = queue.peek();
+            try {
+                if (!job.load(maxLoads, deadline) || !job.run(deadline)) {
+                    return;
+                }
+                queue.poll();
+                job.release();
+                job.complete();
+            } catch (Exception e) {
+                queue.poll();
+                job.release();
+                job.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    // Main-thread work over a set of chunks, which are loaded and ticketed before run is called
+    private abstract class Job<T> {
+        final World world;
+        // Chunk keys in the order they are written; the first `loaded` are resident
+        final long[] chunks;
+        // Chunks this job added a ticket to, released when it ends
+        final long[] tickets;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        int loaded;
+        int ticketCount;
+
+        Job(World world, long[] chunks) {
+            this.world = world;
+            this.chunks = chunks;
+            this.tickets = new long[chunks.length];
+        }
+
+        // Returns true once the job has finished
+        abstract boolean run(long deadline);
+
+        abstract T result();
+
+        // Phase once every chunk is loaded
+        abstract String phase();
+
+        abstract void progress(Map<String, Object> progress);
+
+        void complete() {
+            future.complete(result());
+        }
+
+        // Returns true once every chunk is loaded and ticketed. Chunks that are already resident only
+        // need a ticket; at most maxLoads chunks are loaded from disk or generated per tick.
+        boolean load(int maxLoads, long deadline) {
+            int loads = 0;
+            while (loaded < chunks.length) {
+                long chunk = chunks[loaded];
+                int chunkX = (int) (chunk >> 32);
+                int chunkZ = (int) chunk;
+                boolean resident = world.isChunkLoaded(chunkX, chunkZ);
+                if (!resident && (loads >= maxLoads || System.nanoTime() >= deadline)) {
+                    return false;
+                }
+                // False means the plugin already holds a ticket here, which stays with whoever added it
+                if (world.addPluginChunkTicket(chunkX, chunkZ, plugin)) {
+                    tickets[ticketCount++] = chunk;
+                }
+                loaded++;
+                if (!resident) {
+                    loads++;
+                }
+            }
+            return true;
+        }
+
+        void release() {
+            for (int i = 0; i < ticketCount; i++) {
+                world.removePluginChunkTicket((int) (tickets[i] >> 32), (int) tickets[i], plugin);
+            }
+            ticketCount = 0;
+        }
+    }
+
+    private final class WriteJob extends Job<EditResult> {
+        final EditSource source;
+        final PhysicsMode physics;
+        final JournalEntry journal;
+        final long[] sections;
+        final EditResult result;
+        int next;
+        boolean updating;
+
+        WriteJob(World world, EditSource source, PhysicsMode physics, JournalEntry journal) {
+            this(world, source, physics, journal, source.sections());
+        }
+
+        private WriteJob(World world, EditSource source, PhysicsMode physics, JournalEntry journal, long[] sections) {
+            super(world, footprint(sections));
+            this.source = source;
+            this.physics = physics;
+            this.journal = journal;
+            this.sections = sections;
+            this.result = new EditResult(physics);
+        }
+
+        @Override
+        EditResult result() {
+            return result;
+        }
+
+        @Override
+        String phase() {
+            return updating ? "updating" : "writing";
+        }
+
+        @Override
+        void progress(Map<String, Object> progress) {
+            progress.put("sections", sections.length);
+            progress.put("sections_done", loaded < chunks.length ? 0 : next);
+        }
+
+        void record(Block block, BlockData data, EditSource.TileData tile) {
+            BlockData prior = block.getBlockData();
+            boolean priorTile = isTileEntity(block, prior.getMaterial());
+            // Unchanged positions need nothing restored
+            if (priorTile || tile != null || !prior.equals(data)) {
+                journal.record(block.getX(), block.getY(), block.getZ(), prior, priorTile ? block.getState() : null);
+            }
+        }
+
+        @Override
+        boolean run(long deadline) {
+            boolean applyPhysics = physics == PhysicsMode.FULL;
+            while (next < sections.length) {
+                long section = sections[next++];
+                if (!updating) {
+                    // Pass 1: write every block in chunk order
+                    source.write(section, (x, y, z, data, tile) -> {
+                        Block block = world.getBlockAt(x, y, z);
+                        if (journal != null) {
+                            record(block, data, tile);
+                        }
+                        block.setBlockData(data, applyPhysics);
+                        if (tile != null) {
+                            tile.apply(block, applyPhysics);
+                        }
+                        result.placed++;
+                    });
+                } else {
+                    // Pass 2: one neighbor update per boundary or physics-sensitive block
+                    source.write(section, (x, y, z, data, tile) -> updateDeferred(world, source, x, y, z, data, result));
+                }
+
+                if (next == sections.length && !updating && physics == PhysicsMode.DEFERRED) {
+                    updating = true;
+                    next = 0;
+                }
+                if (System.nanoTime() >= deadline) {
+                    break;
+                }
+            }
+            return next >= sections.length;
+        }
+    }
+
+    private final class BiomeJob extends Job<Integer> {
+        final BiomeGrid grid;
+        int next;
+        int changed;
+
+        BiomeJob(World world, BiomeGrid grid) {
+            super(world, footprint(grid));
+            this.grid = grid;
+        }
+
+        @Override
+        Integer result() {
+            return changed;
+        }
+
+        @Override
+        String phase() {
+            return "writing";
+        }
+
+        @Override
+        void progress(Map<String, Object> progress) {
+            progress.put("chunks_done", loaded < chunks.length ? 0 : next);
+        }
+
+        @Override
+        boolean run(long deadline) {
+            int minY = world.getMinHeight();
+            int maxY = world.getMaxHeight() - 1;
+            while (next < chunks.length) {
+                long chunk = chunks[next++];
+                int chunkX = (int) (chunk >> 32);
+                int chunkZ = (int) chunk;
+                // The grid's cells inside this chunk, 4 x 4 cells per chunk column
+                int x0 = Math.max(grid.getCellX(), chunkX << 2);
+                int x1 = Math.min(grid.getCellX() + grid.getWidth() - 1, (chunkX << 2) + 3);
+                int z0 = Math.max(grid.getCellZ(), chunkZ << 2);
+                int z1 = Math.min(grid.getCellZ() + grid.getLength() - 1, (chunkZ << 2) + 3);
+                boolean touched = false;
+                for (int y = 0; y < grid.getHeight(); y++) {
+                    int blockY = (grid.getCellY() + y) << 2;
+                    if (blockY < minY || blockY > maxY) {
+                        continue;
+                    }
+                    for (int z = z0; z <= z1; z++) {
+                        for (int x = x0; x <= x1; x++) {
+                            Biome biome = grid.get(x - grid.getCellX(), y, z - grid.getCellZ());
+                            if (biome == null || world.getBiome(x << 2, blockY, z << 2) == biome) {
+                                continue;
+                            }
+                            world.setBiome(x << 2, blockY, z << 2, biome);
+                            changed++;
+                            touched = true;
+                        }
+                    }
+                }
+                // Players only see biome changes once the chunk is resent
+                if (touched) {
+                    world.refreshChunk(chunkX, chunkZ);
+                }
+                if (System.nanoTime() >= deadline) {
+                    break;
+                }
+            }
+            return next >= chunks.length;
+        }
+    }
+
+    private final class SummonJob extends Job<List<Entity>> {
+        final EntityTemplate[] templates;
+        final double[] positions;
+        final List<Entity> spawned;
+
+        SummonJob(World world, EntityTemplate[] templates, double[] positions) {
+            super(world, footprint(positions));
+            this.templates = templates;
+            this.positions = positions;
+            this.spawned = new ArrayList<>(templates.length);
+        }
+
+        @Override
+        List<Entity> result() {
+            return spawned;
+        }
+
+        @Override
+        String phase() {
+            return "spawning";
+        }
+
+        @Override
+        void progress(Map<String, Object> progress) {
+            progress.put("entities", templates.length);
+            progress.put("entities_done", spawned.size());
+        }
+
+        @Override
+        boolean run(long deadline) {
+            int maxSpawns = Math.max(1, plugin.getConfig().getInt("entities.max-spawns-per-tick", 50));
+            int spawns = 0;
+            while (spawned.size() < templates.length) {
+                int i = spawned.size();
+                EntityTemplate template = templates[i];
+                Location location = new Location(world, positions[i * 3], positions[i * 3 + 1], positions[i * 3 + 2]);
+                // Configured in the consumer, so the entity is complete when it is added to the world
+                Entity entity;
+                try {
+                    entity = world.spawn(location, template.getType().getEntityClass(), template::apply);
+                } catch (RuntimeException e) {
+                    entity = null;
+                }
+                spawned.add(entity);
+                if (++spawns >= maxSpawns || System.nanoTime() >= deadline) {
+                    break;
+                }
+            }
+            return spawned.size() >= templates.length;
+        }
+    }
+
+    private final class RemoveJob extends Job<Integer> {
+        final Predicate<Entity> filter;
+        int next;
+        Entity[] entities = new Entity[0];
+        int index;
+        int removed;
+
+        RemoveJob(World world, long[] chunks, Predicate<Entity> filter) {
+            super(world, chunks);
+            this.filter = filter;
+        }
+
+        @Override
+        Integer result() {
+            return removed;
+        }
+
+        @Override
+        String phase() {
+            return "removing";
+        }
+
+        @Override
+        void progress(Map<String, Object> progress) {
+            progress.put("chunks_done", loaded < chunks.length ? 0 : next);
+            progress.put("removed", removed);
+        }
+
+        // Removal never loads chunks, so nothing is ticketed; a chunk that has unloaded by the time
+        // it is visited is skipped
+        @Override
+        boolean load(int maxLoads, long deadline) {
+            loaded = chunks.length;
+            return true;
+        }
+
+        @Override
+        boolean run(long deadline) {
+            int maxRemovals = Math.max(1, plugin.getConfig().getInt("entities.max-removals-per-tick", 1000));
+            int removals = 0;
+            while (true) {
+                if (index >= entities.length) {
+                    if (next >= chunks.length) {
+                        return true;
+                    }
+                    if (System.nanoTime() >= deadline) {
+                        return false;
+                    }
+                    long chunk = chunks[next++];
+                    int chunkX = (int) (chunk >> 32);
+                    int chunkZ = (int) chunk;
+                    entities = world.isChunkLoaded(chunkX, chunkZ)
+                        ? world.getChunkAt(chunkX, chunkZ).getEntities() : new Entity[0];
+                    index = 0;
+                    continue;
+                }
+                Entity entity = entities[index++];
+                if (entity instanceof Player || !entity.isValid() || !filter.test(entity)) {
+                    continue;
+                }
+                entity.remove();
+                removed++;
+                // A chunk can hold thousands of items, so the budget is checked within a chunk too
+                if (++removals >= maxRemovals || System.nanoTime() >= deadline) {
+                    return index >= entities.length && next >= chunks.length;
+                }
+            }
+        }
+    }
+
+    // Distinct chunks of the sections, in section order
+    private static long[] footprint(long[] sections) {
+        Set<Long> footprint = new LinkedHashSet<>();
+        for (long section : sections) {
+            footprint.add(SectionKey.chunkKey(section));
+        }
+        long[] chunks = new long[footprint.size()];
+        int i = 0;
+        for (long chunk : footprint) {
+            chunks[i++] = chunk;
+        }
+        return chunks;
+    }
+
+    // Distinct chunks holding the positions (x, y, z triples), in position order
+    private static long[] footprint(double[] positions) {
+        Set<Long> footprint = new LinkedHashSet<>();
+        for (int i = 0; i + 2 < positions.length; i += 3) {
+            int chunkX = (int) Math.floor(positions[i]) >> 4;
+            int chunkZ = (int) Math.floor(positions[i + 2]) >> 4;
+            footprint.add(((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL));
+        }
+        long[] chunks = new long[footprint.size()];
+        int i = 0;
+        for (long chunk : footprint) {
+            chunks[i++] = chunk;
+        }
+        return chunks;
+    }
+
+    private static long[] footprint(BiomeGrid grid) {
+        int minChunkX = grid.getCellX() >> 2;
+        int maxChunkX = (grid.getCellX() + grid.getWidth() - 1) >> 2;
+        int minChunkZ = grid.getCellZ() >> 2;
+        int maxChunkZ = (grid.getCellZ() + grid.getLength() - 1) >> 2;
+        long[] chunks = new long[(maxChunkX - minChunkX + 1) * (maxChunkZ - minChunkZ + 1)];
+        int i = 0;
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                chunks[i++] = ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+            }
+        }
+        return chunks;
+    }
+
+    private void updateDeferred(World world, EditSource source, int x, int y, int z, BlockData data, EditResult result) {
+        boolean boundary = !source.contains(x + 1, y, z) || !source.contains(x - 1, y, z)
+            || !source.contains(x, y + 1, z) || !source.contains(x, y - 1, z)
+            || !source.contains(x, y, z + 1) || !source.contains(x, y, z - 1);
+        if (!boundary && !needsUpdate(data)) {
+            return;
+        }
+
+        Block block = world.getBlockAt(x, y, z);
+        BlockData current = block.getBlockData();
+        Material type = current.getMaterial();
+
+        if (type.isAir()) {
+            // Nothing to re-place, so flash a placeholder to notify the neighbors outside the edit
+            block.setType(Material.BARRIER, false);
+            block.setBlockData(current, true);
+            result.updates++;
+            return;
+        }
+
+        if (!current.isSupported(block)) {
+            // Vanilla physics would have popped this block off; remove it the same way
+            block.setType(Material.AIR, true);
+            result.updates++;
+            return;
+        }
+
+        if (isTileEntity(block, type)) {
+            // Re-placing would wipe the block entity's contents
+            return;
+        }
+
+        // Re-place through vanilla so the block and its neighbors recompute shape, flow and power
+        block.setType(Material.AIR, false);
+        block.setBlockData(current, true);
+        result.updates++;
+    }
+
+    private boolean needsUpdate(BlockData data) {
+        if (data instanceof Waterlogged && ((Waterlogged) data).isWaterlogged()) {
+            return true;
+        }
+
+        Material type = data.getMaterial();
+        byte cached = needsUpdate[type.ordinal()];
+        if (cached == UNKNOWN) {
+            boolean sensitive = !type.isAir() && (type.hasGravity() || !type.isSolid()
+                || data instanceof MultipleFacing || data instanceof Wall || data instanceof Bisected
+                || data instanceof Rail || data instanceof RedstoneWire);
+            cached = sensitive ? YES : NO;
+            needsUpdate[type.ordinal()] = cached;
+        }
+        return cached == YES;
+    }
+
+    private boolean isTileEntity(Block block, Material type) {
+        byte cached = tileEntity[type.ordinal()];
+        if (cached == UNKNOWN) {
+            cached = block.getState() instanceof TileState ? YES : NO;
+            tileEntity[type.ordinal()] = cached;
+        }
+        return cached == YES;
+    }
+}